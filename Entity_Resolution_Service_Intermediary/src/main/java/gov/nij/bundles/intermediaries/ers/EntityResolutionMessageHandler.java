@@ -20,7 +20,9 @@ package gov.nij.bundles.intermediaries.ers;
 import gov.nij.bundles.intermediaries.ers.osgi.AttributeParameters;
 import gov.nij.bundles.intermediaries.ers.osgi.AttributeStatistics;
 import gov.nij.bundles.intermediaries.ers.osgi.AttributeWrapper;
+import gov.nij.bundles.intermediaries.ers.osgi.BlockingKeySpecification;
 import gov.nij.bundles.intermediaries.ers.osgi.EntityResolutionResults;
+import gov.nij.bundles.intermediaries.ers.osgi.EntityResolutionConfiguration;
 import gov.nij.bundles.intermediaries.ers.osgi.EntityResolutionService;
 import gov.nij.bundles.intermediaries.ers.osgi.RecordWrapper;
 import gov.nij.bundles.intermediaries.ers.osgi.SortOrderSpecification;
@@ -40,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -130,9 +133,11 @@ public class EntityResolutionMessageHandler {
         }
 
         String recordLimitString = null;
+        String engineString = null;
 
         if (entityResolutionConfigurationNode != null) {
             recordLimitString = xpath.evaluate("er-ext:RecordLimit", entityResolutionConfigurationNode);
+            engineString = xpath.evaluate("er-ext:ResolutionEngine", entityResolutionConfigurationNode);
         }
 
         int recordLimit = Integer.MAX_VALUE;
@@ -144,14 +149,51 @@ public class EntityResolutionMessageHandler {
                 LOG.debug("Record limit value " + recordLimitString + " does not parse as an integer, will not set a record limit");
             }
         }
+
+        EntityResolutionConfiguration configuration = new EntityResolutionConfiguration(recordLimit);
+
+        if (!StringUtils.isEmpty(engineString)) {
+            try {
+                configuration.setEngine(engineString.trim());
+            } catch (IllegalArgumentException iae) {
+                LOG.warn("Resolution engine " + engineString + " is not supported, will use the default engine " + configuration.getEngine());
+            }
+        }
+
+        if (entityResolutionConfigurationNode != null) {
+            String windowSizeString = xpath.evaluate("er-ext:SortedNeighborhoodWindowSize", entityResolutionConfigurationNode);
+            if (!StringUtils.isEmpty(windowSizeString)) {
+                try {
+                    configuration.setWindowSize(Integer.parseInt(windowSizeString.trim()));
+                } catch (IllegalArgumentException iae) {
+                    LOG.warn("Sorted neighborhood window size " + windowSizeString + " is not valid, will use the default window size " + configuration.getWindowSize());
+                }
+            }
+            NodeList sortKeyNodes = (NodeList) xpath.evaluate("er-ext:SortedNeighborhoodSortKeyAttributeXPath", entityResolutionConfigurationNode, XPathConstants.NODESET);
+            for (int i = 0; i < sortKeyNodes.getLength(); i++) {
+                configuration.getSortKeyAttributeNames().add(sortKeyNodes.item(i).getTextContent().trim());
+            }
+            String timeBudgetString = xpath.evaluate("er-ext:TimeBudgetMilliseconds", entityResolutionConfigurationNode);
+            if (!StringUtils.isEmpty(timeBudgetString)) {
+                try {
+                    configuration.setTimeBudgetMillis(Long.parseLong(timeBudgetString.trim()));
+                } catch (IllegalArgumentException iae) {
+                    LOG.warn("Time budget " + timeBudgetString + " is not valid, will not set a time budget");
+                }
+            }
+        }
         
         EntityResolutionResults results = null;
         NodeList entityNodeList = (NodeList) xpath.evaluate("er-ext:Entity", entityContainerNode, XPathConstants.NODESET);
         
-        if (entityNodeList.getLength() <= recordLimit) {
+        // with a time budget, resolution returns a partial result rather than being skipped over the record limit
+        if (entityNodeList.getLength() <= recordLimit || configuration.getTimeBudgetMillis() > 0) {
             List<RecordWrapper> records = createRecordsFromRequestMessage(entityNodeList, attributeParametersNode);
             LOG.debug("before resolveEntities, records=" + records);
-            results = entityResolutionService.resolveEntities(records, attributeParameters, recordLimit);
+            results = entityResolutionService.resolveEntities(records, attributeParameters, configuration);
+            if (results.getFractionOfPairsEvaluated() < 1.0) {
+                LOG.info("Returning partial entity resolution results, " + results.getFractionOfPairsEvaluated() + " of the candidate pairs were evaluated");
+            }
         }
 
         Document resultDocument = createResponseMessage(entityContainerNode, results, attributeParametersNode, recordLimit);
@@ -210,6 +252,21 @@ public class EntityResolutionMessageHandler {
                 sos.setSortOrderRank(sortOrderRank);
                 parameter.setSortOrder(sos);
             }
+            Node blockingNode = (Node) xpath.evaluate("er-ext:AttributeBlockingSpecification", node, XPathConstants.NODE);
+            if (blockingNode != null) {
+                String keyType = xpath.evaluate("er-ext:AttributeBlockingKeyType", blockingNode);
+                String keyLengthS = xpath.evaluate("er-ext:AttributeBlockingKeyLength", blockingNode);
+                try {
+                    BlockingKeySpecification bks = new BlockingKeySpecification(keyType.trim());
+                    if (!StringUtils.isEmpty(keyLengthS)) {
+                        bks.setKeyLength(Integer.parseInt(keyLengthS.trim()));
+                    }
+                    parameter.setBlockingKey(bks);
+                } catch (IllegalArgumentException iae) {
+                    LOG.warn("Blocking specification with key type " + keyType + " and key length " + keyLengthS + " for attribute " + attributeXpathValue
+                            + " is not valid, will not block on this attribute");
+                }
+            }
             ret.add(parameter);
         }
         return ret;
@@ -435,6 +492,13 @@ public class EntityResolutionMessageHandler {
         recordLimitExceededElement.setTextContent(new Boolean(results == null).toString());
         entityMergeResultMessageElement.appendChild(recordLimitExceededElement);
 
+        if (results != null) {
+            // less than 1 when a time budget expired, and the merged records are a partial resolution
+            Element fractionElement = resultDocument.createElementNS(EntityResolutionNamespaceContext.ER_EXT_NAMESPACE, "FractionOfPairsEvaluated");
+            fractionElement.setTextContent(String.valueOf(results.getFractionOfPairsEvaluated()));
+            entityMergeResultMessageElement.appendChild(fractionElement);
+        }
+
         return resultDocument;
 
     }
@@ -462,6 +526,32 @@ public class EntityResolutionMessageHandler {
         }
     }
     
+    /**
+     * Sets the number of threads used to resolve independent blocks of records concurrently. A value of 1 or less (the default) resolves all blocks on the
+     * calling thread. Parallelism only has an effect when the attribute parameters specify blocking keys.
+     * 
+     * @param resolutionParallelism
+     *            the number of threads
+     */
+    public void setResolutionParallelism(int resolutionParallelism) {
+        ForkJoinPool previousPool = entityResolutionService.getForkJoinPool();
+        entityResolutionService.setForkJoinPool(resolutionParallelism > 1 ? new ForkJoinPool(resolutionParallelism) : null);
+        if (previousPool != null) {
+            previousPool.shutdown();
+        }
+    }
+
+    /**
+     * Shuts down the threads used to resolve blocks concurrently, if any. This is the bean's destroy method, so that the threads do not outlive the bundle.
+     */
+    public void shutdown() {
+        ForkJoinPool pool = entityResolutionService.getForkJoinPool();
+        entityResolutionService.setForkJoinPool(null);
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
     /**
      * Returns the attribute parameters document with which this processor has been configured, or null if not configured with one
      * @return the attribute parameters
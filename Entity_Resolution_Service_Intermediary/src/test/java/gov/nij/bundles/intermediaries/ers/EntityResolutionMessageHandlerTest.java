@@ -20,6 +20,8 @@ package gov.nij.bundles.intermediaries.ers;
 import gov.nij.bundles.intermediaries.ers.EntityResolutionMessageHandler;
 import gov.nij.bundles.intermediaries.ers.EntityResolutionNamespaceContext;
 import gov.nij.bundles.intermediaries.ers.osgi.AttributeParameters;
+import gov.nij.bundles.intermediaries.ers.osgi.BlockingKeySpecification;
+import gov.nij.bundles.intermediaries.ers.osgi.EntityResolutionConfiguration;
 import gov.nij.bundles.intermediaries.ers.osgi.EntityResolutionConversionUtils;
 import gov.nij.bundles.intermediaries.ers.osgi.ExternallyIdentifiableRecord;
 import gov.nij.bundles.intermediaries.ers.osgi.RecordWrapper;
@@ -224,6 +226,72 @@ public class EntityResolutionMessageHandlerTest extends TestCase {
         assertEquals(12, statNodes.getLength());
     }
 
+    @Test
+    public void testResolutionEngine() throws Exception {
+
+        XmlConverter converter = new XmlConverter();
+        converter.getDocumentBuilderFactory().setNamespaceAware(true);
+        Document testRequestMessage = converter.toDOMDocument(testRequestMessageInputStream);
+
+        Node entityContainerNode = testRequestMessage.getElementsByTagNameNS(EntityResolutionNamespaceContext.ER_EXT_NAMESPACE, "EntityContainer").item(0);
+        assertNotNull(entityContainerNode);
+
+        XPath xp = XPathFactory.newInstance().newXPath();
+        xp.setNamespaceContext(new EntityResolutionNamespaceContext());
+
+        for (String engine : new String[] { EntityResolutionConfiguration.ENGINE_RSWOOSH, EntityResolutionConfiguration.ENGINE_MATCH_GRAPH,
+                EntityResolutionConfiguration.ENGINE_SORTED_NEIGHBORHOOD, "not an engine" }) {
+            Element entityResolutionConfigurationElement = (Element) makeEntityResolutionConfigurationNode("6");
+            Element e = entityResolutionConfigurationElement.getOwnerDocument().createElementNS(EntityResolutionNamespaceContext.ER_EXT_NAMESPACE, "ResolutionEngine");
+            e.setTextContent(engine);
+            entityResolutionConfigurationElement.appendChild(e);
+
+            Document resultDocument = entityResolutionMessageHandler.performEntityResolution(entityContainerNode, null, entityResolutionConfigurationElement);
+
+            NodeList entityNodes = (NodeList) xp.evaluate("//merge-result:EntityContainer/merge-result-ext:Entity", resultDocument, XPathConstants.NODESET);
+            assertEquals(6, entityNodes.getLength());
+            entityNodes = (NodeList) xp.evaluate("//merge-result-ext:MergedRecord", resultDocument, XPathConstants.NODESET);
+            assertEquals(3, entityNodes.getLength());
+        }
+
+    }
+
+    @Test
+    public void testTimeBudget() throws Exception {
+
+        XmlConverter converter = new XmlConverter();
+        converter.getDocumentBuilderFactory().setNamespaceAware(true);
+        Document testRequestMessage = converter.toDOMDocument(testRequestMessageInputStream);
+
+        Node entityContainerNode = testRequestMessage.getElementsByTagNameNS(EntityResolutionNamespaceContext.ER_EXT_NAMESPACE, "EntityContainer").item(0);
+        assertNotNull(entityContainerNode);
+
+        // the record limit would skip resolution, but a time budget takes its place
+        Element entityResolutionConfigurationElement = (Element) makeEntityResolutionConfigurationNode("2");
+        Element e = entityResolutionConfigurationElement.getOwnerDocument().createElementNS(EntityResolutionNamespaceContext.ER_EXT_NAMESPACE, "TimeBudgetMilliseconds");
+        e.setTextContent("60000");
+        entityResolutionConfigurationElement.appendChild(e);
+
+        Document resultDocument = entityResolutionMessageHandler.performEntityResolution(entityContainerNode, null, entityResolutionConfigurationElement);
+
+        XPath xp = XPathFactory.newInstance().newXPath();
+        xp.setNamespaceContext(new EntityResolutionNamespaceContext());
+        NodeList entityNodes = (NodeList) xp.evaluate("//merge-result-ext:MergedRecord", resultDocument, XPathConstants.NODESET);
+        assertEquals(3, entityNodes.getLength());
+        assertEquals("false", xp.evaluate("/merge-result:EntityMergeResultMessage/merge-result:RecordLimitExceededIndicator", resultDocument));
+        // every pair was evaluated in the time, so the resolution is complete
+        assertEquals(1.0, ((Number) xp.evaluate("/merge-result:EntityMergeResultMessage/er-ext:FractionOfPairsEvaluated", resultDocument, XPathConstants.NUMBER)).doubleValue());
+
+        e.setTextContent("not a number");
+        Document attributeParametersDocument = entityResolutionMessageHandler.getAttributeParametersDocument();
+        resultDocument = entityResolutionMessageHandler.performEntityResolution(entityContainerNode, attributeParametersDocument.getDocumentElement(),
+                entityResolutionConfigurationElement);
+        assertEquals("true", xp.evaluate("/merge-result:EntityMergeResultMessage/merge-result:RecordLimitExceededIndicator", resultDocument));
+        // without resolution, no pairs were evaluated
+        assertNull(xp.evaluate("/merge-result:EntityMergeResultMessage/er-ext:FractionOfPairsEvaluated", resultDocument, XPathConstants.NODE));
+
+    }
+
     /**
      * This unit test will read a entity merge request document that has given and sur names in mixed case.
      * It will then set an ER threshold of 3 and pass in six entities so ER is skipped.
@@ -410,6 +478,70 @@ public class EntityResolutionMessageHandlerTest extends TestCase {
         assertTrue(givenNameFound && surNameFound);
     }
 
+    @Test
+    public void testAttributeParametersBlockingSetup() throws Exception {
+        entityResolutionMessageHandler.setAttributeParametersStream(getClass().getResourceAsStream("/xml/TestAttributeParametersWithBlocking.xml"));
+        Set<AttributeParametersXpathSupport> attributeParameters = entityResolutionMessageHandler.getAttributeParameters(null);
+        assertEquals(2, attributeParameters.size());
+        for (AttributeParameters ap : attributeParameters) {
+            if ("ext:PersonSearchResult/ext:Person/nc:PersonName/nc:PersonGivenName".equals(ap.getAttributeName())) {
+                assertEquals(BlockingKeySpecification.BLOCKING_KEY_PREFIX, ap.getBlockingKey().getBlockingKeyType());
+                assertEquals(2, ap.getBlockingKey().getKeyLength());
+            } else {
+                assertEquals(BlockingKeySpecification.BLOCKING_KEY_SOUNDEX, ap.getBlockingKey().getBlockingKeyType());
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidBlockingSpecification() throws Exception {
+        entityResolutionMessageHandler.setAttributeParametersStream(getClass().getResourceAsStream("/xml/TestAttributeParametersWithBlocking.xml"));
+        Element attributeParametersElement = entityResolutionMessageHandler.getAttributeParametersDocument().getDocumentElement();
+        NodeList keyTypeNodes = attributeParametersElement.getElementsByTagNameNS(EntityResolutionNamespaceContext.ER_EXT_NAMESPACE, "AttributeBlockingKeyType");
+        NodeList keyLengthNodes = attributeParametersElement.getElementsByTagNameNS(EntityResolutionNamespaceContext.ER_EXT_NAMESPACE, "AttributeBlockingKeyLength");
+        assertEquals(1, keyLengthNodes.getLength());
+        // the given name has a valid key type but a length that is not a number, the surname a key type that is not supported
+        keyLengthNodes.item(0).setTextContent("two");
+        keyTypeNodes.item(1).setTextContent("not a key type");
+        Set<AttributeParametersXpathSupport> attributeParameters = entityResolutionMessageHandler.getAttributeParameters(attributeParametersElement);
+        assertEquals(2, attributeParameters.size());
+        for (AttributeParameters ap : attributeParameters) {
+            assertNull(ap.getBlockingKey());
+        }
+
+        XmlConverter converter = new XmlConverter();
+        converter.getDocumentBuilderFactory().setNamespaceAware(true);
+        Document testRequestMessage = converter.toDOMDocument(testRequestMessageInputStream);
+        Node entityContainerNode = testRequestMessage.getElementsByTagNameNS(EntityResolutionNamespaceContext.ER_EXT_NAMESPACE, "EntityContainer").item(0);
+        Document resultDocument = entityResolutionMessageHandler.performEntityResolution(entityContainerNode, attributeParametersElement, null);
+        XPath xp = XPathFactory.newInstance().newXPath();
+        xp.setNamespaceContext(new EntityResolutionNamespaceContext());
+        NodeList entityNodes = (NodeList) xp.evaluate("//merge-result-ext:MergedRecord", resultDocument, XPathConstants.NODESET);
+        assertEquals(3, entityNodes.getLength());
+    }
+
+    @Test
+    public void testResolutionParallelism() throws Exception {
+        entityResolutionMessageHandler.setAttributeParametersStream(getClass().getResourceAsStream("/xml/TestAttributeParametersWithBlocking.xml"));
+        Element attributeParametersElement = entityResolutionMessageHandler.getAttributeParametersDocument().getDocumentElement();
+        XmlConverter converter = new XmlConverter();
+        converter.getDocumentBuilderFactory().setNamespaceAware(true);
+        Document testRequestMessage = converter.toDOMDocument(testRequestMessageInputStream);
+        Node entityContainerNode = testRequestMessage.getElementsByTagNameNS(EntityResolutionNamespaceContext.ER_EXT_NAMESPACE, "EntityContainer").item(0);
+        XPath xp = XPathFactory.newInstance().newXPath();
+        xp.setNamespaceContext(new EntityResolutionNamespaceContext());
+
+        entityResolutionMessageHandler.setResolutionParallelism(2);
+        Document resultDocument = entityResolutionMessageHandler.performEntityResolution(entityContainerNode, attributeParametersElement, null);
+        assertEquals(3, ((NodeList) xp.evaluate("//merge-result-ext:MergedRecord", resultDocument, XPathConstants.NODESET)).getLength());
+
+        // once the pool is shut down, blocks are resolved on the calling thread
+        entityResolutionMessageHandler.shutdown();
+        resultDocument = entityResolutionMessageHandler.performEntityResolution(entityContainerNode, attributeParametersElement, null);
+        assertEquals(3, ((NodeList) xp.evaluate("//merge-result-ext:MergedRecord", resultDocument, XPathConstants.NODESET)).getLength());
+        entityResolutionMessageHandler.shutdown();
+    }
+
     @Test
     public void testCreateRecords() throws Exception {
         XmlConverter converter = new XmlConverter();
@@ -29,6 +29,25 @@ public abstract class AbstractStringDistance implements StringDistance,StringDis
 		return score(prepare(s), prepare(t));
 	}
 	
+	/** By default, strings are scored in full, whatever the threshold.
+	 * Override this method if a distance can tell early that a score
+	 * will fall below the threshold. */
+	public double scoreAtLeast(StringWrapper s, StringWrapper t, double threshold) {
+		return score(s, t);
+	}
+	
+	/** Strings are scored by converting them to StringWrappers with the
+	 * prepare function. */
+	final public double scoreAtLeast(String s, String t, double threshold) {
+		return scoreAtLeast(prepare(s), prepare(t), threshold);
+	}
+	
+	/** Strings match if their score, bounded by the threshold, is
+	 * greater than the threshold. */
+	final public boolean matches(String s, String t, double threshold) {
+		return scoreAtLeast(s, t, threshold) > threshold;
+	}
+	
 	/** Scores are explained by converting Strings to StringWrappers
 	 * with the prepare function. */
 	final public String explainScore(String s, String t) {
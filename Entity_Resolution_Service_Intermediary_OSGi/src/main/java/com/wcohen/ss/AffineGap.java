@@ -24,9 +24,57 @@ public class AffineGap extends AbstractStringDistance
 		this.lowerBound = lowerBound;
 	}
 	
+	/** Score s and t a row at a time, in reused rows for the match and
+	 * insert-in-s matrices; the insert-in-t matrix only looks along its
+	 * row, so a running value serves for it.  The matrices are only
+	 * built to explain a score.
+	 */
 	public double score(StringWrapper s,StringWrapper t) {
-		MatrixTrio mat = new MatrixTrio( s, t );
-		return score(s,t,mat);
+		int n = s.length();
+		int m = t.length();
+		double[][] rows = ScratchRows.get(5, m+1);
+		double[] previousM = rows[0];
+		double[] currentM = rows[1];
+		double[] previousIS = rows[2];
+		double[] currentIS = rows[3];
+		// MatrixTrio.compute reads the insert-in-t matrix from its first
+		// row, whatever the row being computed, so that row is kept
+		double[] firstIT = rows[4];
+		for (int j=0; j<=m; j++) {
+			previousM[j] = 0;
+			previousIS[j] = 0;
+			firstIT[j] = 0;
+		}
+		// the first row and column are all 0, and so at least the best
+		double best = 0;
+		for (int i=1; i<=n; i++) {
+			char si = s.charAt(i-1);
+			currentM[0] = 0;
+			currentIS[0] = 0;
+			double insertT = 0;
+			for (int j=1; j<=m; j++) {
+				double matchScore = charMatchScore.matchScore( si, t.charAt(j-1) );
+				currentM[j] = MemoMatrix.max4( lowerBound,
+				                               previousM[j-1] + matchScore,
+				                               previousIS[j-1] + matchScore,
+				                               firstIT[j-1] + matchScore );
+				currentIS[j] = MemoMatrix.max3( lowerBound,
+				                                previousM[j] + openGapScore,
+				                                previousIS[j] + extendGapScore );
+				insertT = MemoMatrix.max3( lowerBound,
+				                           currentM[j-1] + openGapScore,
+				                           insertT + extendGapScore );
+				if (i==1) firstIT[j] = insertT;
+				best = Math.max( best, currentM[j] );
+			}
+			double[] swap = previousM;
+			previousM = currentM;
+			currentM = swap;
+			swap = previousIS;
+			previousIS = currentIS;
+			currentIS = swap;
+		}
+		return best;
 	}
 	
 	private double score(StringWrapper s,StringWrapper t,MatrixTrio mat) {
@@ -14,6 +14,8 @@ public class ApproxNeedlemanWunsch extends AbstractStringDistance
     private CharMatchScore charMatchScore;
     private double gapCost;
     private MyMatrix mat;
+    private StringWrapper matS;
+    private StringWrapper matT;
     private int width = DEFAULT_WIDTH;
 	
     public ApproxNeedlemanWunsch() { this(CharMatchScore.DIST_01, 1.0 ); }
@@ -25,8 +27,54 @@ public class ApproxNeedlemanWunsch extends AbstractStringDistance
 	
     public void setWidth(int w) { this.width=w; }
 
+    /** Score s and t a row at a time, in two reused rows, computing
+     * only the cells the matrix would store near its diagonal.  The
+     * matrix is only built to explain a score, or to align characters
+     * after one.
+     */
     public double score(StringWrapper s,StringWrapper t) {
-        mat = new MyMatrix( s, t );
+        mat = null;
+        matS = s;
+        matT = t;
+        int n = s.length();
+        int m = t.length();
+        double scale = (m+1.0)/(n+1.0);
+        double[][] rows = ScratchRows.get(2, m+1);
+        double[] previous = rows[0];
+        double[] current = rows[1];
+        // row 0 holds cells 1-width...width-1, as does ApproxMemoMatrix
+        int previousLo = Math.max(0, 1-width);
+        int previousHi = Math.min(m, width-1);
+        for (int j=previousLo; j<=previousHi; j++) previous[j] = -j*gapCost;
+        for (int i=1; i<=n; i++) {
+            int diagForI = (int)Math.round( i*scale );
+            int lo = Math.max(0, diagForI-width+1);
+            int hi = Math.min(m, diagForI+width-1);
+            char si = s.charAt(i-1);
+            for (int j=lo; j<=hi; j++) {
+                if (j==0) {
+                    current[j] = -i*gapCost;
+                    continue;
+                }
+                // cells off the diagonal band hold the matrix's default value
+                double diagonal = j-1>=previousLo && j-1<=previousHi ? previous[j-1] : -Double.MAX_VALUE;
+                double above = j>=previousLo && j<=previousHi ? previous[j] : -Double.MAX_VALUE;
+                double left = j-1>=lo ? current[j-1] : -Double.MAX_VALUE;
+                current[j] = MemoMatrix.max3( diagonal + charMatchScore.matchScore( si, t.charAt(j-1) ),
+                                              above - gapCost,
+                                              left - gapCost );
+            }
+            double[] swap = previous;
+            previous = current;
+            current = swap;
+            previousLo = lo;
+            previousHi = hi;
+        }
+        return m>=previousLo && m<=previousHi ? previous[m] : -Double.MAX_VALUE;
+    }
+
+    private MyMatrix filledMatrix(StringWrapper s,StringWrapper t) {
+        MyMatrix mat = new MyMatrix( s, t );
         // fill matrix forward to prevent deep recursion
         for (int i=1; i<=s.length(); i++) {
             int j = (int)Math.round(i * mat.getScale());
@@ -34,11 +82,13 @@ public class ApproxNeedlemanWunsch extends AbstractStringDistance
                 double forceComputatationHere = mat.get( i, j);                
             }
         }
-        return mat.get(s.length(), t.length() );
+        return mat;
     }
 	
     public String explainScore(StringWrapper s,StringWrapper t) {
         mat = new MyMatrix( s, t );
+        matS = s;
+        matT = t;
         double d = mat.get(s.length(), t.length() );
         mat.setPrintNegativeValues(true);
         return mat.toString() + "\nScore = "+d;
@@ -52,6 +102,7 @@ public class ApproxNeedlemanWunsch extends AbstractStringDistance
         // internally to this package, strings are indexed 1...N, so
         // we need to convert from the usual 0...N-1 Java convention
         int i = iMinusOne+1;
+        if (mat==null) mat = filledMatrix(matS, matT);
 
         int bestJ = -1;
         double bestScore = -Double.MAX_VALUE;
@@ -0,0 +1,57 @@
+package com.wcohen.ss;
+
+import serf.utils.BitParallelEditDistance;
+
+import com.wcohen.ss.api.*;
+
+/**
+ * Levenstein string distance computed by Myers' bit-vector
+ * algorithm.  Scores are the same as Levenstein's, but each
+ * character of the longer string advances 64 cells of the
+ * distance matrix per word operation.  A prepared string keeps its
+ * compiled match vectors, so it is only compiled once however often
+ * it is scored.
+ */
+
+public class BitParallelLevenstein extends AbstractStringDistance
+{
+	public BitParallelLevenstein() { }
+
+	public String toString() { return "[BitParallelLevenstein]"; }
+
+	public double score(StringWrapper s,StringWrapper t) 
+	{
+		int distance;
+		if (s instanceof PatternStringWrapper && t instanceof PatternStringWrapper) {
+			distance = BitParallelEditDistance.distance( ((PatternStringWrapper)s).pattern, ((PatternStringWrapper)t).pattern );
+		} else {
+			// case is ignored as by CharMatchScore.DIST_01
+			distance = BitParallelEditDistance.distance( s.unwrap(), t.unwrap(), true );
+		}
+		return -distance;
+	}
+
+	/** Preprocess a string by compiling its match vectors. */
+	public StringWrapper prepare(String s) {
+		return new PatternStringWrapper(s);
+	}
+
+	public String explainScore(StringWrapper s, StringWrapper t) 
+	{
+		return "distance: "+BitParallelEditDistance.distance( s.unwrap(), t.unwrap(), true )+"\nscore: "+score(s,t)+"\n";
+	}
+
+	private static class PatternStringWrapper extends BasicStringWrapper
+	{
+		private BitParallelEditDistance.Pattern pattern;
+
+		public PatternStringWrapper(String s) {
+			super(s);
+			this.pattern = BitParallelEditDistance.compile(s, true);
+		}
+	}
+
+	static public void main(String[] argv) {
+		doMain(new BitParallelLevenstein(), argv);
+	}
+}
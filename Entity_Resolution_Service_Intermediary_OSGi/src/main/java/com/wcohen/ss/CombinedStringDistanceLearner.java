@@ -302,6 +302,21 @@ public abstract class CombinedStringDistanceLearner implements StringDistanceLea
 			return explainScore(prepare(s), prepare(t));	
 		}
 
+		final public double scoreAtLeast(String s, String t, double threshold) 
+		{	
+			return score(s, t);	
+		}
+
+		final public double scoreAtLeast(StringWrapper s, StringWrapper t, double threshold) 
+		{	
+			return score(s, t);	
+		}
+
+		final public boolean matches(String s, String t, double threshold) 
+		{	
+			return score(s, t) > threshold;	
+		}
+
 		final public StringWrapper prepare(String s) 
 		{ 
 			MultiStringWrapper ms = asMultiStringWrapper(new BasicStringWrapper(s));
@@ -14,20 +14,38 @@ public class Jaro extends AbstractStringDistance
 
 	public String toString() { return "[Jaro]"; }
 
+	/** Per-thread bit sets of matched and used positions, so that
+	 * scoring does not allocate. */
+	private static final ThreadLocal<long[]> FLAGS = new ThreadLocal<long[]>() {
+		protected long[] initialValue() { return new long[8]; }
+	};
+
+	/** Score s and t, marking common characters in bit sets instead of
+	 * building the common strings and a copy of each string; the
+	 * strings are only built to explain a score.
+	 */
 	public double score(StringWrapper s,StringWrapper t) 
 	{
 		String str1 = s.unwrap();
 		String str2 = t.unwrap();
 		int halflen = halfLengthOfShorter(str1,str2);
-		String common1 = commonChars(str1, str2, halflen);
-		String common2 = commonChars(str2, str1, halflen);
-		if (common1.length()!=common2.length()) return 0;
-		if (common1.length()==0 || common2.length()==0) return 0;
-		int transpositions = transpositions(common1,common2);
+		int words1 = (str1.length()+63)>>>6;
+		int words2 = (str2.length()+63)>>>6;
+		// positions of str1 matched and of str2 used looking from str1,
+		// then of str2 matched and of str1 used looking from str2
+		int used1 = words1;
+		int matched2 = used1+words2;
+		int used2 = matched2+words2;
+		long[] flags = flags(used2+words1);
+		int common1 = commonChars(str1, str2, halflen, flags, 0, used1);
+		int common2 = commonChars(str2, str1, halflen, flags, matched2, used2);
+		if (common1!=common2) return 0;
+		if (common1==0 || common2==0) return 0;
+		int transpositions = transpositions(str1, str2, flags, 0, matched2, words1, words2);
 		double dist =
-			 ( common1.length()/((double)str1.length()) + 
-				 common2.length()/((double)str2.length()) + 
-				 (common1.length()-transpositions)/((double)common1.length()) ) / 3.0;
+			 ( common1/((double)str1.length()) + 
+				 common2/((double)str2.length()) + 
+				 (common1-transpositions)/((double)common1) ) / 3.0;
 		return dist;
 	}
 
@@ -74,6 +92,66 @@ public class Jaro extends AbstractStringDistance
 		return common.toString();
 	}
 
+	private static long[] flags(int words)
+	{
+		long[] flags = FLAGS.get();
+		if (flags.length < words) {
+			flags = new long[Math.max(words, 2*flags.length)];
+			FLAGS.set(flags);
+		}
+		for (int k=0; k<words; k++) flags[k] = 0;
+		return flags;
+	}
+
+	/** Count the characters of s found near the same place in t, as
+	 * commonChars(s,t,halflen) does, marking them in the bit set at
+	 * matched and the characters of t they use in the bit set at used.
+	 * As there, a used character of t reads as '*'.
+	 */
+	private static int commonChars(String s,String t,int halflen,long[] flags,int matched,int used) 
+	{
+		int common = 0;
+		for (int i=0; i<s.length(); i++) {
+			char ch = s.charAt(i);
+			int hi = Math.min(i+halflen,t.length());
+			for (int j=Math.max(0,i-halflen); j<hi; j++) {
+				char tj = t.charAt(j);
+				if (tj!=ch && ch!='*') continue;
+				boolean isUsed = (flags[used+(j>>>6)] & (1L<<j))!=0;
+				if (isUsed ? ch=='*' : tj==ch) {
+					flags[used+(j>>>6)] |= 1L<<j;
+					flags[matched+(i>>>6)] |= 1L<<i;
+					common++;
+					break;
+				}
+			}
+		}
+		return common;
+	}
+
+	/** Count the transpositions between the matched characters of s and
+	 * of t, taken in order, as transpositions(common1,common2) does. */
+	private static int transpositions(String s,String t,long[] flags,int matched1,int matched2,int words1,int words2)
+	{
+		int transpositions = 0;
+		int k1 = 0, k2 = 0;
+		long bits1 = words1>0 ? flags[matched1] : 0;
+		long bits2 = words2>0 ? flags[matched2] : 0;
+		while (true) {
+			while (bits1==0 && ++k1<words1) bits1 = flags[matched1+k1];
+			while (bits2==0 && ++k2<words2) bits2 = flags[matched2+k2];
+			if (bits1==0 || bits2==0) break;
+			int i = (k1<<6) + Long.numberOfTrailingZeros(bits1);
+			int j = (k2<<6) + Long.numberOfTrailingZeros(bits2);
+			if (s.charAt(i)!=t.charAt(j)) 
+				transpositions++;
+			bits1 &= bits1-1;
+			bits2 &= bits2-1;
+		}
+		transpositions /= 2;
+		return transpositions;
+	}
+
 	private int transpositions(String common1,String common2)
 	{
 		int transpositions = 0;
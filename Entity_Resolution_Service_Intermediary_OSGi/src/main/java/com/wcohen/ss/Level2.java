@@ -45,6 +45,12 @@ public class Level2 extends AbstractTokenizedStringDistance
 		return  sumOverI / sBag.size();
 	}
 	
+	/** Preprocess a string by tokenizing it, so a prepared string is
+	 * only tokenized once however often it is scored. */
+	public StringWrapper prepare(String s) {
+		return asBagOfTokens(new BasicStringWrapper(s));
+	}
+	
 	/** Explain how the distance was computed.
 	 */
 	public String explainScore(StringWrapper s, StringWrapper t) 
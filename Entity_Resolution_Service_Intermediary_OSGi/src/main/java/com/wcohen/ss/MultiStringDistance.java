@@ -80,6 +80,19 @@ public abstract class MultiStringDistance implements StringDistance
 		return score(prepare(s), prepare(t));
 	}
 	
+	/** Combined scores are always computed in full. */
+	public double scoreAtLeast(String s, String t, double threshold) {
+		return score(s, t);
+	}
+	
+	public double scoreAtLeast(StringWrapper s, StringWrapper t, double threshold) {
+		return score(s, t);
+	}
+	
+	final public boolean matches(String s, String t, double threshold) {
+		return scoreAtLeast(s, t, threshold) > threshold;
+	}
+	
 	/** Scores are explained by converting Strings to StringWrappers
 	 * with the prepare function. */
 	final public String explainScore(String s, String t) {
@@ -20,8 +20,74 @@ public class NeedlemanWunsch extends AbstractStringDistance
     }
 	
     public double score(StringWrapper s,StringWrapper t) {
-        MyMatrix mat = new MyMatrix( s, t );
-        return mat.get(s.length(), t.length() );
+        return alignmentScore(s,t);
+    }
+
+    /** Score s and t a row at a time, in two reused rows.  The matrix
+     * is only built to explain a score.
+     */
+    private double alignmentScore(StringWrapper s,StringWrapper t) {
+        int n = s.length();
+        int m = t.length();
+        double[][] rows = ScratchRows.get(2, m+1);
+        double[] previous = rows[0];
+        double[] current = rows[1];
+        for (int j=0; j<=m; j++) previous[j] = -j*gapCost;
+        for (int i=1; i<=n; i++) {
+            char si = s.charAt(i-1);
+            current[0] = -i*gapCost;
+            for (int j=1; j<=m; j++) {
+                current[j] = MemoMatrix.max3( previous[j-1] + charMatchScore.matchScore( si, t.charAt(j-1) ),
+                                              previous[j] - gapCost,
+                                              current[j-1] - gapCost );
+            }
+            double[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m];
+    }
+	
+    /** Find the score of s and t if it is at least threshold,
+     * otherwise some lower score.  With the default costs no step of
+     * an alignment raises its score, so only a band of cells around
+     * the diagonal can reach the threshold, and once a whole row is
+     * below it so is the final score.  Other costs are scored in
+     * full.
+     */
+    public double scoreAtLeast(StringWrapper s,StringWrapper t,double threshold) {
+        if (charMatchScore!=CharMatchScore.DIST_01 || gapCost<=0) {
+            return alignmentScore(s,t);
+        }
+        int n = s.length();
+        int m = t.length();
+        // cell (i,j) scores at most -|i-j|*gapCost; one wider for rounding
+        int band = (int)Math.min( Math.max(n,m), Math.floor(-threshold/gapCost) + 1 );
+        if (Math.abs(n-m) > band) return -Math.abs(n-m)*gapCost;
+        double[][] rows = ScratchRows.get(2, m+1);
+        double[] previous = rows[0];
+        double[] current = rows[1];
+        for (int j=0; j<=m; j++) {
+            previous[j] = j<=band ? -j*gapCost : Double.NEGATIVE_INFINITY;
+        }
+        for (int i=1; i<=n; i++) {
+            int from = Math.max(1, i-band);
+            int to = Math.min(m, i+band);
+            current[from-1] = from==1 && i<=band ? -i*gapCost : Double.NEGATIVE_INFINITY;
+            double rowMax = current[from-1];
+            for (int j=from; j<=to; j++) {
+                current[j] = MemoMatrix.max3( previous[j-1] + charMatchScore.matchScore( s.charAt(i-1), t.charAt(j-1) ),
+                                              previous[j] - gapCost,
+                                              current[j-1] - gapCost );
+                rowMax = Math.max(rowMax, current[j]);
+            }
+            if (to < m) current[to+1] = Double.NEGATIVE_INFINITY;
+            if (rowMax < threshold) return rowMax;
+            double[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m];
     }
 	
     public String explainScore(StringWrapper s,StringWrapper t) {
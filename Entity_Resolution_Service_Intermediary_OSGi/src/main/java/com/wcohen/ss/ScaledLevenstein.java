@@ -16,6 +16,19 @@ public class ScaledLevenstein extends Levenstein
 		return (1 + (d/n));
 	}
 	
+	/** The scaled score grows with the Levenstein score, so the
+	 * threshold is scaled back to bound that instead. */
+	public double scoreAtLeast(StringWrapper sw, StringWrapper tw, double threshold) {
+		double n = Math.max((double)sw.length(),(double)tw.length());
+		if (n==0) return score(sw,tw);
+		double rawThreshold = (threshold - 1)*n;
+		double d = super.scoreAtLeast(sw,tw,rawThreshold);
+		double scaled = 1 + (d/n);
+		// a bounded raw score that rounds up to the threshold is scored in full
+		if (d < rawThreshold && scaled >= threshold) return score(sw,tw);
+		return scaled;
+	}
+	
 	public String toString() { return "[ScaledLevenstein]"; }
 
 	static public void main(String[] argv) {
@@ -0,0 +1,36 @@
+package com.wcohen.ss;
+
+/** Reusable rows of a dynamic programming matrix, one set per
+ * thread, so that scoring a pair of strings need not allocate a
+ * matrix.  Rows are not cleared between uses, so a kernel must write
+ * every cell it reads.  No kernel scores another pair while it holds
+ * its rows.
+ */
+
+final class ScratchRows
+{
+    /** Rows longer than this are allocated per use, not kept. */
+    private static final int MAX_RETAINED_LENGTH = 4096;
+
+    private static final ThreadLocal<double[][]> ROWS = new ThreadLocal<double[][]>() {
+        protected double[][] initialValue() { return new double[0][]; }
+    };
+
+    private ScratchRows() { }
+
+    /** Get count rows of at least length cells each. */
+    static double[][] get(int count,int length) {
+        if (length > MAX_RETAINED_LENGTH) return new double[count][length];
+        double[][] rows = ROWS.get();
+        if (rows.length < count) {
+            double[][] grown = new double[count][];
+            System.arraycopy(rows, 0, grown, 0, rows.length);
+            rows = grown;
+            ROWS.set(rows);
+        }
+        for (int k=0; k<count; k++) {
+            if (rows[k]==null || rows[k].length < length) rows[k] = new double[Math.max(length, 16)];
+        }
+        return rows;
+    }
+}
@@ -20,9 +20,33 @@ public class SmithWaterman extends AbstractStringDistance
 		this.gapCost = gapCost;
 	}
 	
+	/** Score s and t a row at a time, in two reused rows, keeping the
+	 * best cell seen.  The matrix is only built to explain a score.
+	 */
 	public double score(StringWrapper s,StringWrapper t) {
-		MyMatrix mat = new MyMatrix( s, t );
-		return score(s,t,mat);
+		int n = s.length();
+		int m = t.length();
+		double[][] rows = ScratchRows.get(2, m+1);
+		double[] previous = rows[0];
+		double[] current = rows[1];
+		// the first row and column are all 0, and so at least the best
+		double best = 0;
+		for (int j=0; j<=m; j++) previous[j] = 0;
+		for (int i=1; i<=n; i++) {
+			char si = s.charAt(i-1);
+			current[0] = 0;
+			for (int j=1; j<=m; j++) {
+				current[j] = MemoMatrix.max4( 0,
+				                              previous[j-1] + charMatchScore.matchScore( si, t.charAt(j-1) ),
+				                              previous[j] - gapCost,
+				                              current[j-1] - gapCost);
+				best = Math.max( best, current[j] );
+			}
+			double[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return best;
 	}
 	
 	private double score(StringWrapper s,StringWrapper t,MyMatrix mat) {
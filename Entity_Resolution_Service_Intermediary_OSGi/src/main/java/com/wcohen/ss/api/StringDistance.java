@@ -27,6 +27,19 @@ public interface StringDistance
 	/** Find the distance between s and t */
 	public double score(String s, String t);
 	
+	/** Find the distance between s and t, if it is at least threshold.
+			If it is not, some value below threshold is returned instead,
+			so a distance can give up as soon as it knows threshold is out
+			of reach.
+	*/
+	public double scoreAtLeast(String s, String t, double threshold);
+	
+	/** Find the distance between s and t, if it is at least threshold. */
+	public double scoreAtLeast(StringWrapper s, StringWrapper t, double threshold);
+	
+	/** Whether the distance between s and t is greater than threshold. */
+	public boolean matches(String s, String t, double threshold);
+	
 	/** Preprocess a string for distance computation */ 
 	public StringWrapper prepare(String s);
 	
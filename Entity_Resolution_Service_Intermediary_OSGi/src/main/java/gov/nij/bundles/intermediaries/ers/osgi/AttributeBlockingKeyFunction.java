@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013 SEARCH Group, Incorporated. 
+ * 
+ * See the NOTICE file distributed with  this work for additional information 
+ * regarding copyright ownership.  SEARCH Group Inc. licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not use this 
+ * file except in compliance with the License.  You may obtain a copy of the 
+ * License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nij.bundles.intermediaries.ers.osgi;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import uk.ac.shef.wit.simmetrics.similaritymetrics.NysiisEncoder;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.PhoneticEncoder;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.SoundexEncoder;
+
+/**
+ * A blocking key function that derives keys from the attributes that have a blocking key specification in their attribute parameters.
+ * Each value of each such attribute contributes one key, qualified by the attribute name so that keys from different attributes never collide.
+ *
+ */
+final class AttributeBlockingKeyFunction {
+
+    private static final int SOUNDEX_KEY_LENGTH = 4;
+
+    /**
+     * Phonetic encoders shared by all key functions, so that the codes of recurring names are computed once.
+     */
+    private static final PhoneticEncoder SOUNDEX_ENCODER = new SoundexEncoder(SOUNDEX_KEY_LENGTH);
+    private static final PhoneticEncoder NYSIIS_ENCODER = new NysiisEncoder();
+
+    private List<AttributeParameters> blockingAttributeParameters = new ArrayList<AttributeParameters>();
+
+    public AttributeBlockingKeyFunction(Set<AttributeParameters> attributeParameters) {
+        for (AttributeParameters ap : attributeParameters) {
+            if (ap.getBlockingKey() != null) {
+                blockingAttributeParameters.add(ap);
+            }
+        }
+    }
+
+    /**
+     * Whether any attribute is configured to contribute a blocking key. If not, blocking would put every record in a block of its own.
+     */
+    public boolean isBlockingConfigured() {
+        return !blockingAttributeParameters.isEmpty();
+    }
+
+    List<AttributeParameters> getBlockingAttributeParameters() {
+        return blockingAttributeParameters;
+    }
+
+    /**
+     * Get the blocking keys of a record wrapper, without converting it to a SERF record first.
+     */
+    public Set<String> getBlockingKeys(RecordWrapper rw) {
+        Set<String> ret = new HashSet<String>();
+        for (AttributeParameters ap : blockingAttributeParameters) {
+            AttributeWrapper aw = rw.getAttributes().get(ap.getAttributeName());
+            if (aw != null) {
+                addKeys(ap, aw.getValues(), ret);
+            }
+        }
+        return ret;
+    }
+
+    private static void addKeys(AttributeParameters ap, Iterable<String> values, Set<String> keys) {
+        for (String value : values) {
+            String key = computeKey(ap.getBlockingKey(), value);
+            if (key != null && key.length() > 0) {
+                keys.add(ap.getAttributeName() + ":" + key);
+            }
+        }
+    }
+
+    static String computeKey(BlockingKeySpecification spec, String value) {
+        if (value == null) {
+            return null;
+        }
+        String type = spec.getBlockingKeyType();
+        if (BlockingKeySpecification.BLOCKING_KEY_SOUNDEX.equals(type)) {
+            return SOUNDEX_ENCODER.encode(value);
+        }
+        if (BlockingKeySpecification.BLOCKING_KEY_NYSIIS.equals(type)) {
+            return NYSIIS_ENCODER.encode(value);
+        }
+        if (BlockingKeySpecification.BLOCKING_KEY_YEAR.equals(type)) {
+            return firstFourDigitRun(value);
+        }
+        String normalized = value.trim().toUpperCase();
+        if (BlockingKeySpecification.BLOCKING_KEY_PREFIX.equals(type)) {
+            return normalized.length() > spec.getKeyLength() ? normalized.substring(0, spec.getKeyLength()) : normalized;
+        }
+        if (BlockingKeySpecification.BLOCKING_KEY_EXACT.equals(type)) {
+            return normalized;
+        }
+        throw new IllegalStateException("Unknown blocking key type " + type);
+    }
+
+    private static String firstFourDigitRun(String value) {
+        int runStart = -1;
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isDigit(value.charAt(i))) {
+                if (runStart == -1) {
+                    runStart = i;
+                }
+                if (i - runStart == 3) {
+                    return value.substring(runStart, i + 1);
+                }
+            } else {
+                runStart = -1;
+            }
+        }
+        return null;
+    }
+
+}
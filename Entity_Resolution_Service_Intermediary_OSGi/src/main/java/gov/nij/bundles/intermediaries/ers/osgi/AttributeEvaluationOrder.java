@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013 SEARCH Group, Incorporated. 
+ * 
+ * See the NOTICE file distributed with  this work for additional information 
+ * regarding copyright ownership.  SEARCH Group Inc. licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not use this 
+ * file except in compliance with the License.  You may obtain a copy of the 
+ * License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nij.bundles.intermediaries.ers.osgi;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Orders the attribute comparisons of a matcher so that a pair that is going to fail is rejected as cheaply as possible. Every comparison's outcome is counted,
+ * and one pair in every SAMPLE_INTERVAL is timed. Every REORDER_INTERVAL pairs, the attributes are sorted on their expected cost per rejection (mean time divided by
+ * rejection rate), which is the order that minimizes the expected cost of a chain of independent checks. Not thread safe; each matcher has its own.
+ *
+ */
+final class AttributeEvaluationOrder {
+
+    private static final Log LOG = LogFactory.getLog(AttributeEvaluationOrder.class);
+
+    static final int SAMPLE_INTERVAL = 16;
+    static final int REORDER_INTERVAL = 256;
+
+    private int[] order;
+    private long[] evaluations;
+    private long[] rejections;
+    private long[] sampledNanos;
+    private long[] samples;
+    private long pairs;
+
+    /**
+     * @param ordinals
+     *            the ordinals to order, in their initial order
+     * @param ordinalCount
+     *            one more than the highest ordinal
+     */
+    public AttributeEvaluationOrder(int[] ordinals, int ordinalCount) {
+        order = ordinals.clone();
+        evaluations = new long[ordinalCount];
+        rejections = new long[ordinalCount];
+        sampledNanos = new long[ordinalCount];
+        samples = new long[ordinalCount];
+    }
+
+    /**
+     * The ordinals in the order they should be evaluated. The array must not be modified, and is only valid until the next call to pairDone.
+     */
+    public int[] getOrder() {
+        return order;
+    }
+
+    /**
+     * Whether the comparisons of the current pair should be timed.
+     */
+    public boolean isSampling() {
+        return pairs % SAMPLE_INTERVAL == 0;
+    }
+
+    /**
+     * Record the outcome of one attribute comparison.
+     * 
+     * @param elapsedNanos
+     *            the time the comparison took, or -1 if it was not timed
+     */
+    public void observe(int ordinal, boolean rejected, long elapsedNanos) {
+        evaluations[ordinal]++;
+        if (rejected) {
+            rejections[ordinal]++;
+        }
+        if (elapsedNanos >= 0) {
+            sampledNanos[ordinal] += elapsedNanos;
+            samples[ordinal]++;
+        }
+    }
+
+    /**
+     * Record that a pair has been decided, and reorder the attributes if it is time to.
+     */
+    public void pairDone() {
+        pairs++;
+        if (pairs % REORDER_INTERVAL == 0) {
+            reorder();
+        }
+    }
+
+    /**
+     * The expected time spent on the attribute per pair it rejects. Attributes that have not been timed yet count as cheap, and rejection rates are smoothed, so
+     * that attributes with few observations are neither favored nor written off.
+     */
+    double costPerRejection(int ordinal) {
+        double cost = samples[ordinal] == 0 ? 1.0 : 1.0 + (double) sampledNanos[ordinal] / samples[ordinal];
+        double rejectionRate = (rejections[ordinal] + 1.0) / (evaluations[ordinal] + 2.0);
+        return cost / rejectionRate;
+    }
+
+    private void reorder() {
+        final double[] keys = new double[evaluations.length];
+        Integer[] boxed = new Integer[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[order[i]] = costPerRejection(order[i]);
+            boxed[i] = order[i];
+        }
+        // a stable sort, so attributes with equal costs keep their current order
+        Arrays.sort(boxed, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Double.compare(keys[o1], keys[o2]);
+            }
+        });
+        int[] newOrder = new int[order.length];
+        for (int i = 0; i < newOrder.length; i++) {
+            newOrder[i] = boxed[i];
+        }
+        if (LOG.isDebugEnabled() && !Arrays.equals(order, newOrder)) {
+            LOG.debug("Reordered attribute comparisons from " + Arrays.toString(order) + " to " + Arrays.toString(newOrder));
+        }
+        order = newOrder;
+    }
+
+}
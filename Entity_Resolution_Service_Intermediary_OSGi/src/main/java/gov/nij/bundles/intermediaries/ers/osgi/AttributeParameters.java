@@ -33,6 +33,7 @@ public class AttributeParameters implements Serializable {
 	private double threshold;
 	private boolean determinative;
 	private SortOrderSpecification sortOrder;
+	private BlockingKeySpecification blockingKey;
 
 	public SortOrderSpecification getSortOrder() {
         return sortOrder;
@@ -42,6 +43,18 @@ public class AttributeParameters implements Serializable {
         this.sortOrder = sortOrder;
     }
 
+    /**
+     * The blocking key derived from this attribute, or null if this attribute does not contribute a blocking key.
+     * @return the blocking key specification
+     */
+    public BlockingKeySpecification getBlockingKey() {
+        return blockingKey;
+    }
+
+    public void setBlockingKey(BlockingKeySpecification blockingKey) {
+        this.blockingKey = blockingKey;
+    }
+
     /**
      * Create an instance for an attribute with the specified name.
      * @param attributeName
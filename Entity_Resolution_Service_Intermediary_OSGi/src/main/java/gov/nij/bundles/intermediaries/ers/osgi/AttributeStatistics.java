@@ -26,6 +26,7 @@ public class AttributeStatistics {
 	private String attributeName;
 	private double averageStringDistance;
 	private double standardDeviationStringDistance;
+	private long observationCount;
 	
 	public AttributeStatistics(String attributeName)
 	{
@@ -49,6 +50,17 @@ public class AttributeStatistics {
 		this.standardDeviationStringDistance = standardDeviationStringDistance;
 	}
 
+	/**
+	 * The number of string distance scores behind the average and standard deviation, i.e. the number of merges that involved the attribute
+	 */
+	public long getObservationCount() {
+		return observationCount;
+	}
+
+	public void setObservationCount(long observationCount) {
+		this.observationCount = observationCount;
+	}
+
 	public String getAttributeName() {
 		return attributeName;
 	}
@@ -68,7 +80,7 @@ public class AttributeStatistics {
 	public String toString() {
 		return super.toString() + ": [attributeName=" + attributeName
 				+ ", averageStringDistance=" + averageStringDistance + ", standardDeviationStringDistance="
-				+ standardDeviationStringDistance + "]";
+				+ standardDeviationStringDistance + ", observationCount=" + observationCount + "]";
 	}
 
 }
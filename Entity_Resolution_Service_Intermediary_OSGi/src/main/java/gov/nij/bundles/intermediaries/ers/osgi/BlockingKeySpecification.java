@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 SEARCH Group, Incorporated. 
+ * 
+ * See the NOTICE file distributed with  this work for additional information 
+ * regarding copyright ownership.  SEARCH Group Inc. licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not use this 
+ * file except in compliance with the License.  You may obtain a copy of the 
+ * License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nij.bundles.intermediaries.ers.osgi;
+
+import java.io.Serializable;
+
+/**
+ * A simple POJO describing how a blocking key is derived from the values of an attribute.  Records are only compared with
+ * records that share at least one blocking key with them, so blocking keys should be coarse enough that true matches still share one.
+ *
+ */
+public class BlockingKeySpecification implements Serializable {
+
+    /**
+     * The key is the (trimmed, upper-cased) attribute value itself
+     */
+    public static final String BLOCKING_KEY_EXACT = "exact";
+    /**
+     * The key is the first keyLength characters of the (trimmed, upper-cased) attribute value
+     */
+    public static final String BLOCKING_KEY_PREFIX = "prefix";
+    /**
+     * The key is the Soundex code of the attribute value
+     */
+    public static final String BLOCKING_KEY_SOUNDEX = "soundex";
+    /**
+     * The key is the NYSIIS code of the attribute value
+     */
+    public static final String BLOCKING_KEY_NYSIIS = "nysiis";
+    /**
+     * The key is the first four digits of the first run of four or more digits in the attribute value, e.g. the year of a date of birth
+     */
+    public static final String BLOCKING_KEY_YEAR = "year";
+
+    public static final int DEFAULT_KEY_LENGTH = 3;
+
+    private static final long serialVersionUID = 5391608813487542245L;
+
+    private String blockingKeyType;
+    private int keyLength = DEFAULT_KEY_LENGTH;
+
+    public BlockingKeySpecification() {
+        super();
+    }
+
+    public BlockingKeySpecification(String blockingKeyType) {
+        this.blockingKeyType = blockingKeyType;
+        if (!(BLOCKING_KEY_EXACT.equals(blockingKeyType) || BLOCKING_KEY_PREFIX.equals(blockingKeyType) || BLOCKING_KEY_SOUNDEX.equals(blockingKeyType)
+                || BLOCKING_KEY_NYSIIS.equals(blockingKeyType) || BLOCKING_KEY_YEAR.equals(blockingKeyType))) {
+            throw new IllegalArgumentException("Blocking key type must be one of " + BLOCKING_KEY_EXACT + ", " + BLOCKING_KEY_PREFIX + ", " + BLOCKING_KEY_SOUNDEX + ", "
+                    + BLOCKING_KEY_NYSIIS + " or " + BLOCKING_KEY_YEAR + ", not " + blockingKeyType);
+        }
+    }
+
+    public BlockingKeySpecification(String blockingKeyType, int keyLength) {
+        this(blockingKeyType);
+        this.keyLength = keyLength;
+    }
+
+    public String getBlockingKeyType() {
+        return blockingKeyType;
+    }
+
+    public void setBlockingKeyType(String blockingKeyType) {
+        this.blockingKeyType = blockingKeyType;
+    }
+
+    /**
+     * The number of leading characters used by a prefix key
+     * @return the key length
+     */
+    public int getKeyLength() {
+        return keyLength;
+    }
+
+    public void setKeyLength(int keyLength) {
+        this.keyLength = keyLength;
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2013 SEARCH Group, Incorporated. 
+ * 
+ * See the NOTICE file distributed with  this work for additional information 
+ * regarding copyright ownership.  SEARCH Group Inc. licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not use this 
+ * file except in compliance with the License.  You may obtain a copy of the 
+ * License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nij.bundles.intermediaries.ers.osgi;
+
+/**
+ * Receives the entities from a streaming resolution, one block at a time, as each block is resolved.
+ *
+ */
+public interface EntityResolutionCallback {
+
+    /**
+     * Called once per block, in input order, when the block has been closed and resolved. The entities of a block are final: no later record can merge with them.
+     * 
+     * @param blockResults
+     *            the merged records of the block, and their statistics
+     * @throws Exception
+     *             to abort the resolution; the exception propagates to the caller of the streaming resolution
+     */
+    void entitiesResolved(EntityResolutionResults blockResults) throws Exception;
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013 SEARCH Group, Incorporated. 
+ * 
+ * See the NOTICE file distributed with  this work for additional information 
+ * regarding copyright ownership.  SEARCH Group Inc. licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not use this 
+ * file except in compliance with the License.  You may obtain a copy of the 
+ * License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nij.bundles.intermediaries.ers.osgi;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A simple POJO holding the settings that control a resolution run as a whole, as opposed to the per-attribute settings in AttributeParameters.
+ *
+ */
+public class EntityResolutionConfiguration implements Serializable {
+
+    /**
+     * Resolve with RSwoosh, which compares every merged record again against the records resolved so far. This is the reference engine.
+     */
+    public static final String ENGINE_RSWOOSH = "RSwoosh";
+    /**
+     * Resolve by scoring each candidate pair of input records once and merging the connected components of the resulting match graph. This makes at most n(n-1)/2
+     * match calls per block, but matches are only found between input records, never between a merged record and another record. A match that would put two
+     * different values of a determinative attribute into one entity is refused, as RSwoosh would refuse it.
+     */
+    public static final String ENGINE_MATCH_GRAPH = "MatchGraph";
+    /**
+     * Resolve with the sorted neighborhood method: for each sort key, sort the records and compare each only with its neighbors within a sliding window. This makes
+     * at most n(w-1) match calls per key, at the cost of missing matches that no key sorts close together.
+     */
+    public static final String ENGINE_SORTED_NEIGHBORHOOD = "SortedNeighborhood";
+
+    public static final int DEFAULT_WINDOW_SIZE = 10;
+
+    private static final long serialVersionUID = -6104417405826893217L;
+
+    private int recordLimit = Integer.MAX_VALUE;
+    private String engine = ENGINE_RSWOOSH;
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+    private List<String> sortKeyAttributeNames = new ArrayList<String>();
+    private long timeBudgetMillis;
+
+    public EntityResolutionConfiguration() {
+        super();
+    }
+
+    public EntityResolutionConfiguration(int recordLimit) {
+        this.recordLimit = recordLimit;
+    }
+
+    /**
+     * If the number of input records is greater than this, entity resolution will not be performed, unless there is a time budget
+     * @return the record limit
+     */
+    public int getRecordLimit() {
+        return recordLimit;
+    }
+
+    public void setRecordLimit(int recordLimit) {
+        this.recordLimit = recordLimit;
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public void setEngine(String engine) {
+        if (!(ENGINE_RSWOOSH.equals(engine) || ENGINE_MATCH_GRAPH.equals(engine) || ENGINE_SORTED_NEIGHBORHOOD.equals(engine))) {
+            throw new IllegalArgumentException("Engine must be " + ENGINE_RSWOOSH + ", " + ENGINE_MATCH_GRAPH + " or " + ENGINE_SORTED_NEIGHBORHOOD + ", not " + engine);
+        }
+        this.engine = engine;
+    }
+
+    /**
+     * The number of consecutive records compared with each other by the sorted neighborhood engine
+     * @return the window size
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        if (windowSize < 2) {
+            throw new IllegalArgumentException("Window size must be at least 2, not " + windowSize);
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * The attributes the sorted neighborhood engine sorts by, one pass per attribute. If empty, there is one pass for each attribute with a sort order
+     * specification, in rank order, or one pass per attribute if none has a sort order specification.
+     * @return the sort key attribute names
+     */
+    public List<String> getSortKeyAttributeNames() {
+        return sortKeyAttributeNames;
+    }
+
+    public void setSortKeyAttributeNames(List<String> sortKeyAttributeNames) {
+        this.sortKeyAttributeNames = sortKeyAttributeNames;
+    }
+
+    /**
+     * The time allowed for resolution, in milliseconds, or zero for no limit. With a time budget, the record limit does not apply, and the configured engine
+     * checks the clock as it goes, stopping once the time runs out: the match graph engine evaluates the pairs most likely to match (those sharing determinative or
+     * other exact values) first, RSwoosh stops taking new records, and the sorted neighborhood engine stops sliding its window. A budget only limits the work
+     * done, never what counts as a match. When the time runs out, the results reflect the work done so far; see EntityResolutionResults.getFractionOfPairsEvaluated.
+     * @return the time budget
+     */
+    public long getTimeBudgetMillis() {
+        return timeBudgetMillis;
+    }
+
+    public void setTimeBudgetMillis(long timeBudgetMillis) {
+        if (timeBudgetMillis < 0) {
+            throw new IllegalArgumentException("Time budget must not be negative, not " + timeBudgetMillis);
+        }
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+}
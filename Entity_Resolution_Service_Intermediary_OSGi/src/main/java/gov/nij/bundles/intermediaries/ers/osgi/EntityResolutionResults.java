@@ -30,18 +30,34 @@ public class EntityResolutionResults {
 	private List<RecordWrapper> records;
 	private Map<String, Set<AttributeStatistics>> statistics;
 	private boolean recordLimitExceeded;
+	private double fractionOfPairsEvaluated;
 	
 	public EntityResolutionResults(List<RecordWrapper> records,
 			Map<String, Set<AttributeStatistics>> statistics, boolean recordLimitExceeded) {
+		this(records, statistics, recordLimitExceeded, 1.0);
+	}
+
+	public EntityResolutionResults(List<RecordWrapper> records,
+			Map<String, Set<AttributeStatistics>> statistics, boolean recordLimitExceeded, double fractionOfPairsEvaluated) {
 		this.records = records;
         this.statistics = statistics;
         this.recordLimitExceeded = recordLimitExceeded;
+        this.fractionOfPairsEvaluated = fractionOfPairsEvaluated;
 	}
 
 	public boolean isRecordLimitExceeded() {
         return recordLimitExceeded;
     }
 
+    /**
+     * The fraction of the candidate pairs of records that were evaluated. This is less than 1 only when the time budget ran out, in which case the records are a
+     * partial resolution: pairs that were never evaluated may still belong to the same entity.
+     * @return the fraction, between 0 and 1
+     */
+    public double getFractionOfPairsEvaluated() {
+        return fractionOfPairsEvaluated;
+    }
+
     public List<RecordWrapper> getRecords() {
 		return records;
 	}
@@ -29,15 +29,22 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import serf.data.Attribute;
 import serf.data.BasicMatcherMerger;
-import serf.data.ExistentialBooleanComparator;
+import serf.data.DeterminativeMatcher;
 import serf.data.Record;
+import serf.data.ScoreMemo;
+import serf.deduplication.MatchGraph;
+import serf.deduplication.PairBudget;
 import serf.deduplication.RSwoosh;
+import serf.deduplication.SortedNeighborhood;
+import serf.utils.RunningStatistics;
 
 /**
  * An OSGi service that provides the ability to resolve "entities". The interface closely follows the Stanford SERF toolkit.
@@ -47,6 +54,11 @@ public class EntityResolutionService {
 
     private static final Log LOG = LogFactory.getLog(EntityResolutionService.class);
 
+    // splitting the blocks into a few more tasks than threads evens out blocks of very different sizes
+    private static final int BLOCK_TASKS_PER_THREAD = 4;
+
+    private ForkJoinPool forkJoinPool;
+
     /**
      * Resolve a set of entities.
      * 
@@ -74,23 +86,141 @@ public class EntityResolutionService {
      * @throws Exception
      */
     public EntityResolutionResults resolveEntities(List<RecordWrapper> recordWrappers, Set<AttributeParameters> attributeParameters, int recordLimit) throws Exception {
+        return resolveEntities(recordWrappers, attributeParameters, new EntityResolutionConfiguration(recordLimit));
+    }
+
+    /**
+     * Resolve a set of entities.
+     * 
+     * @param records
+     *            The input records, in an enhanced SERF structure
+     * @param attributeParameters
+     *            The information needed to control the resolution (algorithm, merge threshold, determinativeness)
+     * @param configuration
+     *            Settings for the resolution run as a whole (record limit, resolution engine)
+     * @return A set of records with merged entities and a set of statistics for the merge
+     * @throws Exception
+     */
+    public EntityResolutionResults resolveEntities(List<RecordWrapper> recordWrappers, Set<AttributeParameters> attributeParameters, EntityResolutionConfiguration configuration)
+            throws Exception {
+        EntityResolutionResults noResolvedResults = new EntityResolutionResults(new ArrayList<RecordWrapper>(), new HashMap<String, Set<AttributeStatistics>>(), false);
+        return resolveEntitiesAgainst(noResolvedResults, recordWrappers, attributeParameters, configuration);
+    }
+
+    /**
+     * Resolve new records against the entities from an earlier resolution. The earlier entities are not compared with each other again, so the cost of resolution
+     * depends on the number of new records rather than on the size of the whole set. With blocking configured, blocks that contain no new records are passed through
+     * untouched. If the earlier resolution exceeded its record limit (so its records were never resolved), or ran out of time (so its entities may still match each
+     * other), all the records are resolved from scratch.
+     * 
+     * @param resolvedResults
+     *            The results of an earlier resolution, with the same attribute parameters
+     * @param recordWrappers
+     *            The new input records
+     * @param attributeParameters
+     *            The information needed to control the resolution (algorithm, merge threshold, determinativeness)
+     * @param configuration
+     *            Settings for the resolution run as a whole; the record limit applies to the earlier entities and the new records together
+     * @return A set of records with the merged entities from both the earlier results and the new records, and a set of statistics for the merge
+     * @throws Exception
+     */
+    public EntityResolutionResults resolveEntities(EntityResolutionResults resolvedResults, List<RecordWrapper> recordWrappers, Set<AttributeParameters> attributeParameters,
+            EntityResolutionConfiguration configuration) throws Exception {
+        if (resolvedResults.isRecordLimitExceeded() || resolvedResults.getFractionOfPairsEvaluated() < 1.0) {
+            List<RecordWrapper> allRecordWrappers = new ArrayList<RecordWrapper>(resolvedResults.getRecords());
+            allRecordWrappers.addAll(recordWrappers);
+            return resolveEntities(allRecordWrappers, attributeParameters, configuration);
+        }
+        return resolveEntitiesAgainst(resolvedResults, recordWrappers, attributeParameters, configuration);
+    }
+
+    /**
+     * Resolve a stream of records in bounded memory. Only the currently open block is held: the records must arrive grouped by block (for instance sorted on the
+     * blocking key), and a record that shares no blocking key with the open block closes it. A closed block is resolved and its entities are passed to the
+     * callback before the next record is read, so entities never span two blocks. The record limit and time budget apply to each block separately.
+     * 
+     * @param records
+     *            The input records, grouped by block
+     * @param attributeParameters
+     *            The information needed to control the resolution; at least one attribute must specify a blocking key
+     * @param configuration
+     *            Settings for the resolution of each block
+     * @param callback
+     *            Receives the entities of each block as soon as the block has been resolved
+     * @return The number of blocks resolved
+     * @throws Exception
+     */
+    public int resolveEntities(Iterator<RecordWrapper> records, Set<AttributeParameters> attributeParameters, EntityResolutionConfiguration configuration,
+            EntityResolutionCallback callback) throws Exception {
+        AttributeBlockingKeyFunction blockingKeyFunction = new AttributeBlockingKeyFunction(attributeParameters);
+        if (!blockingKeyFunction.isBlockingConfigured()) {
+            throw new IllegalArgumentException("Streaming resolution requires a blocking key on at least one attribute, otherwise the whole stream is a single block");
+        }
+        EntityResolutionResults noResolvedResults = new EntityResolutionResults(new ArrayList<RecordWrapper>(), new HashMap<String, Set<AttributeStatistics>>(), false);
+        List<RecordWrapper> block = new ArrayList<RecordWrapper>();
+        Set<String> blockKeys = new HashSet<String>();
+        int ret = 0;
+        while (records.hasNext()) {
+            RecordWrapper rw = records.next();
+            Set<String> keys = blockingKeyFunction.getBlockingKeys(rw);
+            if (!block.isEmpty() && Collections.disjoint(blockKeys, keys)) {
+                callback.entitiesResolved(resolveEntitiesAgainst(noResolvedResults, block, attributeParameters, configuration));
+                ret++;
+                block = new ArrayList<RecordWrapper>();
+                blockKeys.clear();
+            }
+            block.add(rw);
+            blockKeys.addAll(keys);
+        }
+        if (!block.isEmpty()) {
+            callback.entitiesResolved(resolveEntitiesAgainst(noResolvedResults, block, attributeParameters, configuration));
+            ret++;
+        }
+        return ret;
+    }
+
+    private EntityResolutionResults resolveEntitiesAgainst(EntityResolutionResults resolvedResults, List<RecordWrapper> recordWrappers,
+            Set<AttributeParameters> attributeParameters, EntityResolutionConfiguration configuration) throws Exception {
+
+        List<RecordWrapper> resolvedRecordWrappers = resolvedResults.getRecords();
 
         verifyProperSortConfig(attributeParameters);
 
+        int recordLimit = configuration.getRecordLimit();
+        // a time budget bounds the work directly, so it takes the place of the record limit
+        PairBudget budget = configuration.getTimeBudgetMillis() > 0 ? new PairBudget(configuration.getTimeBudgetMillis()) : null;
+
         List<ExternallyIdentifiableRecord> returnRecordList = null;
         boolean recordLimitExceeded = false;
+        double fractionOfPairsEvaluated = 1.0;
 
-        if (recordWrappers.size() <= recordLimit) {
+        if (budget != null || resolvedRecordWrappers.size() + recordWrappers.size() <= recordLimit) {
 
             ERSMatcherMerger matcherMerger = new ERSMatcherMerger();
             matcherMerger.init(attributeParameters);
             LOG.debug("In resolveEntities, recordWrappers=" + recordWrappers);
-            Set<Record> inputRecords = new HashSet<Record>();
-            List<ExternallyIdentifiableRecord> records = EntityResolutionConversionUtils.convertRecordWrappers(recordWrappers);
 
-            inputRecords.addAll(records);
-            
-            Set<Record> rSwooshMerged = RSwoosh.execute(matcherMerger, inputRecords);
+            // the resolved records go in first, so that every record index below resolvedCount is a resolved record
+            RecordStore store = new RecordStore();
+            for (RecordWrapper rw : resolvedRecordWrappers) {
+                int record = store.add(rw);
+                // carry the earlier entities' statistics forward, so that further merges add to them rather than starting over
+                Set<AttributeStatistics> statSet = resolvedResults.getStatisticsForRecord(rw.getExternalId());
+                if (statSet != null) {
+                    store.setAttributeStatistics(record, toRunningStatistics(statSet));
+                }
+            }
+            int resolvedCount = store.size();
+            store.addAll(recordWrappers);
+
+            Set<Record> rSwooshMerged = resolve(matcherMerger, store, resolvedCount, attributeParameters, configuration, budget);
+            if (budget != null) {
+                fractionOfPairsEvaluated = budget.getFractionEvaluated();
+                if (fractionOfPairsEvaluated < 1.0) {
+                    LOG.warn("Time budget of " + configuration.getTimeBudgetMillis() + "ms expired after evaluating " + fractionOfPairsEvaluated
+                            + " of the candidate pairs, returning a partial resolution");
+                }
+            }
 
             LOG.debug("In resolveEntities, merged records from RSwoosh=" + rSwooshMerged);
             Set<ExternallyIdentifiableRecord> returnRecords = new HashSet<ExternallyIdentifiableRecord>();
@@ -105,7 +235,8 @@ public class EntityResolutionService {
             returnRecordList.addAll(returnRecords);
 
         } else {
-            returnRecordList = EntityResolutionConversionUtils.convertRecordWrappers(recordWrappers);
+            returnRecordList = EntityResolutionConversionUtils.convertRecordWrappers(resolvedRecordWrappers);
+            returnRecordList.addAll(EntityResolutionConversionUtils.convertRecordWrappers(recordWrappers));
             recordLimitExceeded = true;
         }
 
@@ -113,10 +244,121 @@ public class EntityResolutionService {
 
         LOG.debug("In resolveEntities, returnRecords combining DF and RSwoosh=" + returnRecordList);
         Map<String, Set<AttributeStatistics>> statistics = computeStatistics(returnRecordList, attributeParameters);
-        EntityResolutionResults ret = new EntityResolutionResults(EntityResolutionConversionUtils.convertRecords(returnRecordList), statistics, recordLimitExceeded);
+        EntityResolutionResults ret = new EntityResolutionResults(EntityResolutionConversionUtils.convertRecords(returnRecordList), statistics, recordLimitExceeded,
+                fractionOfPairsEvaluated);
+        return ret;
+    }
+
+    /**
+     * Run the resolution engine over the input records. If any of the attribute parameters specify a blocking key, the records are first partitioned into blocks of
+     * records that share a blocking key (directly, or through other records in the block), and the engine is run within each block, so records in different blocks
+     * are never compared. If a fork/join pool has been set, the blocks are resolved concurrently on that pool. Records already resolved (those with an index in the
+     * store below resolvedCount) are only compared with input records (and records merged from them). Blocking works on the store's value ids, and the records of
+     * each block are only materialized when that block is resolved. If there is a time budget, each block is resolved by the configured engine
+     * within what is left of it.
+     */
+    private Set<Record> resolve(ERSMatcherMerger matcherMerger, RecordStore store, int resolvedCount, Set<AttributeParameters> attributeParameters,
+            EntityResolutionConfiguration configuration, PairBudget budget) {
+        AttributeBlockingKeyFunction blockingKeyFunction = new AttributeBlockingKeyFunction(attributeParameters);
+        List<int[]> blocks;
+        if (blockingKeyFunction.isBlockingConfigured()) {
+            blocks = store.partition(blockingKeyFunction);
+            LOG.debug("In resolve, " + store.size() + " records partitioned into " + blocks.size() + " blocks");
+        } else {
+            int[] allRecords = new int[store.size()];
+            for (int i = 0; i < allRecords.length; i++) {
+                allRecords[i] = i;
+            }
+            blocks = Collections.singletonList(allRecords);
+        }
+        List<Set<Record>> blockResults = new ArrayList<Set<Record>>(Collections.<Set<Record>> nCopies(blocks.size(), null));
+        if (forkJoinPool == null || blocks.size() < 2) {
+            resolveBlocks(matcherMerger, store, resolvedCount, blocks, blockResults, 0, blocks.size(), configuration, budget);
+        } else {
+            int leafSize = Math.max(1, blocks.size() / (forkJoinPool.getParallelism() * BLOCK_TASKS_PER_THREAD));
+            forkJoinPool.invoke(new BlockResolutionTask(attributeParameters, store, resolvedCount, blocks, blockResults, 0, blocks.size(), leafSize, configuration,
+                    budget));
+        }
+        // the results are collected in block order, so that the parallel and sequential runs produce identical output
+        Set<Record> ret = new HashSet<Record>();
+        for (Set<Record> blockResult : blockResults) {
+            ret.addAll(blockResult);
+        }
+        return ret;
+    }
+
+    private static void resolveBlocks(ERSMatcherMerger matcherMerger, RecordStore store, int resolvedCount, List<int[]> blocks, List<Set<Record>> blockResults,
+            int from, int to, EntityResolutionConfiguration configuration, PairBudget budget) {
+        for (int i = from; i < to; i++) {
+            Set<Record> resolvedBlock = new HashSet<Record>();
+            Set<Record> inputBlock = new HashSet<Record>();
+            for (int record : blocks.get(i)) {
+                (record < resolvedCount ? resolvedBlock : inputBlock).add(store.toRecord(record));
+            }
+            blockResults.set(i, resolveBlock(matcherMerger, resolvedBlock, inputBlock, configuration, budget));
+        }
+    }
+
+    private static Set<Record> resolveBlock(ERSMatcherMerger matcherMerger, Set<Record> resolvedBlock, Set<Record> inputBlock, EntityResolutionConfiguration configuration,
+            PairBudget budget) {
+        if (inputBlock.isEmpty() || (resolvedBlock.isEmpty() && inputBlock.size() == 1)) {
+            Set<Record> ret = new HashSet<Record>(resolvedBlock);
+            ret.addAll(inputBlock);
+            return ret;
+        }
+        String engine = configuration.getEngine();
+        if (EntityResolutionConfiguration.ENGINE_MATCH_GRAPH.equals(engine)) {
+            return budget == null ? MatchGraph.execute(matcherMerger, resolvedBlock, inputBlock) : MatchGraph.execute(matcherMerger, resolvedBlock, inputBlock, budget);
+        }
+        if (EntityResolutionConfiguration.ENGINE_SORTED_NEIGHBORHOOD.equals(engine)) {
+            return SortedNeighborhood.execute(matcherMerger, resolvedBlock, inputBlock, createSortKeyPasses(configuration, matcherMerger.attributeParameters),
+                    configuration.getWindowSize(), budget);
+        }
+        return RSwoosh.execute(matcherMerger, resolvedBlock, inputBlock, budget);
+    }
+
+    /**
+     * Create one sort key comparator per sorted neighborhood pass, from the configured sort key attributes, or failing those from the attributes with sort order
+     * specifications (in rank order), or failing those from all the attributes.
+     */
+    private static List<Comparator<Record>> createSortKeyPasses(EntityResolutionConfiguration configuration, Set<AttributeParameters> attributeParameters) {
+        List<String> attributeNames = new ArrayList<String>(configuration.getSortKeyAttributeNames());
+        if (attributeNames.isEmpty()) {
+            List<AttributeParameters> rankedAttributeParameters = new ArrayList<AttributeParameters>();
+            for (AttributeParameters ap : attributeParameters) {
+                if (ap.getSortOrder() != null) {
+                    rankedAttributeParameters.add(ap);
+                }
+            }
+            if (rankedAttributeParameters.isEmpty()) {
+                rankedAttributeParameters.addAll(attributeParameters);
+            }
+            Collections.sort(rankedAttributeParameters, new RecordComparator.AttributeParametersComparator());
+            for (AttributeParameters ap : rankedAttributeParameters) {
+                attributeNames.add(ap.getAttributeName());
+            }
+        }
+        List<Comparator<Record>> ret = new ArrayList<Comparator<Record>>();
+        for (String attributeName : attributeNames) {
+            ret.add(new SortKeyComparator(attributeName));
+        }
         return ret;
     }
 
+    /**
+     * Set the pool used to resolve independent blocks concurrently. If null (the default), or if no blocking keys are configured, resolution runs on the calling thread.
+     * 
+     * @param forkJoinPool
+     *            the pool
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
     private void verifyProperSortConfig(Set<AttributeParameters> attributeParameters) {
         Set<Integer> ranks = new HashSet<Integer>();
         for (AttributeParameters ap : attributeParameters) {
@@ -131,52 +373,46 @@ public class EntityResolutionService {
         }
     }
 
+    /**
+     * Report the statistics each record accumulated as it was merged. The statistics are gathered by the matcher/merger as records are merged (one string distance
+     * score per matching attribute per merge), so every original record folded into an entity is accounted for, even where its values duplicate values already in the
+     * entity. Records that were never merged report zeros.
+     */
     private Map<String, Set<AttributeStatistics>> computeStatistics(List<ExternallyIdentifiableRecord> records, Set<AttributeParameters> attributeParameters) {
-        // the reason we do this after the fact, rather than computing the
-        // statistics as we go, is to leave the RSwoosh implementation
-        // from SERF as intact as possible. Since it does not compute stats, we
-        // do so in a second pass after the fact.
         Map<String, Set<AttributeStatistics>> ret = new HashMap<String, Set<AttributeStatistics>>();
         for (ExternallyIdentifiableRecord record : records) {
             Set<AttributeStatistics> statSet = new HashSet<AttributeStatistics>();
             ret.put(record.getExternalId(), statSet);
+            Map<String, RunningStatistics> recordStatistics = record.getAttributeStatistics();
             for (AttributeParameters ap : attributeParameters) {
-                double mean = computeMean(record, ap);
-                double sd = computeStandardDeviation(record, ap);
                 AttributeStatistics stats = new AttributeStatistics(ap.getAttributeName());
-                // note: for the initial pilot, we are returning zero for these
-                // values, because we need to re-assess what these
-                // metrics mean and do not have time to do so prior to the first
-                // federated query demo. consider this sample case.
-                // You have a record that is a merge of 10 original records, and
-                // because 9 of them had identical values for an
-                // attribute, there are only two attribute values in the
-                // resultant merged record. if we compute the mean as the
-                // mean of the pairwise distance values, we would get a very
-                // skewed measure, since it would be one distance divided by
-                // two, when in fact 10 original records were involved. So we
-                // either need to change RSwoosh to keep track of stats
-                // as we go, or else come up with some other "quality" measure
-                // that accounts for attribute value merging.
-                stats.setAverageStringDistance(mean);
-                stats.setStandardDeviationStringDistance(sd);
+                RunningStatistics rs = recordStatistics.get(ap.getAttributeName());
+                if (rs != null) {
+                    stats.setAverageStringDistance(rs.getMean());
+                    stats.setStandardDeviationStringDistance(rs.getStandardDeviation());
+                    stats.setObservationCount(rs.getCount());
+                }
                 statSet.add(stats);
             }
         }
         return ret;
     }
 
-    private double computeStandardDeviation(ExternallyIdentifiableRecord record, AttributeParameters attributeParameters) {
-        return 0;
-    }
-
-    private double computeMean(ExternallyIdentifiableRecord record, AttributeParameters attributeParameters) {
-        return 0;
+    private static Map<String, RunningStatistics> toRunningStatistics(Set<AttributeStatistics> statSet) {
+        Map<String, RunningStatistics> ret = new HashMap<String, RunningStatistics>();
+        for (AttributeStatistics stats : statSet) {
+            if (stats.getObservationCount() > 0) {
+                ret.put(stats.getAttributeName(),
+                        new RunningStatistics(stats.getObservationCount(), stats.getAverageStringDistance(), stats.getStandardDeviationStringDistance()));
+            }
+        }
+        return ret;
     }
 
-    private static final class ERSMatcherMerger extends BasicMatcherMerger {
+    private static final class ERSMatcherMerger extends BasicMatcherMerger implements DeterminativeMatcher {
 
-        private Map<String, ExistentialBooleanComparator> comparatorMap = new HashMap<String, ExistentialBooleanComparator>();
+        private MatchPlan plan;
+        private AttributeEvaluationOrder evaluationOrder;
         private Set<AttributeParameters> attributeParameters;
 
         public ERSMatcherMerger() {
@@ -186,15 +422,68 @@ public class EntityResolutionService {
         public void init(Set<AttributeParameters> attributeParameters) throws Exception {
             this.attributeParameters = attributeParameters;
             LOG.info("Initializing ERSMatcherMerger with parameters " + attributeParameters);
-            for (AttributeParameters ap : attributeParameters) {
-                if (ap == null || ap.getAttributeName() == null || ap.getAlgorithmClassName() == null) {
-                    throw new IllegalArgumentException("AttributeParameters object has a null object.");
+            // all the comparators share one memo, so each distinct pair of values is scored at most once per algorithm for the life of this matcher
+            plan = new MatchPlan(attributeParameters, new ScoreMemo());
+            evaluationOrder = new AttributeEvaluationOrder(plan.getNonDeterminativeOrdinals(), plan.size());
+        }
+
+        @Override
+        public Set<String> getDeterminativeAttributes() {
+            return plan.getDeterminativeAttributes();
+        }
+
+        /**
+         * Merge the records, and fold the merge into the statistics of the merged record: the statistics of both records are combined, and for each attribute the
+         * string distance score of the first pair of values that match, as matching would find it, is added as one more observation. That is the pair matching
+         * scored to decide the attribute matched, so its score comes from the score memo; pairs before it are usually in the memo as below the threshold. An
+         * attribute on which the records do not match (when a determinative attribute decided the match) adds no observation.
+         */
+        @Override
+        public Record merge(Record r1, Record r2) {
+            Record ret = super.merge(r1, r2);
+            if (ret == r1) {
+                // the records were equal, so nothing was merged
+                return ret;
+            }
+            Map<String, RunningStatistics> r1Statistics = ((ExternallyIdentifiableRecord) r1).getAttributeStatistics();
+            Map<String, RunningStatistics> r2Statistics = ((ExternallyIdentifiableRecord) r2).getAttributeStatistics();
+            Map<String, RunningStatistics> statistics = new HashMap<String, RunningStatistics>();
+            for (int i = 0; i < plan.size(); i++) {
+                String attributeName = plan.getAttributeName(i);
+                RunningStatistics rs = new RunningStatistics();
+                rs.add(r1Statistics.get(attributeName));
+                rs.add(r2Statistics.get(attributeName));
+                double score = matchingScore(plan.getScorer(i), r1.getAttribute(attributeName), r2.getAttribute(attributeName));
+                if (!Double.isNaN(score)) {
+                    rs.add(score);
                 }
+                if (rs.getCount() > 0) {
+                    statistics.put(attributeName, rs);
+                }
+            }
+            ((ExternallyIdentifiableRecord) ret).setAttributeStatistics(statistics);
+            return ret;
+        }
 
-                StringDistanceScoreMatcher matcher = new StringDistanceScoreMatcher(ap.getAlgorithmClassName());
-                matcher.init(ap.getThreshold());
-                comparatorMap.put(ap.getAttributeName(), new ExistentialBooleanComparator(matcher));
+        /**
+         * @return the score of the first pair of a value of a1 and a value of a2 that match, in the order ExistentialBooleanComparator compares them, or NaN if
+         *         no pair matches
+         */
+        private double matchingScore(StringDistanceScoreMatcher scorer, Attribute a1, Attribute a2) {
+            if (a1 == null || a2 == null) {
+                return Double.NaN;
             }
+            for (String v1 : a1) {
+                for (String v2 : a2) {
+                    if (v1 != null && v2 != null) {
+                        double score = scorer.matchingScore(v1, v2);
+                        if (!Double.isNaN(score)) {
+                            return score;
+                        }
+                    }
+                }
+            }
+            return Double.NaN;
         }
 
         private static final int MATCH = 1;
@@ -203,10 +492,7 @@ public class EntityResolutionService {
 
         protected boolean matchInternal(Record r1, Record r2) {
 
-            Map<String, Attribute> r1attr = r1.getAttributes();
-            Map<String, Attribute> r2attr = r2.getAttributes();
-
-            if (!haveSameAttributes(r1attr, r2attr)) {
+            if (!plan.haveSameAttributes(r1, r2)) {
                 return false;
             }
 
@@ -214,26 +500,31 @@ public class EntityResolutionService {
 
             if (deterministicMatch == MATCH_INDETERMINATE) {
                 LOG.debug("Indeterminate result from deterministic evaluation");
-                boolean nonDeterministicAttributeExists = false;
-                for (String s1 : comparatorMap.keySet()) {
-                    Attribute a1 = r1attr.get(s1);
+                // the cheapest, most selective attributes go first, so that a failing pair is rejected as early as possible
+                int[] ordinals = evaluationOrder.getOrder();
+                boolean timed = evaluationOrder.isSampling();
+                for (int i : ordinals) {
+                    String s1 = plan.getAttributeName(i);
+                    Attribute a1 = r1.getAttribute(s1);
                     if (a1 == null) {
                         LOG.warn("Record does not contain specified attribute " + s1 + ", record=" + r1);
                     }
-                    Attribute a2 = r2attr.get(s1);
+                    Attribute a2 = r2.getAttribute(s1);
                     if (a2 == null) {
                         LOG.warn("Record does not contain specified attribute " + s1 + ", record=" + r2);
                     }
-                    if (!attributeIsDeterminative(s1)) {
-                        nonDeterministicAttributeExists = true;
-                        LOG.debug("Non deterministic match evaluation on attribute " + s1);
-                        ExistentialBooleanComparator ebc = comparatorMap.get(s1);
-                        if (!ebc.attributesMatch(a1, a2)) {
-                            LOG.debug("Attribute a1=" + a1 + " and a2=" + a2 + " do not match, thus records do not match");
-                            return false;
-                        }
+                    LOG.debug("Non deterministic match evaluation on attribute " + s1);
+                    long start = timed ? System.nanoTime() : 0;
+                    boolean attributesMatch = plan.getComparator(i).attributesMatch(a1, a2);
+                    evaluationOrder.observe(i, !attributesMatch, timed ? System.nanoTime() - start : -1);
+                    if (!attributesMatch) {
+                        LOG.debug("Attribute a1=" + a1 + " and a2=" + a2 + " do not match, thus records do not match");
+                        evaluationOrder.pairDone();
+                        return false;
                     }
                 }
+                evaluationOrder.pairDone();
+                boolean nonDeterministicAttributeExists = ordinals.length > 0;
                 LOG.debug(nonDeterministicAttributeExists ? "Records match" : "Records do not match because the deterministic factors match was indeterminate, and there were no non-deterministic attributes");
                 return nonDeterministicAttributeExists;
             }
@@ -243,27 +534,23 @@ public class EntityResolutionService {
         }
 
         private int matchDeterministicAttributes(Record r1, Record r2) {
-            Map<String, Attribute> r1attr = r1.getAttributes();
-            Map<String, Attribute> r2attr = r2.getAttributes();
             boolean r1r2PairsAllNull = true;
-            for (String s1 : comparatorMap.keySet()) {
-
-                if (attributeIsDeterminative(s1)) {
-                    
-                    LOG.debug("Evaluating deterministic attribute " + s1);
-                    
-                    Attribute a1 = r1attr.get(s1);
-                    boolean a1AllNull = attributeAllNull(a1);
-                    Attribute a2 = r2attr.get(s1);
-                    boolean a2AllNull = attributeAllNull(a2);
-
-                    if (!(a1AllNull || a2AllNull)) {
-                        if (!identical(a1, a2)) {
-                            LOG.debug("Records do not match due to unequal, non-null deterministic attributes");
-                            return NO_MATCH;
-                        }
-                        r1r2PairsAllNull = false;
+            for (int i : plan.getDeterminativeOrdinals()) {
+
+                String s1 = plan.getAttributeName(i);
+                LOG.debug("Evaluating deterministic attribute " + s1);
+
+                Attribute a1 = r1.getAttribute(s1);
+                boolean a1AllNull = attributeAllNull(a1);
+                Attribute a2 = r2.getAttribute(s1);
+                boolean a2AllNull = attributeAllNull(a2);
+
+                if (!(a1AllNull || a2AllNull)) {
+                    if (!identical(a1, a2)) {
+                        LOG.debug("Records do not match due to unequal, non-null deterministic attributes");
+                        return NO_MATCH;
                     }
+                    r1r2PairsAllNull = false;
                 }
             }
             return (r1r2PairsAllNull) ? MATCH_INDETERMINATE : MATCH;
@@ -284,15 +571,6 @@ public class EntityResolutionService {
             return ret;
         }
 
-        private boolean attributeIsDeterminative(String s1) {
-            for (AttributeParameters ap : attributeParameters) {
-                if (s1.equals(ap.getAttributeName()) && ap.isDeterminative()) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
         private boolean identical(Attribute p1, Attribute p2) {
             if (p1 == null || p2 == null)
                 return false;
@@ -319,8 +597,94 @@ public class EntityResolutionService {
             return s1 != null && s2 != null && s1.equals(s2);
         }
 
-        private boolean haveSameAttributes(Map<String, Attribute> r1attr, Map<String, Attribute> r2attr) {
-            return (r1attr == null && r2attr == null) || (r1attr.isEmpty() && r2attr.isEmpty()) || (r1attr.keySet().containsAll(r2attr.keySet()) && r2attr.keySet().containsAll(r1attr.keySet()));
+    }
+
+    /**
+     * Resolves a range of blocks, splitting the range in half until it is no larger than the leaf size. Each leaf gets its own matcher/merger, since the string
+     * distance implementations are not all safe to share between threads.
+     */
+    private static final class BlockResolutionTask extends RecursiveAction {
+
+        private static final long serialVersionUID = -3524380766451498474L;
+
+        private Set<AttributeParameters> attributeParameters;
+        private RecordStore store;
+        private int resolvedCount;
+        private List<int[]> blocks;
+        private List<Set<Record>> blockResults;
+        private int from;
+        private int to;
+        private int leafSize;
+        private EntityResolutionConfiguration configuration;
+        private PairBudget budget;
+
+        public BlockResolutionTask(Set<AttributeParameters> attributeParameters, RecordStore store, int resolvedCount, List<int[]> blocks,
+                List<Set<Record>> blockResults, int from, int to, int leafSize, EntityResolutionConfiguration configuration, PairBudget budget) {
+            this.attributeParameters = attributeParameters;
+            this.store = store;
+            this.resolvedCount = resolvedCount;
+            this.blocks = blocks;
+            this.blockResults = blockResults;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.configuration = configuration;
+            this.budget = budget;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                ERSMatcherMerger matcherMerger = new ERSMatcherMerger();
+                try {
+                    matcherMerger.init(attributeParameters);
+                } catch (Exception e) {
+                    // the same parameters have already initialized a matcher on the calling thread, so this should not happen
+                    throw new IllegalStateException("Unable to initialize matcher for block resolution", e);
+                }
+                resolveBlocks(matcherMerger, store, resolvedCount, blocks, blockResults, from, to, configuration, budget);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BlockResolutionTask(attributeParameters, store, resolvedCount, blocks, blockResults, from, middle, leafSize, configuration, budget),
+                        new BlockResolutionTask(attributeParameters, store, resolvedCount, blocks, blockResults, middle, to, leafSize, configuration, budget));
+            }
+        }
+
+    }
+
+    /**
+     * Orders records by the lowest (trimmed, upper-cased) value of an attribute, with records that have no value last. A null value is an empty key.
+     */
+    private static final class SortKeyComparator implements Comparator<Record> {
+
+        private String attributeName;
+
+        public SortKeyComparator(String attributeName) {
+            this.attributeName = attributeName;
+        }
+
+        @Override
+        public int compare(Record r1, Record r2) {
+            String k1 = sortKey(r1);
+            String k2 = sortKey(r2);
+            if (k1 == null || k2 == null) {
+                return k1 == null ? (k2 == null ? 0 : 1) : -1;
+            }
+            return k1.compareTo(k2);
+        }
+
+        private String sortKey(Record r) {
+            Attribute a = r.getAttribute(attributeName);
+            String ret = null;
+            if (a != null) {
+                for (String value : a) {
+                    String key = value == null ? "" : value.trim().toUpperCase();
+                    if (ret == null || key.compareTo(ret) < 0) {
+                        ret = key;
+                    }
+                }
+            }
+            return ret;
         }
 
     }
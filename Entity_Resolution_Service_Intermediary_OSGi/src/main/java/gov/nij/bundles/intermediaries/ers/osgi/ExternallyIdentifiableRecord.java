@@ -18,12 +18,14 @@
 package gov.nij.bundles.intermediaries.ers.osgi;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
 import serf.data.Attribute;
 import serf.data.Record;
+import serf.utils.RunningStatistics;
 
 /**
  * An extension of the SERF record structure that attaches an identifier to each record.  The identifier will generally be used
@@ -35,6 +37,10 @@ public class ExternallyIdentifiableRecord extends Record {
 	
 	private String externalId;
 	private Set<String> relatedIds;
+	private Map<String, RunningStatistics> attributeStatistics;
+	// the schema signature of the record's attributes, computed by (and only valid for) schemaPlan
+	private MatchPlan schemaPlan;
+	private long schemaSignature;
 	
 	/**
 	 * Create a record object from the specified set of attributes, with the specified external record ID
@@ -46,6 +52,7 @@ public class ExternallyIdentifiableRecord extends Record {
 		super(1.0, attributes);
 		this.externalId = externalId;
 		relatedIds = new HashSet<String>();
+		attributeStatistics = new HashMap<String, RunningStatistics>();
 	}
 	
 	/**
@@ -77,6 +84,37 @@ public class ExternallyIdentifiableRecord extends Record {
 		this.relatedIds = new HashSet<String>();
 		this.relatedIds.addAll(relatedIds);
 	}
+
+	/**
+	 * Get the statistics of the string distance scores observed, per attribute, as the original records were merged into this one.  A record
+	 * merged from n original records has (at most) n-1 observations for each attribute, one per merge.
+	 * @return the statistics, keyed by attribute name; attributes with no observations are absent
+	 */
+	public Map<String, RunningStatistics> getAttributeStatistics() {
+		return Collections.unmodifiableMap(attributeStatistics);
+	}
+
+	void setAttributeStatistics(Map<String, RunningStatistics> attributeStatistics)
+	{
+		this.attributeStatistics = new HashMap<String, RunningStatistics>();
+		this.attributeStatistics.putAll(attributeStatistics);
+	}
+	
+	MatchPlan getSchemaPlan()
+	{
+		return schemaPlan;
+	}
+
+	long getSchemaSignature()
+	{
+		return schemaSignature;
+	}
+
+	void setSchemaSignature(MatchPlan schemaPlan, long schemaSignature)
+	{
+		this.schemaPlan = schemaPlan;
+		this.schemaSignature = schemaSignature;
+	}
 	
 	public String toString()
 	{
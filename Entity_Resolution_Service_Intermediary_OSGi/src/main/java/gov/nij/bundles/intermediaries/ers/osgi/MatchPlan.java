@@ -0,0 +1,179 @@
+/*
+ * Copyright 2013 SEARCH Group, Incorporated. 
+ * 
+ * See the NOTICE file distributed with  this work for additional information 
+ * regarding copyright ownership.  SEARCH Group Inc. licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not use this 
+ * file except in compliance with the License.  You may obtain a copy of the 
+ * License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nij.bundles.intermediaries.ers.osgi;
+
+import gov.nij.er.StringDistanceScoreMatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import serf.data.Attribute;
+import serf.data.ExistentialBooleanComparator;
+import serf.data.Record;
+import serf.data.ScoreMemo;
+
+/**
+ * The attribute parameters of a matcher/merger, compiled into arrays indexed by attribute ordinal, so that matching a pair of records needs no set scans or map
+ * iteration. Ordinals follow attribute name order. A plan is immutable once compiled, although its scorers are stateful (they share a score memo), so a plan
+ * should be used by one thread at a time.
+ * 
+ * The plan also computes schema signatures: a bit per plan attribute present in a record, plus a flag for records with attributes the plan does not know. Two
+ * records without that flag have the same attribute names exactly when their signatures are equal. Signatures are cached on ExternallyIdentifiableRecords.
+ *
+ */
+final class MatchPlan {
+
+    // signatures have one bit per attribute, with the top bit reserved for the extra attributes flag
+    private static final int MAX_SIGNATURE_ATTRIBUTES = 63;
+    private static final long EXTRA_ATTRIBUTES = 1L << MAX_SIGNATURE_ATTRIBUTES;
+
+    private final String[] attributeNames;
+    private final StringDistanceScoreMatcher[] scorers;
+    private final ExistentialBooleanComparator[] comparators;
+    private final boolean[] determinative;
+    private final int[] determinativeOrdinals;
+    private final int[] nonDeterminativeOrdinals;
+    private final Set<String> determinativeAttributes;
+
+    public MatchPlan(Set<AttributeParameters> attributeParameters, ScoreMemo scoreMemo) throws Exception {
+        List<AttributeParameters> sorted = new ArrayList<AttributeParameters>();
+        for (AttributeParameters ap : attributeParameters) {
+            if (ap == null || ap.getAttributeName() == null || ap.getAlgorithmClassName() == null) {
+                throw new IllegalArgumentException("AttributeParameters object has a null object.");
+            }
+            sorted.add(ap);
+        }
+        Collections.sort(sorted, new Comparator<AttributeParameters>() {
+            @Override
+            public int compare(AttributeParameters o1, AttributeParameters o2) {
+                return o1.getAttributeName().compareTo(o2.getAttributeName());
+            }
+        });
+
+        int n = sorted.size();
+        attributeNames = new String[n];
+        scorers = new StringDistanceScoreMatcher[n];
+        comparators = new ExistentialBooleanComparator[n];
+        determinative = new boolean[n];
+        Set<String> determinativeNames = new HashSet<String>();
+        int determinativeCount = 0;
+        for (int i = 0; i < n; i++) {
+            AttributeParameters ap = sorted.get(i);
+            attributeNames[i] = ap.getAttributeName();
+            scorers[i] = new StringDistanceScoreMatcher(ap.getAlgorithmClassName());
+            scorers[i].init(ap.getThreshold());
+            scorers[i].setScoreMemo(scoreMemo);
+            comparators[i] = new ExistentialBooleanComparator(scorers[i]);
+            determinative[i] = ap.isDeterminative();
+            if (determinative[i]) {
+                determinativeNames.add(ap.getAttributeName());
+                determinativeCount++;
+            }
+        }
+        determinativeAttributes = Collections.unmodifiableSet(determinativeNames);
+        determinativeOrdinals = new int[determinativeCount];
+        nonDeterminativeOrdinals = new int[n - determinativeCount];
+        for (int i = 0, d = 0, nd = 0; i < n; i++) {
+            if (determinative[i]) {
+                determinativeOrdinals[d++] = i;
+            } else {
+                nonDeterminativeOrdinals[nd++] = i;
+            }
+        }
+    }
+
+    public int size() {
+        return attributeNames.length;
+    }
+
+    public String getAttributeName(int ordinal) {
+        return attributeNames[ordinal];
+    }
+
+    public StringDistanceScoreMatcher getScorer(int ordinal) {
+        return scorers[ordinal];
+    }
+
+    public ExistentialBooleanComparator getComparator(int ordinal) {
+        return comparators[ordinal];
+    }
+
+    public boolean isDeterminative(int ordinal) {
+        return determinative[ordinal];
+    }
+
+    public int[] getDeterminativeOrdinals() {
+        return determinativeOrdinals;
+    }
+
+    public int[] getNonDeterminativeOrdinals() {
+        return nonDeterminativeOrdinals;
+    }
+
+    public Set<String> getDeterminativeAttributes() {
+        return determinativeAttributes;
+    }
+
+    /**
+     * Whether the two records have the same attribute names, using the records' schema signatures where possible.
+     */
+    public boolean haveSameAttributes(Record r1, Record r2) {
+        long s1 = signature(r1);
+        long s2 = signature(r2);
+        if ((s1 & EXTRA_ATTRIBUTES) == 0 || (s2 & EXTRA_ATTRIBUTES) == 0) {
+            // a signature without the flag describes the record's attribute names completely
+            return s1 == s2;
+        }
+        Map<String, Attribute> r1attr = r1.getAttributes();
+        Map<String, Attribute> r2attr = r2.getAttributes();
+        return r1attr.size() == r2attr.size() && r1attr.keySet().containsAll(r2attr.keySet());
+    }
+
+    private long signature(Record r) {
+        if (r instanceof ExternallyIdentifiableRecord) {
+            ExternallyIdentifiableRecord eir = (ExternallyIdentifiableRecord) r;
+            if (eir.getSchemaPlan() != this) {
+                eir.setSchemaSignature(this, computeSignature(r.getAttributes()));
+            }
+            return eir.getSchemaSignature();
+        }
+        return computeSignature(r.getAttributes());
+    }
+
+    long computeSignature(Map<String, Attribute> attributes) {
+        if (attributeNames.length > MAX_SIGNATURE_ATTRIBUTES) {
+            return EXTRA_ATTRIBUTES;
+        }
+        long ret = 0;
+        for (int i = 0; i < attributeNames.length; i++) {
+            if (attributes.containsKey(attributeNames[i])) {
+                ret |= 1L << i;
+            }
+        }
+        if (Long.bitCount(ret) != attributes.size()) {
+            ret |= EXTRA_ATTRIBUTES;
+        }
+        return ret;
+    }
+
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2013 SEARCH Group, Incorporated. 
+ * 
+ * See the NOTICE file distributed with  this work for additional information 
+ * regarding copyright ownership.  SEARCH Group Inc. licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not use this 
+ * file except in compliance with the License.  You may obtain a copy of the 
+ * License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nij.bundles.intermediaries.ers.osgi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import serf.data.Attribute;
+import serf.data.ValueDictionary;
+import serf.utils.RunningStatistics;
+import serf.utils.UnionFind;
+
+/**
+ * A compact, column-oriented store for the input records of one resolution run. Attribute names are replaced by ordinals, each attribute has its own value
+ * dictionary, and each record's values for an attribute are held as an array of value ids. The store only holds the input and serves blocking, which works on
+ * value ids. The engines match SERF Records, so each block's records are materialized as ExternallyIdentifiableRecords before it is resolved, and matching
+ * gains nothing from the encoding; the score memo keeps its own value dictionary.
+ *
+ */
+final class RecordStore {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Map<String, Integer> attributeOrdinals = new HashMap<String, Integer>();
+    private List<String> attributeNames = new ArrayList<String>();
+    private List<ValueDictionary> dictionaries = new ArrayList<ValueDictionary>();
+    /**
+     * ordinal -> record -> value ids; a null entry means the record does not have the attribute at all, which is different from having it with no values
+     */
+    private List<int[][]> columns = new ArrayList<int[][]>();
+
+    private String[] externalIds = new String[INITIAL_CAPACITY];
+    private List<Set<String>> relatedIds = new ArrayList<Set<String>>();
+    private List<Map<String, RunningStatistics>> attributeStatistics = new ArrayList<Map<String, RunningStatistics>>();
+    private int size;
+
+    public int add(RecordWrapper rw) {
+        int ret = addRecord(rw.getExternalId(), rw.getRelatedIds());
+        for (Map.Entry<String, AttributeWrapper> entry : rw.getAttributes().entrySet()) {
+            setValues(ret, entry.getKey(), entry.getValue().getValues());
+        }
+        return ret;
+    }
+
+    public int add(ExternallyIdentifiableRecord r) {
+        int ret = addRecord(r.getExternalId(), r.getRelatedIds());
+        setAttributeStatistics(ret, r.getAttributeStatistics());
+        for (Map.Entry<String, Attribute> entry : r.getAttributes().entrySet()) {
+            setValues(ret, entry.getKey(), entry.getValue());
+        }
+        return ret;
+    }
+
+    public void addAll(List<RecordWrapper> recordWrappers) {
+        for (RecordWrapper rw : recordWrappers) {
+            add(rw);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getAttributeCount() {
+        return attributeNames.size();
+    }
+
+    public String getAttributeName(int ordinal) {
+        return attributeNames.get(ordinal);
+    }
+
+    /**
+     * @return the ordinal of the attribute, or -1 if no record has it
+     */
+    public int getAttributeOrdinal(String attributeName) {
+        Integer ret = attributeOrdinals.get(attributeName);
+        return ret == null ? -1 : ret;
+    }
+
+    public ValueDictionary getDictionary(int ordinal) {
+        return dictionaries.get(ordinal);
+    }
+
+    /**
+     * @return the ids, in the attribute's dictionary, of the record's values for the attribute, or null if the record does not have the attribute
+     */
+    public int[] getValueIds(int record, int ordinal) {
+        return columns.get(ordinal)[record];
+    }
+
+    public String getExternalId(int record) {
+        return externalIds[record];
+    }
+
+    /**
+     * Set the merge statistics carried by a record, e.g. for an entity from an earlier resolution that was added as a RecordWrapper.
+     */
+    public void setAttributeStatistics(int record, Map<String, RunningStatistics> statistics) {
+        attributeStatistics.set(record, new HashMap<String, RunningStatistics>(statistics));
+    }
+
+    public ExternallyIdentifiableRecord toRecord(int record) {
+        Map<String, Attribute> attributes = new HashMap<String, Attribute>();
+        for (int ordinal = 0; ordinal < attributeNames.size(); ordinal++) {
+            int[] valueIds = columns.get(ordinal)[record];
+            if (valueIds != null) {
+                String name = attributeNames.get(ordinal);
+                Attribute a = new Attribute(name);
+                a.addValues(decode(ordinal, valueIds));
+                attributes.put(name, a);
+            }
+        }
+        ExternallyIdentifiableRecord ret = new ExternallyIdentifiableRecord(attributes, externalIds[record]);
+        ret.setRelatedIds(relatedIds.get(record));
+        ret.setAttributeStatistics(attributeStatistics.get(record));
+        return ret;
+    }
+
+    public RecordWrapper toRecordWrapper(int record) {
+        Map<String, AttributeWrapper> attributes = new HashMap<String, AttributeWrapper>();
+        for (int ordinal = 0; ordinal < attributeNames.size(); ordinal++) {
+            int[] valueIds = columns.get(ordinal)[record];
+            if (valueIds != null) {
+                String name = attributeNames.get(ordinal);
+                AttributeWrapper aw = new AttributeWrapper(name);
+                for (String value : decode(ordinal, valueIds)) {
+                    aw.addValue(value);
+                }
+                attributes.put(name, aw);
+            }
+        }
+        RecordWrapper ret = new RecordWrapper(attributes, externalIds[record]);
+        ret.setRelatedIds(relatedIds.get(record));
+        return ret;
+    }
+
+    /**
+     * Partition the records into blocks of records sharing a blocking key, directly or through other records in the block. Each distinct value's key is computed
+     * once, however many records share the value.
+     * 
+     * @return the blocks, as arrays of ascending record indexes, ordered by their lowest record index
+     */
+    public List<int[]> partition(AttributeBlockingKeyFunction keyFunction) {
+        UnionFind blocks = new UnionFind(size);
+        Map<String, Integer> keyHolders = new HashMap<String, Integer>();
+        for (AttributeParameters ap : keyFunction.getBlockingAttributeParameters()) {
+            int ordinal = getAttributeOrdinal(ap.getAttributeName());
+            if (ordinal < 0) {
+                continue;
+            }
+            ValueDictionary dictionary = dictionaries.get(ordinal);
+            String[] keys = new String[dictionary.size()];
+            int[][] column = columns.get(ordinal);
+            for (int record = 0; record < size; record++) {
+                if (column[record] == null) {
+                    continue;
+                }
+                for (int valueId : column[record]) {
+                    if (keys[valueId] == null) {
+                        String key = AttributeBlockingKeyFunction.computeKey(ap.getBlockingKey(), dictionary.getValue(valueId));
+                        keys[valueId] = key == null ? "" : ap.getAttributeName() + ":" + key;
+                    }
+                    if (keys[valueId].length() == 0) {
+                        continue;
+                    }
+                    Integer holder = keyHolders.get(keys[valueId]);
+                    if (holder == null) {
+                        keyHolders.put(keys[valueId], record);
+                    } else {
+                        blocks.union(holder, record);
+                    }
+                }
+            }
+        }
+
+        int[] labels = blocks.componentLabels();
+        int[] blockSizes = new int[blocks.getComponentCount()];
+        for (int record = 0; record < size; record++) {
+            blockSizes[labels[record]]++;
+        }
+        List<int[]> ret = new ArrayList<int[]>(blockSizes.length);
+        for (int blockSize : blockSizes) {
+            ret.add(new int[blockSize]);
+        }
+        Arrays.fill(blockSizes, 0);
+        for (int record = 0; record < size; record++) {
+            int label = labels[record];
+            ret.get(label)[blockSizes[label]++] = record;
+        }
+        return ret;
+    }
+
+    private List<String> decode(int ordinal, int[] valueIds) {
+        ValueDictionary dictionary = dictionaries.get(ordinal);
+        List<String> ret = new ArrayList<String>(valueIds.length);
+        for (int valueId : valueIds) {
+            ret.add(dictionary.getValue(valueId));
+        }
+        return ret;
+    }
+
+    private int addRecord(String externalId, Set<String> recordRelatedIds) {
+        if (size == externalIds.length) {
+            externalIds = Arrays.copyOf(externalIds, 2 * size);
+            for (int ordinal = 0; ordinal < columns.size(); ordinal++) {
+                columns.set(ordinal, Arrays.copyOf(columns.get(ordinal), 2 * size));
+            }
+        }
+        externalIds[size] = externalId;
+        relatedIds.add(new HashSet<String>(recordRelatedIds));
+        attributeStatistics.add(new HashMap<String, RunningStatistics>());
+        return size++;
+    }
+
+    private void setValues(int record, String attributeName, Iterable<String> values) {
+        Integer ordinal = attributeOrdinals.get(attributeName);
+        if (ordinal == null) {
+            ordinal = attributeNames.size();
+            attributeOrdinals.put(attributeName, ordinal);
+            attributeNames.add(attributeName);
+            dictionaries.add(new ValueDictionary());
+            columns.add(new int[externalIds.length][]);
+        }
+        ValueDictionary dictionary = dictionaries.get(ordinal);
+        List<Integer> valueIds = new ArrayList<Integer>();
+        for (String value : values) {
+            valueIds.add(dictionary.getId(value));
+        }
+        int[] column = new int[valueIds.size()];
+        for (int i = 0; i < column.length; i++) {
+            column[i] = valueIds.get(i);
+        }
+        columns.get(ordinal)[record] = column;
+    }
+
+}
@@ -33,6 +33,7 @@ public final class Algorithm {
 	public static Algorithm[] SUPPORTED_ALGORITHMS = {
 		new Algorithm("com.wcohen.ss.AffineGap", "Second String"),
 		new Algorithm("com.wcohen.ss.ApproxNeedlemanWunsch", "Second String"),
+		new Algorithm("com.wcohen.ss.BitParallelLevenstein", "Second String"),
 		new Algorithm("com.wcohen.ss.DirichletJS", "Second String"),
 		new Algorithm("com.wcohen.ss.Jaccard", "Second String"),
 		new Algorithm("com.wcohen.ss.Jaro", "Second String"),
@@ -62,6 +63,7 @@ public final class Algorithm {
 		new Algorithm("com.wcohen.ss.UnsmoothedJS", "Second String"),
 		new Algorithm("com.wcohen.ss.WinklerRescorer", "Second String"),
 		new Algorithm("uk.ac.shef.wit.simmetrics.similaritymetrics.AbstractStringMetric", "Simmetrics"),
+		new Algorithm("uk.ac.shef.wit.simmetrics.similaritymetrics.BitParallelLevenshtein", "Simmetrics"),
 		new Algorithm("uk.ac.shef.wit.simmetrics.similaritymetrics.BlockDistance", "Simmetrics"),
 		new Algorithm("uk.ac.shef.wit.simmetrics.similaritymetrics.ChapmanLengthDeviation", "Simmetrics"),
 		new Algorithm("uk.ac.shef.wit.simmetrics.similaritymetrics.ChapmanMatchingSoundex", "Simmetrics"),
@@ -41,6 +41,9 @@ public class StringDistanceScoreMatcher implements AtomicMatch
     private String algorithmClassName;
     private StringDistance stringDistance;
     private double scoreThreshold;
+    private ScoreMemo scoreMemo;
+    private int scoreMemoIndex;
+    private int boundMemoIndex;
     
     public StringDistanceScoreMatcher(String algorithmClassName)
     {
@@ -77,18 +80,117 @@ public class StringDistanceScoreMatcher implements AtomicMatch
     {
         init(DEFAULT_THRESHOLD);
     }
+
+    /**
+     * Remember scores in the specified memo, so that each distinct pair of values is only scored once.  Matchers sharing a memo and an algorithm
+     * share scores.  The memo is not thread safe, so a matcher with a memo should only be used by one thread at a time.
+     * @param scoreMemo the memo, or null to score every pair
+     */
+    public void setScoreMemo(ScoreMemo scoreMemo)
+    {
+        this.scoreMemo = scoreMemo;
+        if (scoreMemo != null)
+        {
+            scoreMemoIndex = scoreMemo.getScorerIndex(algorithmClassName);
+            boundMemoIndex = scoreMemo.getBoundIndex(algorithmClassName);
+        }
+    }
     
     public boolean valuesMatch(String arg0, String arg1)
     {
-        double score = score(arg0, arg1);
-        boolean match = score > scoreThreshold || scoreThreshold == 0;
+        boolean match = scoreThreshold == 0 || matches(arg0, arg1);
         LOGGER.debug("Threshold=" + scoreThreshold + ", match=" + match + (scoreThreshold == 0 ? " (zero threshold always matches)" : ""));
         return match;
     }
 
+    /**
+     * Whether the score of two values is over the threshold.  The algorithm is only asked to score the values as far as it takes to
+     * tell, so a pair that falls short may be abandoned early.  Scores are remembered as score does, and a pair that fell short
+     * is remembered as being below the threshold, for matchers with the same algorithm and the same or a higher threshold.
+     */
+    private boolean matches(String arg0, String arg1)
+    {
+        if (scoreMemo == null)
+        {
+            return stringDistance.matches(arg0, arg1, scoreThreshold);
+        }
+        return !Double.isNaN(matchingScore(arg0, arg1));
+    }
+
+    /**
+     * Get the score of two values if they match, i.e. valuesMatch would return true for them, scoring them only as far as matching
+     * does: a pair already scored while matching is not scored again, and a pair that does not match may be abandoned early.  With a
+     * zero threshold, all values match, so this is the full score.
+     * @return the score, or NaN if the values do not match
+     */
+    public double matchingScore(String arg0, String arg1)
+    {
+        if (scoreThreshold == 0)
+        {
+            return score(arg0, arg1);
+        }
+        if (scoreMemo == null)
+        {
+            double score = stringDistance.scoreAtLeast(arg0, arg1, scoreThreshold);
+            return score > scoreThreshold ? score : Double.NaN;
+        }
+        int id0 = scoreMemo.getValueId(arg0);
+        int id1 = scoreMemo.getValueId(arg1);
+        long key = scoreMemo.getKey(id0, id1);
+        double score = scoreMemo.get(scoreMemoIndex, key);
+        if (Double.isNaN(score))
+        {
+            double bound = scoreMemo.get(boundMemoIndex, key);
+            if (bound <= scoreThreshold)
+            {
+                return Double.NaN;
+            }
+            score = stringDistance.scoreAtLeast(prepare(arg0, id0), prepare(arg1, id1), scoreThreshold);
+            LOGGER.debug(algorithmClassName + " comparing [" + arg0 + "] to [" + arg1 + "] with threshold " + scoreThreshold + " = " + score);
+            if (score < scoreThreshold)
+            {
+                scoreMemo.put(boundMemoIndex, key, scoreThreshold);
+                return Double.NaN;
+            }
+            scoreMemo.put(scoreMemoIndex, key, score);
+        }
+        return score > scoreThreshold ? score : Double.NaN;
+    }
+
+    /**
+     * Get the form the algorithm prepares a value in, preparing it only the first time the memo sees it.  Matchers sharing a memo and
+     * an algorithm share prepared values, as they share scores.
+     */
+    private StringWrapper prepare(String value, int valueId)
+    {
+        StringWrapper ret = (StringWrapper) scoreMemo.getPrepared(scoreMemoIndex, valueId);
+        if (ret == null)
+        {
+            ret = stringDistance.prepare(value);
+            scoreMemo.putPrepared(scoreMemoIndex, valueId, ret);
+        }
+        return ret;
+    }
+
     public double score(String arg0, String arg1)
     {
-        double score = stringDistance.score(arg0, arg1);
+        double score;
+        if (scoreMemo == null)
+        {
+            score = stringDistance.score(arg0, arg1);
+        }
+        else
+        {
+            int id0 = scoreMemo.getValueId(arg0);
+            int id1 = scoreMemo.getValueId(arg1);
+            long key = scoreMemo.getKey(id0, id1);
+            score = scoreMemo.get(scoreMemoIndex, key);
+            if (Double.isNaN(score))
+            {
+                score = stringDistance.score(prepare(arg0, id0), prepare(arg1, id1));
+                scoreMemo.put(scoreMemoIndex, key, score);
+            }
+        }
         LOGGER.debug(algorithmClassName + " comparing [" + arg0 + "] to [" + arg1 + "] = " + score);
         return score;
     }
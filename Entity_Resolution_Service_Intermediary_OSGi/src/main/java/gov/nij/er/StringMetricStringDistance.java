@@ -18,8 +18,10 @@
 package gov.nij.er;
 
 import uk.ac.shef.wit.simmetrics.similaritymetrics.InterfaceStringMetric;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.PreparedString;
 
 import com.wcohen.ss.AbstractStringDistance;
+import com.wcohen.ss.BasicStringWrapper;
 import com.wcohen.ss.api.StringWrapper;
 
 /**
@@ -45,9 +47,34 @@ public class StringMetricStringDistance extends AbstractStringDistance {
 	 */
 	@Override
 	public double score(StringWrapper s, StringWrapper t) {
+		if (s instanceof PreparedStringWrapper && t instanceof PreparedStringWrapper) {
+			return stringMetric.getSimilarity(((PreparedStringWrapper) s).prepared, ((PreparedStringWrapper) t).prepared);
+		}
 		return stringMetric.getSimilarity(s == null ? null : s.unwrap(), t == null ? null : t.unwrap());
 	}
 
+	/**
+	 * Prepare a string with the wrapped metric, so that whatever the metric precomputes (tokens, q-grams, phonetic codes) travels
+	 * with the wrapper and is reused by every comparison of it.
+	 */
+	@Override
+	public StringWrapper prepare(String s) {
+		return new PreparedStringWrapper(stringMetric.prepare(s));
+	}
+
+	/**
+	 * Compute the distance between the two specified strings if it is at least the threshold, letting the wrapped metric
+	 * stop early when it is not.  Any float similarity of at least the threshold is at least the threshold rounded to a float,
+	 * and any float below that is below the threshold, so the metric can work with the rounded threshold.
+	 */
+	@Override
+	public double scoreAtLeast(StringWrapper s, StringWrapper t, double threshold) {
+		if (s instanceof PreparedStringWrapper && t instanceof PreparedStringWrapper) {
+			return stringMetric.getSimilarityAtLeast(((PreparedStringWrapper) s).prepared, ((PreparedStringWrapper) t).prepared, (float) threshold);
+		}
+		return stringMetric.getSimilarityAtLeast(s == null ? null : s.unwrap(), t == null ? null : t.unwrap(), (float) threshold);
+	}
+
 	/**
 	 * Create a string with explanatory text about how the two specified strings would have their distance computed
 	 */
@@ -56,4 +83,18 @@ public class StringMetricStringDistance extends AbstractStringDistance {
 		return stringMetric.getSimilarityExplained(s == null ? null : s.unwrap(), t == null ? null : t.unwrap());
 	}
 
+	/**
+	 * A string wrapper carrying the string as prepared by the wrapped metric.
+	 */
+	private static final class PreparedStringWrapper extends BasicStringWrapper {
+
+		private final PreparedString prepared;
+
+		PreparedStringWrapper(PreparedString prepared) {
+			super(prepared.getString());
+			this.prepared = prepared;
+		}
+
+	}
+
 }
@@ -0,0 +1,25 @@
+package serf.data;
+
+import java.util.Set;
+
+/**
+ * 
+ * DeterminativeMatcher is implemented by MatcherMergers that treat some attributes as
+ * determinative identifiers (SID, FBI number and the like).  Implementations must obey
+ * the following contract, which lets RSwoosh find match candidates through a hash index
+ * rather than comparing against every record:
+ * 
+ * Two records whose determinative attribute both have values only match if both have
+ * exactly one value for that attribute, and the two values are equal.
+ *
+ */
+public interface DeterminativeMatcher extends MatcherMerger
+{
+
+	/**
+	 * Get the names of the determinative attributes.
+	 * @return the determinative attribute names, empty if there are none
+	 */
+	public Set<String> getDeterminativeAttributes();
+
+}
@@ -0,0 +1,136 @@
+package serf.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import serf.utils.LongDoubleMap;
+
+/**
+ * Remembers the scores given to pairs of attribute values, so that a resolution run scores
+ * each distinct (algorithm, value, value) triple at most once, however many times merged
+ * records bring the same values together again.  Values are dictionary encoded, and the
+ * scores for each algorithm are kept in a primitive map keyed on the pair of value ids.
+ * Each algorithm can also keep the form it prepares a value in for scoring (for example a
+ * token vector), indexed by value id, so a value is prepared once rather than per pair.
+ * 
+ * A memo is meant to live for one resolution request, and is not thread safe.
+ */
+public class ScoreMemo
+{
+	private ValueDictionary _dictionary = new ValueDictionary();
+	private Map<String, Integer> _scorerIndexes = new HashMap<String, Integer>();
+	private List<LongDoubleMap> _scores = new ArrayList<LongDoubleMap>();
+	private List<Object[]> _prepared = new ArrayList<Object[]>();
+
+	/**
+	 * Get the index under which the scores of an algorithm are kept.  Scorers using the
+	 * same algorithm share an index, and so share scores.
+	 * @param algorithmName the name of the scoring algorithm
+	 * @return the scorer index
+	 */
+	public int getScorerIndex(String algorithmName)
+	{
+		Integer ret = _scorerIndexes.get(algorithmName);
+		if (ret == null)
+		{
+			ret = _scores.size();
+			_scorerIndexes.put(algorithmName, ret);
+			_scores.add(new LongDoubleMap());
+			_prepared.add(new Object[0]);
+		}
+		return ret;
+	}
+
+	/**
+	 * Get the index under which upper bounds on the scores of an algorithm are kept, for
+	 * pairs that were only scored far enough to know they fall short of a threshold.  A
+	 * bound b remembered for a pair means its score is below b.
+	 * @param algorithmName the name of the scoring algorithm
+	 * @return the bound index
+	 */
+	public int getBoundIndex(String algorithmName)
+	{
+		// algorithm names are class names, which cannot contain a space
+		return getScorerIndex(algorithmName + " bound");
+	}
+
+	/**
+	 * Get the key of a pair of values, for use with get and put.
+	 * @param s1 value 1
+	 * @param s2 value 2
+	 * @return the key of the ordered pair
+	 */
+	public long getKey(String s1, String s2)
+	{
+		return getKey(_dictionary.getId(s1), _dictionary.getId(s2));
+	}
+
+	/**
+	 * Get the id of a value in the memo's dictionary.
+	 * @param value the value
+	 * @return the id of the value
+	 */
+	public int getValueId(String value)
+	{
+		return _dictionary.getId(value);
+	}
+
+	/**
+	 * Get the key of a pair of value ids, for use with get and put.
+	 * @param id1 the id of value 1 in the dictionary
+	 * @param id2 the id of value 2 in the dictionary
+	 * @return the key of the ordered pair
+	 */
+	public long getKey(int id1, int id2)
+	{
+		return ((long) id1 << 32) | (id2 & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Get the form an algorithm prepared a value in for scoring, so that each value is only
+	 * prepared once however many pairs it is scored in.
+	 * @param scorerIndex the index of the scoring algorithm
+	 * @param valueId the id of the value in the dictionary
+	 * @return the prepared value, or null if it has not been prepared
+	 */
+	public Object getPrepared(int scorerIndex, int valueId)
+	{
+		Object[] prepared = _prepared.get(scorerIndex);
+		return valueId < prepared.length ? prepared[valueId] : null;
+	}
+
+	public void putPrepared(int scorerIndex, int valueId, Object value)
+	{
+		Object[] prepared = _prepared.get(scorerIndex);
+		if (valueId >= prepared.length)
+		{
+			prepared = Arrays.copyOf(prepared, Math.max(valueId + 1, 2 * prepared.length));
+			_prepared.set(scorerIndex, prepared);
+		}
+		prepared[valueId] = value;
+	}
+
+	/**
+	 * Get the remembered score of a pair of values.
+	 * @param scorerIndex the index of the scoring algorithm
+	 * @param key the key of the pair of values
+	 * @return the score, or NaN if the pair has not been scored
+	 */
+	public double get(int scorerIndex, long key)
+	{
+		return _scores.get(scorerIndex).get(key);
+	}
+
+	public void put(int scorerIndex, long key, double score)
+	{
+		_scores.get(scorerIndex).put(key, score);
+	}
+
+	public ValueDictionary getDictionary()
+	{
+		return _dictionary;
+	}
+}
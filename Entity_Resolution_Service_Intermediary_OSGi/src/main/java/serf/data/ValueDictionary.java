@@ -0,0 +1,48 @@
+package serf.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns each distinct attribute value a dense integer id, in order of first appearance,
+ * so that values can be compared and used as keys without hashing the strings again.
+ */
+public class ValueDictionary
+{
+	private Map<String, Integer> _ids = new HashMap<String, Integer>();
+	private List<String> _values = new ArrayList<String>();
+
+	/**
+	 * Get the id of a value, assigning it the next id if it has not been seen before.
+	 * @param value the value
+	 * @return the id of the value
+	 */
+	public int getId(String value)
+	{
+		Integer ret = _ids.get(value);
+		if (ret == null)
+		{
+			ret = _values.size();
+			_ids.put(value, ret);
+			_values.add(value);
+		}
+		return ret;
+	}
+
+	/**
+	 * Get the value with the specified id.
+	 * @param id an id returned by getId
+	 * @return the value
+	 */
+	public String getValue(int id)
+	{
+		return _values.get(id);
+	}
+
+	public int size()
+	{
+		return _values.size();
+	}
+}
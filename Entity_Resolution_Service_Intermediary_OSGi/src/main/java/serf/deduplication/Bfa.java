@@ -1,15 +1,25 @@
 package serf.deduplication;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 import serf.data.MatcherMerger;
 import serf.data.Record;
 
 public class Bfa
 {
+	private static final Log LOG = LogFactory.getLog( Bfa.class );
+	
 	private double _threshold = -1.0;
 	private boolean _removeDominated = false;
+	private List<Integer> _comparisonCounts = new ArrayList<Integer>();
+	private List<Integer> _matchCounts = new ArrayList<Integer>();
+	private List<Integer> _mergeCounts = new ArrayList<Integer>();
 	
 	public void setThreshold(double threshold)
 	{
@@ -50,32 +60,45 @@ public class Bfa
 		
 		records = prunedRecords;
 		
-		Set<Record> rprime = new HashSet<Record>();		
-		int i = 0;
-		do
+		// Semi-naive evaluation: every pair of records only needs to be compared once, so each
+		// round compares just the records produced by the previous round (the delta) against
+		// all the records known so far, until a round produces nothing new.
+		_comparisonCounts.clear();
+		_matchCounts.clear();
+		_mergeCounts.clear();
+		Set<Record> delta = new HashSet<Record>(records);
+		while (!delta.isEmpty())
 		{
-			records.addAll(rprime);
-			for (Record r1 : records)
+			Set<Record> newRecords = new HashSet<Record>();
+			int comparisons = 0;
+			int matches = 0;
+			for (Record r1 : delta)
 			{
 				for (Record r2 : records)
 				{
-					if (mm.match(r1, r2))
+					// idempotence means a record merged with itself is itself
+					if (r1 == r2)
+						continue;
+					comparisons++;
+					if (mergeIfMatch(mm, r1, r2, records, newRecords, domIndex))
+						matches++;
+					// pairs within the delta are visited in both orders by the loops, other pairs are not
+					if (!delta.contains(r2))
 					{
-						Record merged = mm.merge(r1, r2);
-						if (merged.getConfidence() > _threshold 
-								&& (domIndex == null || !domIndex.isDominated(merged)))
-						{
-							rprime.add(merged);
-							if (domIndex != null)
-								domIndex.add(merged);
-						}
+						comparisons++;
+						if (mergeIfMatch(mm, r2, r1, records, newRecords, domIndex))
+							matches++;
 					}
 				}
 			}
-			i++;
-			System.out.println("round complete: r.size(): " + records.size() + " rprime.size(): " + rprime.size());
+			records.addAll(newRecords);
+			delta = newRecords;
+			_comparisonCounts.add(comparisons);
+			_matchCounts.add(matches);
+			_mergeCounts.add(newRecords.size());
+			LOG.debug("Round " + _comparisonCounts.size() + " complete: " + comparisons + " comparisons, " + matches + " matches, " + newRecords.size()
+					+ " new merged records, r.size(): " + records.size());
 		}
-		while (!records.containsAll(rprime));
 
 		// Remove any dominated records we missed.
 		if (domIndex != null)
@@ -94,4 +117,50 @@ public class Bfa
 
 		return records;
 	}
+	
+	private boolean mergeIfMatch(MatcherMerger mm, Record r1, Record r2, Set<Record> records, Set<Record> newRecords, DominationIndex domIndex)
+	{
+		if (!mm.match(r1, r2))
+			return false;
+		
+		Record merged = mm.merge(r1, r2);
+		if (merged.getConfidence() > _threshold 
+				&& !records.contains(merged)
+				&& !newRecords.contains(merged)
+				&& (domIndex == null || !domIndex.isDominated(merged)))
+		{
+			newRecords.add(merged);
+			if (domIndex != null)
+				domIndex.add(merged);
+		}
+		return true;
+	}
+	
+	/**
+	 * Get the number of match calls made in each round of the last execution.
+	 * @return the comparison counts, one per round
+	 */
+	public List<Integer> getComparisonCounts()
+	{
+		return _comparisonCounts;
+	}
+	
+	/**
+	 * Get the number of matching pairs found in each round of the last execution.
+	 * @return the match counts, one per round
+	 */
+	public List<Integer> getMatchCounts()
+	{
+		return _matchCounts;
+	}
+	
+	/**
+	 * Get the number of new merged records produced in each round of the last execution.
+	 * The last round always produces none.
+	 * @return the merge counts, one per round
+	 */
+	public List<Integer> getMergeCounts()
+	{
+		return _mergeCounts;
+	}
 }
@@ -1,132 +1,262 @@
 package serf.deduplication;
 
-import serf.data.Attribute;
-
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import serf.data.Attribute;
 import serf.data.Record;
 
+/**
+ * Indexes records by their attribute values, to find out whether a record is dominated:
+ * whether some other record of at least the same confidence has all of its values.
+ *
+ * Records are given dense integer ids, and each attribute/value pair an interned key id
+ * with a posting list of the ids of the records holding it, kept as a sorted int array.
+ * Looking up a value does not allocate, and the intersection of posting lists in
+ * isDominated is computed in place in a reused buffer.  As a result, an index must not
+ * be used from several threads at once.
+ *
+ * As with a set of records, adding a record equal to one already indexed keeps the first
+ * one, and so its confidence, until it has been removed.
+ */
 public class DominationIndex
 {
-	private Map <Attribute, Set<Record>> _map;
-	
+	private static final int INITIAL_CAPACITY = 4;
+
+	/** attribute name -> value -> key id */
+	private Map<String, Map<String, Integer>> _keyIds;
+	/** key id -> sorted ids of the records holding that attribute value */
+	private int[][] _postings;
+	private int[] _postingSizes;
+	private int _keyCount;
+
+	private Map<Record, Integer> _recordIds;
+	private double[] _confidences;
+	/** record id -> number of posting lists holding the record */
+	private int[] _postingCounts;
+	private int _recordCount;
+
+	/** candidate dominators, reused between calls to isDominated */
+	private int[] _candidates;
+
 	public DominationIndex()
 	{
-		_map = new HashMap <Attribute, Set<Record>>();
+		_keyIds = new HashMap<String, Map<String, Integer>>();
+		_postings = new int[INITIAL_CAPACITY][];
+		_postingSizes = new int[INITIAL_CAPACITY];
+		_recordIds = new HashMap<Record, Integer>();
+		_confidences = new double[INITIAL_CAPACITY];
+		_postingCounts = new int[INITIAL_CAPACITY];
+		_candidates = new int[INITIAL_CAPACITY];
 	}
-	
+
 	public void add(Record r)
 	{
+		int recordId = recordId(r);
 		Map<String, Attribute> attrs = r.getAttributes();
-		
+
 		for (Map.Entry<String, Attribute> entry : attrs.entrySet())
 		{
 			String attrName = entry.getKey();
 			Attribute values = entry.getValue();
 			for (String value : values)
 			{
-				add(attrName, value, r);
+				if (add(internKey(attrName, value), recordId))
+					_postingCounts[recordId]++;
 			}
 		}
 	}
-	
+
 	public void remove(Record r)
 	{
+		Integer recordId = _recordIds.get(r);
+		if (recordId == null)
+			return;
+
 		Map<String, Attribute> attrs = r.getAttributes();
-		
+
 		for (Map.Entry<String, Attribute> entry : attrs.entrySet())
 		{
 			String attrName = entry.getKey();
 			Attribute values = entry.getValue();
 			for (String value : values)
 			{
-				remove(attrName, value, r);
+				int keyId = keyId(attrName, value);
+				if (keyId >= 0 && remove(keyId, recordId))
+					_postingCounts[recordId]--;
 			}
 		}
 	}
-	
+
 	public boolean isDominated(Record r)
 	{
 		return isDominated(r, true);
 	}
-	
+
 	public boolean isDominated(Record r, boolean allowSelf)
 	{
 		Map<String, Attribute> attrs = r.getAttributes();
-		Set<Record> dominators = null; 
-		
+		Integer selfId = allowSelf ? null : _recordIds.get(r);
+		int self = selfId == null ? -1 : selfId;
+		double confidence = r.getConfidence();
+		// a negative count means no value has been seen yet, i.e. the universe of all records
+		int candidateCount = -1;
+
 		for (Map.Entry<String, Attribute> entry : attrs.entrySet())
 		{
 			String attrName = entry.getKey();
 			Attribute values = entry.getValue();
 			for (String value : values)
 			{
-				Attribute attr = new Attribute(attrName, value);
-				Set<Record> attrHolders = _map.get(attr);
+				int keyId = keyId(attrName, value);
 				// If nothing has that attribute/value, then we're not dominated.
-				if (attrHolders == null)
+				if (keyId < 0 || _postingSizes[keyId] == 0)
 					return false;
 
-				// Take the intersection of the dominators and attrHolders sets
-				// (a null dominators set represents the universe of all records)
-				if (dominators == null)
+				int[] posting = _postings[keyId];
+				int postingSize = _postingSizes[keyId];
+				if (candidateCount < 0)
 				{
-					dominators = new HashSet<Record>();
-					
-					// Add all the ones that have greater confidence.
-					for (Record attrHolder : attrHolders)
+					// Start with the holders that have at least our confidence.
+					if (_candidates.length < postingSize)
+						_candidates = new int[Math.max(postingSize, 2 * _candidates.length)];
+					candidateCount = 0;
+					for (int i = 0; i < postingSize; i++)
 					{
-						if (attrHolder.getConfidence() >= r.getConfidence())
-							dominators.add(attrHolder);
+						int holder = posting[i];
+						if (holder != self && _confidences[holder] >= confidence)
+							_candidates[candidateCount++] = holder;
 					}
-
-					if (!allowSelf)
-						dominators.remove(r);
 				}
 				else
 				{
-					dominators.retainAll(attrHolders);
+					candidateCount = retainAll(_candidates, candidateCount, posting, postingSize);
 				}
 
-				if (dominators.isEmpty())
+				if (candidateCount == 0)
 					return false;
 			}
 		}
-		
+
 		return true;
 	}
-	
-	
-	private void remove(String attrName, String value, Record r)
+
+	/**
+	 * Intersect the sorted ids in a[0..aSize) with the sorted ids in b[0..bSize), in place in a.
+	 * @return the size of the intersection
+	 */
+	private static int retainAll(int[] a, int aSize, int[] b, int bSize)
+	{
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < aSize && j < bSize)
+		{
+			if (a[i] < b[j])
+				i++;
+			else if (a[i] > b[j])
+				j++;
+			else
+			{
+				a[k++] = a[i++];
+				j++;
+			}
+		}
+		return k;
+	}
+
+	private int recordId(Record r)
 	{
-		Attribute attr = new Attribute(attrName, value);
-		Set<Record> records = _map.get(attr);
-		records.remove(r);
-		if (records.isEmpty())
+		Integer ret = _recordIds.get(r);
+		if (ret == null)
 		{
-			_map.remove(attr);
+			ret = _recordCount++;
+			_recordIds.put(r, ret);
+			if (_confidences.length == ret)
+			{
+				_confidences = Arrays.copyOf(_confidences, 2 * ret);
+				_postingCounts = Arrays.copyOf(_postingCounts, 2 * ret);
+			}
 		}
+		// an equal record may come back with a different confidence, which only counts once the first has been removed
+		if (_postingCounts[ret] == 0)
+			_confidences[ret] = r.getConfidence();
+		return ret;
+	}
+
+	private int keyId(String attrName, String value)
+	{
+		Map<String, Integer> values = _keyIds.get(attrName);
+		if (values == null)
+			return -1;
+		Integer ret = values.get(value);
+		return ret == null ? -1 : ret;
 	}
-	
-	private void add(String attrName, String value, Record r)
+
+	private int internKey(String attrName, String value)
 	{
-		Attribute attr = new Attribute(attrName, value);
-		Set<Record> records = _map.get(attr);
-		if (records != null)
+		Map<String, Integer> values = _keyIds.get(attrName);
+		if (values == null)
 		{
-			records.add(r);
+			values = new HashMap<String, Integer>();
+			_keyIds.put(attrName, values);
 		}
-		else
+		Integer ret = values.get(value);
+		if (ret == null)
 		{
-			records = new HashSet<Record>();
-			records.add(r);
-			_map.put(attr, records);
+			ret = _keyCount++;
+			values.put(value, ret);
+			if (_postings.length == ret)
+			{
+				_postings = Arrays.copyOf(_postings, 2 * ret);
+				_postingSizes = Arrays.copyOf(_postingSizes, 2 * ret);
+			}
+			_postings[ret] = new int[INITIAL_CAPACITY];
 		}
+		return ret;
 	}
-	
+
+	/**
+	 * @return whether the record was in the posting list
+	 */
+	private boolean remove(int keyId, int recordId)
+	{
+		int[] posting = _postings[keyId];
+		int size = _postingSizes[keyId];
+		int i = Arrays.binarySearch(posting, 0, size, recordId);
+		if (i < 0)
+			return false;
+		System.arraycopy(posting, i + 1, posting, i, size - i - 1);
+		_postingSizes[keyId] = size - 1;
+		return true;
+	}
+
+	/**
+	 * @return whether the record was not already in the posting list
+	 */
+	private boolean add(int keyId, int recordId)
+	{
+		int[] posting = _postings[keyId];
+		int size = _postingSizes[keyId];
+		// records are mostly added in id order, so check the end first
+		int i = size == 0 || posting[size - 1] < recordId ? -(size + 1) : Arrays.binarySearch(posting, 0, size, recordId);
+		if (i >= 0)
+			return false;
+		i = -(i + 1);
+		if (size == posting.length)
+		{
+			posting = Arrays.copyOf(posting, 2 * size);
+			_postings[keyId] = posting;
+		}
+		System.arraycopy(posting, i, posting, i + 1, size - i);
+		posting[i] = recordId;
+		_postingSizes[keyId] = size + 1;
+		return true;
+	}
+
 	public static Set<Record> prune(Set<Record> records, double threshold, DominationIndex domIndex)
 	{
 		if (domIndex != null)
@@ -134,9 +264,9 @@ public class DominationIndex
 			for (Record r : records)
 				domIndex.add(r);
 		}
-		
+
 		// Create a new set prunedRecords that has records that are above threshold and not dominated
-		Set<Record> prunedRecords = new HashSet<Record>(); 
+		Set<Record> prunedRecords = new HashSet<Record>();
 		for (Record r : records)
 		{
 			if (r.getConfidence() > threshold &&
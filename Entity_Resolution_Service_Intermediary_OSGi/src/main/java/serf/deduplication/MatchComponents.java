@@ -0,0 +1,104 @@
+package serf.deduplication;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import serf.data.Attribute;
+import serf.data.DeterminativeMatcher;
+import serf.data.MatcherMerger;
+import serf.data.Record;
+import serf.utils.UnionFind;
+
+/**
+ * The connected components of a match graph, for the engines that score pairs of records
+ * and merge each component once at the end.  Taking the components is only sound for a
+ * transitive matcher, and a DeterminativeMatcher is not one: a record with no value for a
+ * determinative attribute can match two records with different values, which must never
+ * end up in one entity.  So a union that would put two different values of a determinative
+ * attribute into one component is refused, as the matcher would refuse to match the two
+ * components' merged records.
+ */
+class MatchComponents extends UnionFind
+{
+	private String[] _determinativeAttributes;
+	// representative -> determinative attribute -> the component's values, or null if none is non-null
+	private Set<String>[][] _values;
+
+	@SuppressWarnings("unchecked")
+	public MatchComponents(MatcherMerger mm, List<Record> records)
+	{
+		super(records.size());
+		Set<String> determinative = mm instanceof DeterminativeMatcher ? ((DeterminativeMatcher) mm).getDeterminativeAttributes() : new HashSet<String>();
+		_determinativeAttributes = determinative.toArray(new String[determinative.size()]);
+		if (_determinativeAttributes.length == 0)
+			return;
+		_values = new Set[records.size()][];
+		for (int i = 0; i < _values.length; i++)
+		{
+			_values[i] = new Set[_determinativeAttributes.length];
+			for (int a = 0; a < _determinativeAttributes.length; a++)
+				_values[i][a] = values(records.get(i).getAttribute(_determinativeAttributes[a]));
+		}
+	}
+
+	/**
+	 * Join the components containing elements i and j, unless one has a value for a
+	 * determinative attribute that the other contradicts.
+	 * @param i the first element
+	 * @param j the second element
+	 * @return true if the components were joined
+	 */
+	@Override
+	public boolean union(int i, int j)
+	{
+		int ri = find(i);
+		int rj = find(j);
+		if (ri == rj)
+			return false;
+		if (_values == null)
+			return super.union(ri, rj);
+
+		for (int a = 0; a < _determinativeAttributes.length; a++)
+		{
+			if (!consistent(_values[ri][a], _values[rj][a]))
+				return false;
+		}
+		super.union(ri, rj);
+		int root = find(ri);
+		int other = root == ri ? rj : ri;
+		for (int a = 0; a < _determinativeAttributes.length; a++)
+		{
+			if (_values[root][a] == null)
+				_values[root][a] = _values[other][a];
+		}
+		_values[other] = null;
+		return true;
+	}
+
+	/**
+	 * By the DeterminativeMatcher contract, records that both have values for a determinative
+	 * attribute only match if both have exactly one value, and it is the same value.
+	 */
+	private static boolean consistent(Set<String> values1, Set<String> values2)
+	{
+		return values1 == null || values2 == null || (values1.size() == 1 && values1.equals(values2));
+	}
+
+	/**
+	 * @return the values of the attribute, or null if it has no value that is not null
+	 */
+	private static Set<String> values(Attribute a)
+	{
+		if (a == null)
+			return null;
+		Set<String> ret = new HashSet<String>();
+		boolean allNull = true;
+		for (String value : a)
+		{
+			ret.add(value);
+			allNull &= value == null;
+		}
+		return allNull ? null : ret;
+	}
+}
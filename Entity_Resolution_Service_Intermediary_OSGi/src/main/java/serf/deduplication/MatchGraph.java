@@ -0,0 +1,278 @@
+package serf.deduplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import serf.data.Attribute;
+import serf.data.DeterminativeMatcher;
+import serf.data.MatcherMerger;
+import serf.data.Record;
+import serf.utils.LongDoubleMap;
+import serf.utils.UnionFind;
+
+/**
+ * Resolves records by building a match graph over the input records and merging its
+ * connected components.  Each pair of records is scored at most once, and pairs already
+ * connected through other matches are not scored at all, so at most n(n-1)/2 match calls
+ * are made.  Unlike RSwoosh, merged records are never compared again, so this is only
+ * appropriate when the matcher is pairwise, i.e. merging two records never makes them
+ * match a record that neither matched on its own.  The components refuse any match that
+ * would join two different values of a determinative attribute (see MatchComponents), so
+ * a record with no identifier cannot chain two records with different identifiers.
+ */
+public class MatchGraph
+{
+
+	private static final Log LOG = LogFactory.getLog( MatchGraph.class );
+
+	// how many pairs to evaluate between checks of the clock
+	private static final int BUDGET_CHECK_INTERVAL = 64;
+
+	// a value held by more records than this is too common to single out likely matches, like a stop word
+	private static final int MAX_VALUE_HOLDERS = 32;
+	private static final int[] STOP_VALUE = new int[0];
+
+	public static Set<Record> execute(MatcherMerger mm, Set<Record> recordsOrig)
+	{
+		return execute(mm, new HashSet<Record>(), recordsOrig);
+	}
+
+	/**
+	 * Resolve new records against a set of records that have already been resolved.  Pairs of
+	 * resolved records are not scored, since they are known not to match.
+	 * @param mm the matcher/merger
+	 * @param resolved records already resolved, none of which match each other
+	 * @param recordsOrig the new records
+	 * @return the resolved records
+	 */
+	public static Set<Record> execute(MatcherMerger mm, Set<Record> resolved, Set<Record> recordsOrig)
+	{
+		List<Record> records = new ArrayList<Record>(resolved);
+		int resolvedCount = records.size();
+		records.addAll(recordsOrig);
+		int n = records.size();
+		MatchComponents components = new MatchComponents(mm, records);
+
+		LOG.debug("Running MatchGraph on " + (n - resolvedCount) + " records against " + resolvedCount + " resolved records: " + records);
+
+		int comparisons = 0;
+		for (int i = 0; i < n; i++)
+		{
+			Record ri = records.get(i);
+			for (int j = Math.max(i + 1, resolvedCount); j < n; j++)
+			{
+				if (components.connected(i, j))
+					continue;
+				comparisons++;
+				if (mm.match(ri, records.get(j)))
+					components.union(i, j);
+			}
+		}
+
+		Set<Record> ret = mergeComponents(mm, records, components);
+
+		LOG.debug("MatchGraph resolved " + n + " records to " + ret.size() + " with " + comparisons + " comparisons");
+
+		return ret;
+	}
+
+	/**
+	 * Resolve new records against resolved records within a time budget.  Pairs that share
+	 * exact values are evaluated first, those sharing determinative values ahead of the rest
+	 * and more shared values ahead of fewer, since those are the pairs most likely to match;
+	 * the pairs sharing no value follow in input order.  Values held by more than a few
+	 * records (a common surname, say) do not single out any pairs, so the pairs sharing only
+	 * those follow in input order too.  When the budget expires, no more pairs are evaluated
+	 * and the components found so far are merged, so the result is the best partial
+	 * resolution found in the time.
+	 * @param mm the matcher/merger
+	 * @param resolved records already resolved, none of which match each other
+	 * @param recordsOrig the new records
+	 * @param budget the time budget, which also counts the pairs evaluated
+	 * @return the resolved records
+	 */
+	public static Set<Record> execute(MatcherMerger mm, Set<Record> resolved, Set<Record> recordsOrig, PairBudget budget)
+	{
+		List<Record> records = new ArrayList<Record>(resolved);
+		int resolvedCount = records.size();
+		records.addAll(recordsOrig);
+		int n = records.size();
+		MatchComponents components = new MatchComponents(mm, records);
+
+		long pairCount = PairBudget.countPairs(resolvedCount, n - resolvedCount);
+		budget.addPairs(pairCount);
+
+		LongDoubleMap payoffs = new LongDoubleMap();
+		long[] prioritized = prioritizePairs(mm, records, resolvedCount, budget, payoffs);
+		long evaluated = 0;
+		for (long pair : prioritized)
+		{
+			if (evaluated % BUDGET_CHECK_INTERVAL == 0 && budget.isExpired())
+				break;
+			evaluate(mm, records, components, (int) (pair >>> 32), (int) pair);
+			evaluated++;
+		}
+
+		if (evaluated == prioritized.length)
+		{
+			outer:
+			for (int i = 0; i < n; i++)
+			{
+				for (int j = Math.max(i + 1, resolvedCount); j < n; j++)
+				{
+					if (!Double.isNaN(payoffs.get(((long) i << 32) | j)))
+						continue;
+					if (evaluated % BUDGET_CHECK_INTERVAL == 0 && budget.isExpired())
+						break outer;
+					evaluate(mm, records, components, i, j);
+					evaluated++;
+				}
+			}
+		}
+		budget.addEvaluated(evaluated);
+
+		Set<Record> ret = mergeComponents(mm, records, components);
+
+		LOG.debug("MatchGraph resolved " + n + " records to " + ret.size() + " within its budget, evaluating " + evaluated + " of " + pairCount + " pairs");
+
+		return ret;
+	}
+
+	private static void evaluate(MatcherMerger mm, List<Record> records, MatchComponents components, int i, int j)
+	{
+		// pairs already connected are decided without calling the matcher
+		if (!components.connected(i, j) && mm.match(records.get(i), records.get(j)))
+			components.union(i, j);
+	}
+
+	/**
+	 * Find the candidate pairs that share at least one exact attribute value held by no more
+	 * than MAX_VALUE_HOLDERS records, ordered by likely payoff: shared determinative values
+	 * count for more than any number of other shared values.  Candidates stop being
+	 * generated once the budget expires, since there is no time left to evaluate them.
+	 * @param payoffs receives the payoff of each candidate pair
+	 * @return the pairs, each packed as i in the high and j in the low 32 bits, with i < j
+	 */
+	private static long[] prioritizePairs(MatcherMerger mm, List<Record> records, int resolvedCount, PairBudget budget, LongDoubleMap payoffs)
+	{
+		Set<String> determinative = mm instanceof DeterminativeMatcher ? ((DeterminativeMatcher) mm).getDeterminativeAttributes() : new HashSet<String>();
+
+		// attribute name -> value -> the number of holders followed by the holders, or STOP_VALUE once there are too many
+		Map<String, Map<String, int[]>> holders = new HashMap<String, Map<String, int[]>>();
+		int attributeCount = 0;
+		for (int i = 0; i < records.size(); i++)
+		{
+			for (Map.Entry<String, Attribute> entry : records.get(i).getAttributes().entrySet())
+			{
+				Map<String, int[]> valueHolders = holders.get(entry.getKey());
+				if (valueHolders == null)
+				{
+					valueHolders = new HashMap<String, int[]>();
+					holders.put(entry.getKey(), valueHolders);
+				}
+				for (String value : entry.getValue())
+				{
+					int[] list = valueHolders.get(value);
+					if (list == STOP_VALUE)
+						continue;
+					if (list == null)
+					{
+						list = new int[4];
+						valueHolders.put(value, list);
+					}
+					else if (list[0] == MAX_VALUE_HOLDERS)
+					{
+						valueHolders.put(value, STOP_VALUE);
+						continue;
+					}
+					else if (list[0] + 1 == list.length)
+					{
+						list = Arrays.copyOf(list, 2 * list.length);
+						valueHolders.put(value, list);
+					}
+					list[++list[0]] = i;
+				}
+			}
+			attributeCount = Math.max(attributeCount, records.get(i).getAttributes().size());
+		}
+
+		int lists = 0;
+		int maxPayoff = 0;
+		outer:
+		for (Map.Entry<String, Map<String, int[]>> entry : holders.entrySet())
+		{
+			int weight = determinative.contains(entry.getKey()) ? attributeCount + 1 : 1;
+			for (int[] list : entry.getValue().values())
+			{
+				if (list == STOP_VALUE)
+					continue;
+				if (++lists % BUDGET_CHECK_INTERVAL == 0 && budget.isExpired())
+					break outer;
+				// holders are in increasing order, so i < j
+				for (int a = 1; a <= list[0]; a++)
+				{
+					for (int b = a + 1; b <= list[0]; b++)
+					{
+						int i = list[a];
+						int j = list[b];
+						if (j < resolvedCount)
+							continue;
+						long pair = ((long) i << 32) | j;
+						double payoff = payoffs.get(pair);
+						payoff = Double.isNaN(payoff) ? weight : payoff + weight;
+						payoffs.put(pair, payoff);
+						maxPayoff = Math.max(maxPayoff, (int) payoff);
+					}
+				}
+			}
+		}
+
+		// sort on payoff, highest first, by counting, then sort each run of equal payoffs on the pair itself so the order is deterministic
+		long[] pairs = payoffs.keys();
+		int[] starts = new int[maxPayoff + 2];
+		for (long pair : pairs)
+			starts[maxPayoff - (int) payoffs.get(pair) + 1]++;
+		for (int rank = 1; rank < starts.length; rank++)
+			starts[rank] += starts[rank - 1];
+		int[] next = Arrays.copyOf(starts, starts.length);
+		long[] ret = new long[pairs.length];
+		for (long pair : pairs)
+			ret[next[maxPayoff - (int) payoffs.get(pair)]++] = pair;
+		for (int rank = 0; rank <= maxPayoff; rank++)
+			Arrays.sort(ret, starts[rank], starts[rank + 1]);
+		return ret;
+	}
+
+	/**
+	 * Fold each connected component into a single record, merging in list order.
+	 * @param mm the matcher/merger
+	 * @param records the records, indexed as in the union-find structure
+	 * @param components the components of the match graph
+	 * @return one merged record per component
+	 */
+	static Set<Record> mergeComponents(MatcherMerger mm, List<Record> records, UnionFind components)
+	{
+		int[] labels = components.componentLabels();
+		Record[] merged = new Record[components.getComponentCount()];
+		for (int i = 0; i < labels.length; i++)
+		{
+			Record r = records.get(i);
+			Record m = merged[labels[i]];
+			merged[labels[i]] = m == null ? r : mm.merge(m, r);
+		}
+
+		Set<Record> ret = new HashSet<Record>();
+		for (Record r : merged)
+			ret.add(r);
+		return ret;
+	}
+
+}
@@ -0,0 +1,65 @@
+package serf.deduplication;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A time budget for resolution, shared by all the blocks of a run, that also keeps count of
+ * how many candidate pairs were evaluated before it ran out.  It may be shared between
+ * threads.
+ */
+public class PairBudget
+{
+	private long _deadline;
+	private AtomicLong _pairCount = new AtomicLong();
+	private AtomicLong _evaluatedCount = new AtomicLong();
+
+	/**
+	 * @param budgetMillis the time allowed, starting now
+	 */
+	public PairBudget(long budgetMillis)
+	{
+		_deadline = System.nanoTime() + budgetMillis * 1000000L;
+	}
+
+	public boolean isExpired()
+	{
+		return System.nanoTime() - _deadline >= 0;
+	}
+
+	/**
+	 * Record that an engine has this many more candidate pairs to evaluate.
+	 */
+	public void addPairs(long pairs)
+	{
+		_pairCount.addAndGet(pairs);
+	}
+
+	/**
+	 * Record that an engine has evaluated (or otherwise decided) this many of its pairs.
+	 */
+	public void addEvaluated(long pairs)
+	{
+		_evaluatedCount.addAndGet(pairs);
+	}
+
+	/**
+	 * Count the candidate pairs of a run, those with at least one new record in them, since
+	 * resolved records are known not to match each other.
+	 * @param resolvedCount the number of records already resolved
+	 * @param inputCount the number of new records
+	 * @return the number of candidate pairs
+	 */
+	public static long countPairs(long resolvedCount, long inputCount)
+	{
+		return inputCount * (inputCount - 1) / 2 + inputCount * resolvedCount;
+	}
+
+	/**
+	 * @return the fraction of the candidate pairs that were evaluated, 1 if there were none
+	 */
+	public double getFractionEvaluated()
+	{
+		long pairs = _pairCount.get();
+		return pairs == 0 ? 1.0 : (double) _evaluatedCount.get() / pairs;
+	}
+}
@@ -1,11 +1,18 @@
 package serf.deduplication;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import serf.data.Attribute;
+import serf.data.DeterminativeMatcher;
 import serf.data.MatcherMerger;
 import serf.data.Record;
 
@@ -16,13 +23,50 @@ public class RSwoosh
 	
 	public static Set<Record> execute(MatcherMerger mm, Set<Record> recordsOrig)
 	{
+		return execute(mm, new HashSet<Record>(), recordsOrig);
+	}
+	
+	/**
+	 * Resolve new records against a set of records that have already been resolved.  The
+	 * resolved records seed R', so they are never compared with each other, and only the
+	 * new records (and the records merged from them) are compared against R'.
+	 * @param mm the matcher/merger
+	 * @param resolved records already resolved, none of which match each other
+	 * @param recordsOrig the new records
+	 * @return the resolved records
+	 */
+	public static Set<Record> execute(MatcherMerger mm, Set<Record> resolved, Set<Record> recordsOrig)
+	{
+		return execute(mm, resolved, recordsOrig, null);
+	}
+	
+	/**
+	 * Resolve new records against resolved records within a time budget.  The clock is
+	 * checked before each record is taken from R, and once the budget expires the records
+	 * still waiting in R (new records, or records merged from them) are added to the result
+	 * without being compared, so the result is a partial resolution.  Every match made is
+	 * one RSwoosh would make without a budget.
+	 * @param mm the matcher/merger
+	 * @param resolved records already resolved, none of which match each other
+	 * @param recordsOrig the new records
+	 * @param budget the time budget, which also counts the pairs evaluated, or null for none
+	 * @return the resolved records
+	 */
+	public static Set<Record> execute(MatcherMerger mm, Set<Record> resolved, Set<Record> recordsOrig, PairBudget budget)
+	{
+		if (mm instanceof DeterminativeMatcher && !((DeterminativeMatcher) mm).getDeterminativeAttributes().isEmpty())
+			return executeIndexed((DeterminativeMatcher) mm, resolved, recordsOrig, budget);
+
 		Set<Record> records = new HashSet<Record>(recordsOrig);
-		Set<Record> rprime = new HashSet<Record>();
+		Set<Record> rprime = new HashSet<Record>(resolved);
 		
 		LOG.debug("Running RSwoosh on " + records.size() + " records: " + records);
 
 		while (!records.isEmpty())
 		{
+			if (budget != null && budget.isExpired())
+				break;
+			
 			// Remove one element from R
 			Record current = records.iterator().next();
 			records.remove(current);
@@ -49,8 +93,240 @@ public class RSwoosh
 		}
 		
 		
+		return finish(rprime, records, resolved.size(), recordsOrig.size(), budget);
+	}
+	
+	/**
+	 * RSwoosh, with the buddy search driven by an index over the determinative attributes of
+	 * the records in R'.  A record with a determinative value first tries the records sharing
+	 * that value, and then falls back to comparing against only those records that have no
+	 * value for any of its determinative attributes, since by the DeterminativeMatcher contract
+	 * no other record can match it.
+	 */
+	private static Set<Record> executeIndexed(DeterminativeMatcher mm, Set<Record> resolved, Set<Record> recordsOrig, PairBudget budget)
+	{
+		Set<Record> records = new HashSet<Record>(recordsOrig);
+		Set<Record> rprime = new HashSet<Record>(resolved);
+		DeterminativeIndex index = new DeterminativeIndex(mm.getDeterminativeAttributes());
+		for (Record r : rprime)
+			index.add(r);
+		
+		LOG.debug("Running indexed RSwoosh on " + records.size() + " records: " + records);
+
+		int comparisons = 0;
+		while (!records.isEmpty())
+		{
+			if (budget != null && budget.isExpired())
+				break;
+			
+			// Remove one element from R
+			Record current = records.iterator().next();
+			records.remove(current);
+			
+			Record buddy = null;
+			List<Set<Record>> emptySets = new ArrayList<Set<Record>>();
+			boolean indexed = false;
+			for (String attributeName : index.getAttributeNames())
+			{
+				Attribute a = current.getAttribute(attributeName);
+				if (isEmpty(a))
+					continue;
+				indexed = true;
+				emptySets.add(index.getEmpty(attributeName));
+				String value = singleValue(a);
+				if (value == null)
+					continue;
+				for (Record r : index.get(attributeName, value))
+				{
+					comparisons++;
+					if (mm.match(current, r))
+					{
+						buddy = r;
+						break;
+					}
+				}
+				if (buddy != null)
+					break;
+			}
+			
+			if (buddy == null)
+			{
+				Iterable<Record> fallback = indexed ? intersection(emptySets) : rprime;
+				for (Record r : fallback)
+				{
+					comparisons++;
+					if (mm.match(current, r))
+					{
+						buddy = r;
+						break;
+					}
+				}
+			}
+			
+			if (buddy == null)
+			{
+				rprime.add(current);
+				index.add(current);
+			}
+			else
+			{
+				rprime.remove(buddy);
+				index.remove(buddy);
+				records.add(mm.merge(current, buddy));
+			}
+		}
+		
+		LOG.debug("Indexed RSwoosh resolved " + recordsOrig.size() + " records against " + resolved.size() + " to " + rprime.size() + " with " + comparisons
+				+ " comparisons");
+		
+		return finish(rprime, records, resolved.size(), recordsOrig.size(), budget);
+	}
+	
+	/**
+	 * Count a run's pairs against its budget, and add any records left waiting in R when the
+	 * budget expired to the result, unmerged.  The pairs of a waiting record with the other
+	 * records count as not evaluated.
+	 */
+	private static Set<Record> finish(Set<Record> rprime, Set<Record> records, int resolvedCount, int inputCount, PairBudget budget)
+	{
+		if (budget == null)
+			return rprime;
+		long pairCount = PairBudget.countPairs(resolvedCount, inputCount);
+		budget.addPairs(pairCount);
+		budget.addEvaluated(Math.max(0, pairCount - PairBudget.countPairs(rprime.size(), records.size())));
+		if (!records.isEmpty())
+		{
+			LOG.debug("RSwoosh ran out of time with " + records.size() + " records left to compare");
+			rprime.addAll(records);
+		}
 		return rprime;
 	}
 	
+	/**
+	 * Whether a record has the attribute but no value for it.  An attribute whose only values
+	 * are null is empty too, since the matcher treats it as having no identifier.
+	 */
+	private static boolean isEmpty(Attribute a)
+	{
+		if (a == null)
+			return false;
+		for (String value : a)
+		{
+			if (value != null)
+				return false;
+		}
+		return true;
+	}
+	
+	private static String singleValue(Attribute a)
+	{
+		return a != null && a.getValuesCount() == 1 ? a.iterator().next() : null;
+	}
+	
+	private static List<Record> intersection(List<Set<Record>> sets)
+	{
+		Set<Record> smallest = sets.get(0);
+		for (Set<Record> s : sets)
+		{
+			if (s.size() < smallest.size())
+				smallest = s;
+		}
+		List<Record> ret = new ArrayList<Record>();
+		for (Record r : smallest)
+		{
+			boolean inAll = true;
+			for (Iterator<Set<Record>> it = sets.iterator(); it.hasNext() && inAll;)
+				inAll = it.next().contains(r);
+			if (inAll)
+				ret.add(r);
+		}
+		return ret;
+	}
+	
+	/**
+	 * Tracks, for each determinative attribute, which records in R' have each single value and
+	 * which have no value at all.  Records with several values for an attribute are not
+	 * indexed under it, since they can only match records with no value.
+	 */
+	private static class DeterminativeIndex
+	{
+		private Set<String> _attributeNames;
+		private Map<String, Map<String, Set<Record>>> _valueIndex = new HashMap<String, Map<String, Set<Record>>>();
+		private Map<String, Set<Record>> _emptyIndex = new HashMap<String, Set<Record>>();
+		
+		public DeterminativeIndex(Set<String> attributeNames)
+		{
+			_attributeNames = attributeNames;
+			for (String attributeName : attributeNames)
+			{
+				_valueIndex.put(attributeName, new HashMap<String, Set<Record>>());
+				_emptyIndex.put(attributeName, new HashSet<Record>());
+			}
+		}
+		
+		public Set<String> getAttributeNames()
+		{
+			return _attributeNames;
+		}
+		
+		public Set<Record> get(String attributeName, String value)
+		{
+			Set<Record> ret = _valueIndex.get(attributeName).get(value);
+			return ret == null ? new HashSet<Record>() : ret;
+		}
+		
+		public Set<Record> getEmpty(String attributeName)
+		{
+			return _emptyIndex.get(attributeName);
+		}
+		
+		public void add(Record r)
+		{
+			for (String attributeName : _attributeNames)
+			{
+				Attribute a = r.getAttribute(attributeName);
+				if (isEmpty(a))
+				{
+					_emptyIndex.get(attributeName).add(r);
+					continue;
+				}
+				String value = singleValue(a);
+				if (value == null)
+					continue;
+				Map<String, Set<Record>> values = _valueIndex.get(attributeName);
+				Set<Record> bucket = values.get(value);
+				if (bucket == null)
+				{
+					bucket = new HashSet<Record>();
+					values.put(value, bucket);
+				}
+				bucket.add(r);
+			}
+		}
+		
+		public void remove(Record r)
+		{
+			for (String attributeName : _attributeNames)
+			{
+				Attribute a = r.getAttribute(attributeName);
+				if (isEmpty(a))
+				{
+					_emptyIndex.get(attributeName).remove(r);
+					continue;
+				}
+				String value = singleValue(a);
+				if (value == null)
+					continue;
+				Map<String, Set<Record>> values = _valueIndex.get(attributeName);
+				Set<Record> bucket = values.get(value);
+				if (bucket != null)
+				{
+					bucket.remove(r);
+					if (bucket.isEmpty())
+						values.remove(value);
+				}
+			}
+		}
+	}
 	
 }
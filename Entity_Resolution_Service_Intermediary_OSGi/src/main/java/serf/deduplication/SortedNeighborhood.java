@@ -0,0 +1,141 @@
+package serf.deduplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import serf.data.MatcherMerger;
+import serf.data.Record;
+
+/**
+ * The sorted neighborhood method.  Each pass sorts the records by a key and compares each
+ * record only with the records that follow it within a sliding window, so a pass makes at
+ * most n(w-1) match calls.  Several passes with different keys catch matches that one key
+ * would sort far apart.  As in MatchGraph, matches found in any pass are joined into
+ * components, which refuse any match joining two different values of a determinative
+ * attribute, and each component is merged once at the end.
+ */
+public class SortedNeighborhood
+{
+
+	private static final Log LOG = LogFactory.getLog( SortedNeighborhood.class );
+
+	public static Set<Record> execute(MatcherMerger mm, Set<Record> recordsOrig, List<Comparator<Record>> passes, int windowSize)
+	{
+		return execute(mm, new HashSet<Record>(), recordsOrig, passes, windowSize);
+	}
+
+	/**
+	 * Resolve new records against a set of records that have already been resolved.
+	 * Pairs of resolved records are not scored, since they are known not to match.
+	 * @param mm the matcher/merger
+	 * @param resolved records already resolved, none of which match each other
+	 * @param recordsOrig the new records
+	 * @param passes the sort order of each pass
+	 * @param windowSize the number of consecutive records compared with each other, at least 2
+	 * @return the resolved records
+	 */
+	public static Set<Record> execute(MatcherMerger mm, Set<Record> resolved, Set<Record> recordsOrig, List<Comparator<Record>> passes, int windowSize)
+	{
+		return execute(mm, resolved, recordsOrig, passes, windowSize, null);
+	}
+
+	/**
+	 * Resolve new records against resolved records within a time budget.  The clock is
+	 * checked before each record's window, and once the budget expires no more windows are
+	 * compared and the components found so far are merged, so the result is a partial
+	 * resolution.  The candidate pairs are the pairs of records within a window in each pass.
+	 * @param mm the matcher/merger
+	 * @param resolved records already resolved, none of which match each other
+	 * @param recordsOrig the new records
+	 * @param passes the sort order of each pass
+	 * @param windowSize the number of consecutive records compared with each other, at least 2
+	 * @param budget the time budget, which also counts the pairs evaluated, or null for none
+	 * @return the resolved records
+	 */
+	public static Set<Record> execute(MatcherMerger mm, Set<Record> resolved, Set<Record> recordsOrig, List<Comparator<Record>> passes, int windowSize,
+			PairBudget budget)
+	{
+		if (windowSize < 2)
+			throw new IllegalArgumentException("Window size must be at least 2, not " + windowSize);
+
+		List<Record> records = new ArrayList<Record>(resolved);
+		int resolvedCount = records.size();
+		records.addAll(recordsOrig);
+		int n = records.size();
+		MatchComponents components = new MatchComponents(mm, records);
+
+		LOG.debug("Running SortedNeighborhood on " + (n - resolvedCount) + " records against " + resolvedCount + " resolved records, " + passes.size()
+				+ " passes, window size " + windowSize);
+
+		Integer[] order = new Integer[n];
+		int comparisons = 0;
+		long windowPairs = 0;
+		passes:
+		for (Comparator<Record> pass : passes)
+		{
+			for (int i = 0; i < n; i++)
+				order[i] = i;
+			Arrays.sort(order, new IndexComparator(records, pass));
+
+			for (int i = 0; i < n; i++)
+			{
+				if (budget != null && budget.isExpired())
+					break passes;
+				int ri = order[i];
+				int windowEnd = Math.min(n, i + windowSize);
+				windowPairs += windowEnd - i - 1;
+				for (int j = i + 1; j < windowEnd; j++)
+				{
+					int rj = order[j];
+					if ((ri < resolvedCount && rj < resolvedCount) || components.connected(ri, rj))
+						continue;
+					comparisons++;
+					if (mm.match(records.get(ri), records.get(rj)))
+						components.union(ri, rj);
+				}
+			}
+		}
+
+		if (budget != null)
+		{
+			long passPairs = 0;
+			for (int i = 0; i < n; i++)
+				passPairs += Math.min(n, i + windowSize) - i - 1;
+			budget.addPairs(passPairs * passes.size());
+			budget.addEvaluated(windowPairs);
+		}
+
+		Set<Record> ret = MatchGraph.mergeComponents(mm, records, components);
+
+		LOG.debug("SortedNeighborhood resolved " + n + " records to " + ret.size() + " with " + comparisons + " comparisons");
+
+		return ret;
+	}
+
+	private static class IndexComparator implements Comparator<Integer>
+	{
+		private List<Record> _records;
+		private Comparator<Record> _comparator;
+
+		public IndexComparator(List<Record> records, Comparator<Record> comparator)
+		{
+			_records = records;
+			_comparator = comparator;
+		}
+
+		public int compare(Integer i1, Integer i2)
+		{
+			int ret = _comparator.compare(_records.get(i1), _records.get(i2));
+			// fall back to list order, so the passes are deterministic for a given list
+			return ret != 0 ? ret : i1.compareTo(i2);
+		}
+	}
+
+}
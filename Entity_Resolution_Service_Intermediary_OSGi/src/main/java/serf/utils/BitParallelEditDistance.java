@@ -0,0 +1,184 @@
+package serf.utils;
+
+import java.util.Arrays;
+
+/**
+ * Levenshtein distance by Myers' bit-vector algorithm, in Hyyro's formulation for the
+ * distance between whole strings.  The shorter string is the pattern: each column of the
+ * dynamic programming matrix is kept as bit vectors of its vertical deltas, 64 rows to a
+ * word, and a column is advanced by a handful of word operations per word instead of one
+ * minimum per cell.  Patterns longer than 64 characters take several words, each passing
+ * its horizontal delta on to the next.
+ *
+ * A pattern can be compiled once and compared with many strings.
+ */
+public class BitParallelEditDistance
+{
+	private static final long HIGH_BIT = 1L << 63;
+
+	/**
+	 * A string compiled for use as a pattern: for each distinct character, the bit
+	 * vector of the positions it occupies, word by word.
+	 */
+	public static final class Pattern
+	{
+		private final char[] _text;
+		private final boolean _ignoreCase;
+		private final int _blockCount;
+		/** the distinct characters of the pattern, sorted */
+		private final char[] _alphabet;
+		/** the match vector of alphabet character a in block b is at a * _blockCount + b */
+		private final long[] _matches;
+
+		private Pattern(char[] text, boolean ignoreCase)
+		{
+			_text = text;
+			_ignoreCase = ignoreCase;
+			_blockCount = (text.length + 63) >>> 6;
+			char[] sorted = text.clone();
+			Arrays.sort(sorted);
+			int distinct = 0;
+			for (int i = 0; i < sorted.length; i++)
+			{
+				if (i == 0 || sorted[i] != sorted[i - 1])
+					sorted[distinct++] = sorted[i];
+			}
+			_alphabet = Arrays.copyOf(sorted, distinct);
+			_matches = new long[distinct * _blockCount];
+			for (int i = 0; i < text.length; i++)
+			{
+				int a = Arrays.binarySearch(_alphabet, text[i]);
+				_matches[a * _blockCount + (i >>> 6)] |= 1L << (i & 63);
+			}
+		}
+
+		public int length()
+		{
+			return _text.length;
+		}
+
+		public boolean isIgnoreCase()
+		{
+			return _ignoreCase;
+		}
+
+		private int indexOf(char c)
+		{
+			// patterns are short, and their alphabets shorter, so a linear scan beats a search
+			if (_alphabet.length <= 8)
+			{
+				for (int a = 0; a < _alphabet.length; a++)
+				{
+					if (_alphabet[a] == c)
+						return a;
+				}
+				return -1;
+			}
+			int a = Arrays.binarySearch(_alphabet, c);
+			return a < 0 ? -1 : a;
+		}
+	}
+
+	/**
+	 * Compile a string for use as a pattern.
+	 * @param s the string
+	 * @param ignoreCase whether characters are compared after Character.toLowerCase
+	 * @return the pattern
+	 */
+	public static Pattern compile(String s, boolean ignoreCase)
+	{
+		return new Pattern(toChars(s, ignoreCase), ignoreCase);
+	}
+
+	/**
+	 * Get the Levenshtein distance between two strings.
+	 * @param s the first string
+	 * @param t the second string
+	 * @param ignoreCase whether characters are compared after Character.toLowerCase
+	 * @return the distance
+	 */
+	public static int distance(String s, String t, boolean ignoreCase)
+	{
+		char[] sChars = toChars(s, ignoreCase);
+		char[] tChars = toChars(t, ignoreCase);
+		if (sChars.length <= tChars.length)
+			return distance(new Pattern(sChars, ignoreCase), tChars);
+		return distance(new Pattern(tChars, ignoreCase), sChars);
+	}
+
+	/**
+	 * Get the Levenshtein distance between two compiled strings, using the shorter as the
+	 * pattern.
+	 * @param p the first pattern
+	 * @param q the second pattern, which must compare case the same way
+	 * @return the distance
+	 */
+	public static int distance(Pattern p, Pattern q)
+	{
+		if (p._ignoreCase != q._ignoreCase)
+			throw new IllegalArgumentException("Patterns compare case differently");
+		if (p._text.length <= q._text.length)
+			return distance(p, q._text);
+		return distance(q, p._text);
+	}
+
+	private static int distance(Pattern p, char[] text)
+	{
+		int m = p._text.length;
+		if (m == 0)
+			return text.length;
+		if (text.length == 0)
+			return m;
+
+		int blockCount = p._blockCount;
+		long[] positive = new long[blockCount];
+		long[] negative = new long[blockCount];
+		Arrays.fill(positive, -1L);
+		long lastBit = 1L << ((m - 1) & 63);
+		int score = m;
+
+		for (int j = 0; j < text.length; j++)
+		{
+			int a = p.indexOf(text[j]);
+			// the first row of the matrix grows by one per column
+			int hin = 1;
+			for (int b = 0; b < blockCount; b++)
+			{
+				long eq = a < 0 ? 0 : p._matches[a * blockCount + b];
+				long pv = positive[b];
+				long mv = negative[b];
+				long xv = eq | mv;
+				if (hin < 0)
+					eq |= 1;
+				long xh = (((eq & pv) + pv) ^ pv) | eq;
+				long ph = mv | ~(xh | pv);
+				long mh = pv & xh;
+				long high = b == blockCount - 1 ? lastBit : HIGH_BIT;
+				int hout = (ph & high) != 0 ? 1 : (mh & high) != 0 ? -1 : 0;
+				ph <<= 1;
+				mh <<= 1;
+				if (hin < 0)
+					mh |= 1;
+				else if (hin > 0)
+					ph |= 1;
+				positive[b] = mh | ~(xv | ph);
+				negative[b] = ph & xv;
+				hin = hout;
+			}
+			score += hin;
+		}
+		return score;
+	}
+
+	private static char[] toChars(String s, boolean ignoreCase)
+	{
+		char[] ret = s.toCharArray();
+		if (ignoreCase)
+		{
+			// character by character, as CharMatchScore compares, not String.toLowerCase
+			for (int i = 0; i < ret.length; i++)
+				ret[i] = Character.toLowerCase(ret[i]);
+		}
+		return ret;
+	}
+}
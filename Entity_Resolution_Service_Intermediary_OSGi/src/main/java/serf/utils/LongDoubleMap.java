@@ -0,0 +1,116 @@
+package serf.utils;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from primitive longs to primitive doubles, which does not
+ * box its keys or values.  Entries cannot be removed.
+ */
+public class LongDoubleMap
+{
+	private static final int INITIAL_CAPACITY = 64;
+
+	private long[] _keys;
+	private double[] _values;
+	private boolean[] _used;
+	private int _size;
+
+	public LongDoubleMap()
+	{
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Get the value stored for a key.
+	 * @param key the key
+	 * @return the value, or NaN if there is none
+	 */
+	public double get(long key)
+	{
+		int mask = _keys.length - 1;
+		for (int i = slot(key, mask); _used[i]; i = (i + 1) & mask)
+		{
+			if (_keys[i] == key)
+				return _values[i];
+		}
+		return Double.NaN;
+	}
+
+	public void put(long key, double value)
+	{
+		int mask = _keys.length - 1;
+		int i = slot(key, mask);
+		for (; _used[i]; i = (i + 1) & mask)
+		{
+			if (_keys[i] == key)
+			{
+				_values[i] = value;
+				return;
+			}
+		}
+		_keys[i] = key;
+		_values[i] = value;
+		_used[i] = true;
+		// keep the table at most half full
+		if (++_size * 2 > _keys.length)
+			rehash();
+	}
+
+	public int size()
+	{
+		return _size;
+	}
+
+	/**
+	 * @return the keys, in no particular order
+	 */
+	public long[] keys()
+	{
+		long[] ret = new long[_size];
+		int k = 0;
+		for (int i = 0; i < _keys.length; i++)
+		{
+			if (_used[i])
+				ret[k++] = _keys[i];
+		}
+		return ret;
+	}
+
+	public void clear()
+	{
+		Arrays.fill(_used, false);
+		_size = 0;
+	}
+
+	private static int slot(long key, int mask)
+	{
+		return HashMix.mix((int) (key ^ (key >>> 32))) & mask;
+	}
+
+	private void allocate(int capacity)
+	{
+		_keys = new long[capacity];
+		_values = new double[capacity];
+		_used = new boolean[capacity];
+	}
+
+	private void rehash()
+	{
+		long[] keys = _keys;
+		double[] values = _values;
+		boolean[] used = _used;
+		allocate(2 * keys.length);
+		int mask = _keys.length - 1;
+		for (int j = 0; j < keys.length; j++)
+		{
+			if (!used[j])
+				continue;
+			int i = slot(keys[j], mask);
+			while (_used[i])
+				i = (i + 1) & mask;
+			_keys[i] = keys[j];
+			_values[i] = values[j];
+			_used[i] = true;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package serf.utils;
+
+/**
+ * Accumulates the count, mean and variance of a series of observations in one pass, using
+ * Welford's update for single observations and Chan et al.'s pairwise formula to combine two
+ * accumulators, so that statistics can be gathered as records are merged rather than in a
+ * second pass over the results.
+ */
+public class RunningStatistics
+{
+	private long _count;
+	private double _mean;
+	/** sum of squared deviations from the mean */
+	private double _m2;
+
+	public RunningStatistics()
+	{
+	}
+
+	/**
+	 * Create an accumulator that has already seen count observations with the specified mean
+	 * and (population) standard deviation.
+	 */
+	public RunningStatistics(long count, double mean, double standardDeviation)
+	{
+		_count = count;
+		_mean = count == 0 ? 0 : mean;
+		_m2 = count == 0 ? 0 : standardDeviation * standardDeviation * count;
+	}
+
+	public void add(double observation)
+	{
+		_count++;
+		double delta = observation - _mean;
+		_mean += delta / _count;
+		_m2 += delta * (observation - _mean);
+	}
+
+	/**
+	 * Add all the observations accumulated by another instance to this one.  The other
+	 * instance is not changed.
+	 * @param other the other accumulator, or null
+	 */
+	public void add(RunningStatistics other)
+	{
+		if (other == null || other._count == 0)
+			return;
+		if (_count == 0)
+		{
+			_count = other._count;
+			_mean = other._mean;
+			_m2 = other._m2;
+			return;
+		}
+		long count = _count + other._count;
+		double delta = other._mean - _mean;
+		_mean += delta * other._count / count;
+		_m2 += other._m2 + delta * delta * _count * other._count / count;
+		_count = count;
+	}
+
+	public long getCount()
+	{
+		return _count;
+	}
+
+	/**
+	 * @return the mean of the observations, or zero if there are none
+	 */
+	public double getMean()
+	{
+		return _mean;
+	}
+
+	/**
+	 * @return the population variance of the observations, or zero if there are none
+	 */
+	public double getVariance()
+	{
+		return _count == 0 ? 0 : _m2 / _count;
+	}
+
+	public double getStandardDeviation()
+	{
+		return Math.sqrt(getVariance());
+	}
+
+	public String toString()
+	{
+		return "[count=" + _count + ", mean=" + _mean + ", standardDeviation=" + getStandardDeviation() + "]";
+	}
+}
@@ -0,0 +1,103 @@
+package serf.utils;
+
+import java.util.Arrays;
+
+/**
+ * A disjoint-set forest over the dense integers 0..n-1, with path halving and union by size.
+ * Used to compute the connected components of match and blocking graphs.
+ */
+public class UnionFind
+{
+	private int[] _parent;
+	private int[] _size;
+	private int _componentCount;
+
+	public UnionFind(int n)
+	{
+		_parent = new int[n];
+		_size = new int[n];
+		for (int i = 0; i < n; i++)
+		{
+			_parent[i] = i;
+			_size[i] = 1;
+		}
+		_componentCount = n;
+	}
+
+	/**
+	 * Find the representative of the component containing element i.
+	 * @param i the element
+	 * @return the representative element of i's component
+	 */
+	public int find(int i)
+	{
+		while (_parent[i] != i)
+		{
+			_parent[i] = _parent[_parent[i]];
+			i = _parent[i];
+		}
+		return i;
+	}
+
+	/**
+	 * Join the components containing elements i and j.
+	 * @param i the first element
+	 * @param j the second element
+	 * @return true if i and j were in different components before the call
+	 */
+	public boolean union(int i, int j)
+	{
+		int ri = find(i);
+		int rj = find(j);
+		if (ri == rj)
+			return false;
+
+		if (_size[ri] < _size[rj])
+		{
+			int tmp = ri;
+			ri = rj;
+			rj = tmp;
+		}
+		_parent[rj] = ri;
+		_size[ri] += _size[rj];
+		_componentCount--;
+		return true;
+	}
+
+	public boolean connected(int i, int j)
+	{
+		return find(i) == find(j);
+	}
+
+	public int size()
+	{
+		return _parent.length;
+	}
+
+	public int getComponentCount()
+	{
+		return _componentCount;
+	}
+
+	/**
+	 * Label every element with a dense component number, 0..getComponentCount()-1, assigned in
+	 * order of each component's lowest element.
+	 * @return an array mapping each element to its component number
+	 */
+	public int[] componentLabels()
+	{
+		int n = _parent.length;
+		int[] labels = new int[n];
+		int[] rootLabel = new int[n];
+		Arrays.fill(rootLabel, -1);
+		int next = 0;
+		for (int i = 0; i < n; i++)
+		{
+			int root = find(i);
+			if (rootLabel[root] == -1)
+				rootLabel[root] = next++;
+			labels[i] = rootLabel[root];
+		}
+		return labels;
+	}
+}
@@ -159,6 +159,87 @@ public abstract class AbstractStringMetric implements InterfaceStringMetric {
      */
     public abstract float getSimilarity(String string1, String string2);
 
+    /**
+     * gets the similarity measure of the metric for the given strings if it is at least the given threshold.
+     *
+     * By default the similarity is measured in full; metrics that can tell early that the threshold is out of reach
+     * override this.
+     *
+     * @param string1
+     * @param string2
+     * @param threshold the lowest similarity that must be measured exactly
+     *
+     * @return the similarity if it is at least threshold, otherwise a value below threshold
+     */
+    public float getSimilarityAtLeast(final String string1, final String string2, final float threshold) {
+        return getSimilarity(string1, string2);
+    }
+
+    /**
+     * returns whether the similarity of the strings is greater than the given threshold.
+     *
+     * @param string1
+     * @param string2
+     * @param threshold the similarity to exceed
+     *
+     * @return true if the similarity is greater than threshold
+     */
+    public final boolean matches(final String string1, final String string2, final float threshold) {
+        return getSimilarityAtLeast(string1, string2, threshold) > threshold;
+    }
+
+    /**
+     * prepares a string for comparison. By default nothing is precomputed; metrics that tokenise or encode strings
+     * override this to do so once.
+     *
+     * @param string the string to prepare
+     *
+     * @return the prepared string
+     */
+    public PreparedString prepare(final String string) {
+        return new PreparedString(string, this);
+    }
+
+    /**
+     * gets the similarity measure of the metric for two prepared strings. By default the plain strings are compared.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     *
+     * @return returns a value 0-1 of similarity 1 = similar 0 = not similar
+     */
+    public float getSimilarity(final PreparedString string1, final PreparedString string2) {
+        return getSimilarity(string1.getString(), string2.getString());
+    }
+
+    /**
+     * gets the similarity measure of the metric for two prepared strings if it is at least the given threshold. By
+     * default the plain strings are compared.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @param threshold the lowest similarity that must be measured exactly
+     *
+     * @return the similarity if it is at least threshold, otherwise a value below threshold
+     */
+    public float getSimilarityAtLeast(final PreparedString string1, final PreparedString string2, final float threshold) {
+        return getSimilarityAtLeast(string1.getString(), string2.getString(), threshold);
+    }
+
+    /**
+     * returns whether both strings were prepared by this metric in the given form, so that their precomputed
+     * features can be used.
+     *
+     * @param string1 a prepared string
+     * @param string2 a prepared string
+     * @param form the class of prepared string the metric prepares
+     *
+     * @return true if both strings were prepared by this metric in the given form
+     */
+    protected final boolean isPreparedHere(final PreparedString string1, final PreparedString string2, final Class<? extends PreparedString> form) {
+        return form.isInstance(string1) && form.isInstance(string2) && string1.isPreparedBy(this) && string2.isPreparedBy(this);
+    }
+
     /**
      * gets the un-normalised similarity measure of the metric for the given strings.
      *
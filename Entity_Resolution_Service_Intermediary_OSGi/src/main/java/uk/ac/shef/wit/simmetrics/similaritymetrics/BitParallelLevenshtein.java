@@ -0,0 +1,213 @@
+/**
+ * SimMetrics - SimMetrics is a java library of Similarity or Distance
+ * Metrics, e.g. Levenshtein Distance, that provide float based similarity
+ * measures between String Data. All metrics return consistant measures
+ * rather than unbounded similarity scores.
+ *
+ * Copyright (C) 2005 Sam Chapman - Open Source Release v1.1
+ *
+ * Please Feel free to contact me about this library, I would appreciate
+ * knowing quickly what you wish to use it for and any criticisms/comments
+ * upon the SimMetric library.
+ *
+ * email:       s.chapman@dcs.shef.ac.uk
+ * www:         http://www.dcs.shef.ac.uk/~sam/
+ * www:         http://www.dcs.shef.ac.uk/~sam/stringmetrics.html
+ *
+ * address:     Sam Chapman,
+ *              Department of Computer Science,
+ *              University of Sheffield,
+ *              Sheffield,
+ *              S. Yorks,
+ *              S1 4DP
+ *              United Kingdom,
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package uk.ac.shef.wit.simmetrics.similaritymetrics;
+
+import serf.utils.BitParallelEditDistance;
+
+import java.io.Serializable;
+
+/**
+ * Package: uk.ac.shef.wit.simmetrics.similaritymetrics
+ * Description: BitParallelLevenshtein implements the levenstein distance function by Myers' bit-vector algorithm,
+ * giving the same similarities as Levenshtein while advancing 64 cells of the distance matrix per word operation.
+ * Prepared strings keep their compiled match vectors, so a string compared many times is only compiled once.
+ */
+public final class BitParallelLevenshtein extends AbstractStringMetric implements Serializable {
+
+    /**
+     * a constant for calculating the estimated timing cost.
+     */
+    private final float ESTIMATEDTIMINGCONST = 1.8e-4f;
+
+    /**
+     * constructor - default (empty).
+     */
+    public BitParallelLevenshtein() {
+    }
+
+    /**
+     * returns the string identifier for the metric.
+     *
+     * @return the string identifier for the metric
+     */
+    public String getShortDescriptionString() {
+        return "BitParallelLevenshtein";
+    }
+
+    /**
+     * returns the long string identifier for the metric.
+     *
+     * @return the long string identifier for the metric
+     */
+    public String getLongDescriptionString() {
+        return "Implements the Levenshtein algorithm by bit-parallel computation of the distance matrix, providing a similarity measure between two strings";
+    }
+
+    /**
+     * gets a div class xhtml similarity explaining the operation of the metric.
+     *
+     * @param string1 string 1
+     * @param string2 string 2
+     *
+     * @return a div class html section detailing the metric operation.
+     */
+    public String getSimilarityExplained(String string1, String string2) {
+        //todo this should explain the operation of a given comparison
+        return null;
+    }
+
+    /**
+     * gets the estimated time in milliseconds it takes to perform a similarity timing.
+     *
+     * @param string1 string 1
+     * @param string2 string 2
+     *
+     * @return the estimated time in milliseconds taken to perform the similarity measure
+     */
+    public float getSimilarityTimingEstimated(final String string1, final String string2) {
+        //one step per 64 characters of the shorter string for each character of the longer
+        final float words = (Math.min(string1.length(), string2.length()) + 63) / 64;
+        final float str2Length = Math.max(string1.length(), string2.length());
+        return (words * str2Length) * ESTIMATEDTIMINGCONST;
+    }
+
+    /**
+     * gets the similarity of the two strings using levenstein distance.
+     *
+     * @param string1
+     * @param string2
+     * @return a value between 0-1 of the similarity
+     */
+    public float getSimilarity(final String string1, final String string2) {
+        return getSimilarity(getUnNormalisedSimilarity(string1, string2), string1.length(), string2.length());
+    }
+
+    /**
+     * prepares a string for comparison by compiling its match vectors.
+     *
+     * @param string the string to prepare
+     * @return the compiled string
+     */
+    public PreparedString prepare(final String string) {
+        if (string == null) {
+            return super.prepare(string);
+        }
+        return new PatternString(string, this, BitParallelEditDistance.compile(string, false));
+    }
+
+    /**
+     * gets the similarity of two prepared strings from their compiled match vectors.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @return a value between 0-1 of the similarity
+     */
+    public float getSimilarity(final PreparedString string1, final PreparedString string2) {
+        if (!isPreparedHere(string1, string2, PatternString.class)) {
+            return getSimilarity(string1.getString(), string2.getString());
+        }
+        final BitParallelEditDistance.Pattern pattern1 = ((PatternString) string1).pattern;
+        final BitParallelEditDistance.Pattern pattern2 = ((PatternString) string2).pattern;
+        return getSimilarity(BitParallelEditDistance.distance(pattern1, pattern2), pattern1.length(), pattern2.length());
+    }
+
+    /**
+     * gets the similarity of two prepared strings from their compiled match vectors; the whole distance costs little
+     * more than its bound would, so it is always measured exactly.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @param threshold the lowest similarity that must be measured exactly
+     * @return a value between 0-1 of the similarity
+     */
+    public float getSimilarityAtLeast(final PreparedString string1, final PreparedString string2, final float threshold) {
+        return getSimilarity(string1, string2);
+    }
+
+    /**
+     * gets the similarity for a levenstein distance, exactly as Levenshtein computes it.
+     *
+     * @param distance the levenstein distance
+     * @param length1 the length of string 1
+     * @param length2 the length of string 2
+     * @return a value between 0-1 of the similarity
+     */
+    private static float getSimilarity(final float distance, final int length1, final int length2) {
+        final float maxLen = Math.max(length1, length2);
+        if (maxLen == 0) {
+            return 1.0f; //as both strings identically zero length
+        }
+        return 1.0f - (distance / maxLen);
+    }
+
+    /**
+     * implements the levenstein distance function.
+     *
+     * @param s
+     * @param t
+     * @return the levenstein distance between given strings
+     */
+    public float getUnNormalisedSimilarity(final String s, final String t) {
+        return BitParallelEditDistance.distance(s, t, false);
+    }
+
+    /**
+     * PatternString is a string prepared for bit-parallel comparison, holding its compiled match vectors.
+     */
+    private static final class PatternString extends PreparedString {
+
+        /**
+         * the compiled string.
+         */
+        private final BitParallelEditDistance.Pattern pattern;
+
+        /**
+         * constructor.
+         *
+         * @param string the string compiled
+         * @param metric the metric preparing the string
+         * @param pattern the compiled string
+         */
+        private PatternString(final String string, final InterfaceStringMetric metric, final BitParallelEditDistance.Pattern pattern) {
+            super(string, metric);
+            this.pattern = pattern;
+        }
+    }
+}
@@ -43,9 +43,6 @@ import uk.ac.shef.wit.simmetrics.tokenisers.InterfaceTokeniser;
 import uk.ac.shef.wit.simmetrics.tokenisers.TokeniserWhitespace;
 
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.ArrayList;
 
 /**
  * Package: uk.ac.shef.wit.simmetrics.similaritymetrics.blockdistance
@@ -140,12 +137,59 @@ public final class BlockDistance extends AbstractStringMetric implements Seriali
      * @return a 0-1 similarity score
      */
     public float getSimilarity(final String string1, final String string2) {
-        final ArrayList<String> str1Tokens = tokeniser.tokenizeToArrayList(string1);
-        final ArrayList<String> str2Tokens = tokeniser.tokenizeToArrayList(string2);
+        return getSimilarity(new TokenProfile(tokeniser.tokenizeToArrayList(string1)), new TokenProfile(tokeniser.tokenizeToArrayList(string2)));
+    }
 
-        final float totalPossible = (float)(str1Tokens.size() + str2Tokens.size());
+    /**
+     * prepares a string for comparison by tokenising it.
+     *
+     * @param string the string to prepare
+     * @return the tokenised string
+     */
+    public PreparedString prepare(final String string) {
+        if (string == null) {
+            return super.prepare(string);
+        }
+        return new TokenisedString(string, this, tokeniser);
+    }
+
+    /**
+     * gets the similarity of two prepared strings, if it is at least the given threshold. The measure is cheap once
+     * the strings are tokenised, so it is always measured in full.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @param threshold the lowest similarity that must be measured exactly
+     * @return the similarity
+     */
+    public float getSimilarityAtLeast(final PreparedString string1, final PreparedString string2, final float threshold) {
+        return getSimilarity(string1, string2);
+    }
 
-        final float totalDistance = getUnNormalisedSimilarity(string1, string2);
+    /**
+     * gets the similarity of two prepared strings using BlockDistance, from their precomputed tokens.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @return a value between 0-1 of the similarity
+     */
+    public float getSimilarity(final PreparedString string1, final PreparedString string2) {
+        if (!isPreparedHere(string1, string2, TokenisedString.class)) {
+            return getSimilarity(string1.getString(), string2.getString());
+        }
+        return getSimilarity(((TokenisedString) string1).getProfile(), ((TokenisedString) string2).getProfile());
+    }
+
+    /**
+     * gets the similarity of two token profiles using BlockDistance.
+     *
+     * @param profile1 the token profile of string 1
+     * @param profile2 the token profile of string 2
+     * @return a value between 0-1 of the similarity
+     */
+    private static float getSimilarity(final TokenProfile profile1, final TokenProfile profile2) {
+        final float totalPossible = (float) (profile1.getTokenCount() + profile2.getTokenCount());
+        final float totalDistance = profile1.getTokenCountDifference(profile2);
         return (totalPossible - totalDistance) / totalPossible;
     }
 
@@ -157,37 +201,9 @@ public final class BlockDistance extends AbstractStringMetric implements Seriali
      * @return a block distance similarity score
      */
     public float getUnNormalisedSimilarity(final String string1, final String string2) {
-        final ArrayList<String> str1Tokens = tokeniser.tokenizeToArrayList(string1);
-        final ArrayList<String> str2Tokens = tokeniser.tokenizeToArrayList(string2);
-
-        final Set<Object> allTokens = new HashSet<Object>();
-        allTokens.addAll(str1Tokens);
-        allTokens.addAll(str2Tokens);
-
-        int totalDistance = 0;
-        for (Object allToken : allTokens) {
-            final String token = (String) allToken;
-            int countInString1 = 0;
-            int countInString2 = 0;
-            for (Object str1Token : str1Tokens) {
-                final String sToken = (String) str1Token;
-                if (sToken.equals(token)) {
-                    countInString1++;
-                }
-            }
-            for (Object str2Token : str2Tokens) {
-                final String sToken = (String) str2Token;
-                if (sToken.equals(token)) {
-                    countInString2++;
-                }
-            }
-            if (countInString1 > countInString2) {
-                totalDistance += (countInString1 - countInString2);
-            } else {
-                totalDistance += (countInString2 - countInString1);
-            }
-        }
-        return totalDistance;
+        final TokenProfile profile1 = new TokenProfile(tokeniser.tokenizeToArrayList(string1));
+        final TokenProfile profile2 = new TokenProfile(tokeniser.tokenizeToArrayList(string2));
+        return profile1.getTokenCountDifference(profile2);
     }
 }
 
@@ -42,9 +42,6 @@ package uk.ac.shef.wit.simmetrics.similaritymetrics;
 import uk.ac.shef.wit.simmetrics.tokenisers.InterfaceTokeniser;
 import uk.ac.shef.wit.simmetrics.tokenisers.TokeniserWhitespace;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.ArrayList;
 import java.io.Serializable;
 
 /**
@@ -141,21 +138,60 @@ public final class DiceSimilarity extends AbstractStringMetric implements Serial
      * @return a value between 0-1 of the similarity
      */
     public float getSimilarity(final String string1, final String string2) {
-        final ArrayList<String> str1Tokens = tokeniser.tokenizeToArrayList(string1);
-        final ArrayList<String> str2Tokens = tokeniser.tokenizeToArrayList(string2);
+        return getSimilarity(new TokenProfile(tokeniser.tokenizeToArrayList(string1)), new TokenProfile(tokeniser.tokenizeToArrayList(string2)));
+    }
+
+    /**
+     * prepares a string for comparison by tokenising it.
+     *
+     * @param string the string to prepare
+     * @return the tokenised string
+     */
+    public PreparedString prepare(final String string) {
+        if (string == null) {
+            return super.prepare(string);
+        }
+        return new TokenisedString(string, this, tokeniser);
+    }
 
-        final Set<String> allTokens = new HashSet<String>();
-        allTokens.addAll(str1Tokens);
-        final int termsInString1 = allTokens.size();
-        final Set<String> secondStringTokens = new HashSet<String>();
-        secondStringTokens.addAll(str2Tokens);
-        final int termsInString2 = secondStringTokens.size();
+    /**
+     * gets the similarity of two prepared strings, if it is at least the given threshold. The measure is cheap once
+     * the strings are tokenised, so it is always measured in full.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @param threshold the lowest similarity that must be measured exactly
+     * @return the similarity
+     */
+    public float getSimilarityAtLeast(final PreparedString string1, final PreparedString string2, final float threshold) {
+        return getSimilarity(string1, string2);
+    }
 
-        //now combine the sets
-        allTokens.addAll(secondStringTokens);
-        final int commonTerms = (termsInString1 + termsInString2) - allTokens.size();
+    /**
+     * gets the similarity of two prepared strings using DiceSimilarity, from their precomputed tokens.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @return a value between 0-1 of the similarity
+     */
+    public float getSimilarity(final PreparedString string1, final PreparedString string2) {
+        if (!isPreparedHere(string1, string2, TokenisedString.class)) {
+            return getSimilarity(string1.getString(), string2.getString());
+        }
+        return getSimilarity(((TokenisedString) string1).getProfile(), ((TokenisedString) string2).getProfile());
+    }
 
-        //return Dices coefficient = (2*Common Terms) / (Number of terms in String1 + Number of terms in String2)
+    /**
+     * gets the similarity of two token profiles using DiceSimilarity.
+     *
+     * @param profile1 the token profile of string 1
+     * @param profile2 the token profile of string 2
+     * @return a value between 0-1 of the similarity
+     */
+    private static float getSimilarity(final TokenProfile profile1, final TokenProfile profile2) {
+        final int termsInString1 = profile1.getDistinctTokenCount();
+        final int termsInString2 = profile2.getDistinctTokenCount();
+        final int commonTerms = profile1.getCommonTokenCount(profile2);
         return (2.0f * commonTerms) / (termsInString1 + termsInString2);
     }
 
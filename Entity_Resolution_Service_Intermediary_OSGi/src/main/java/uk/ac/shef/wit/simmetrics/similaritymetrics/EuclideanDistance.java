@@ -142,10 +142,61 @@ public final class EuclideanDistance extends AbstractStringMetric implements Ser
      * @return a value between 0-1 of the similarity 1.0 identical
      */
     public float getSimilarity(final String string1, final String string2) {
-        final ArrayList<String> str1Tokens = tokeniser.tokenizeToArrayList(string1);
-        final ArrayList<String> str2Tokens = tokeniser.tokenizeToArrayList(string2);
-        float totalPossible = (float) Math.sqrt((str1Tokens.size()*str1Tokens.size()) + (str2Tokens.size()*str2Tokens.size()));
-        final float totalDistance = getUnNormalisedSimilarity(string1, string2);
+        return getSimilarity(new TokenProfile(tokeniser.tokenizeToArrayList(string1)), new TokenProfile(tokeniser.tokenizeToArrayList(string2)));
+    }
+
+    /**
+     * prepares a string for comparison by tokenising it.
+     *
+     * @param string the string to prepare
+     * @return the tokenised string
+     */
+    public PreparedString prepare(final String string) {
+        if (string == null) {
+            return super.prepare(string);
+        }
+        return new TokenisedString(string, this, tokeniser);
+    }
+
+    /**
+     * gets the similarity of two prepared strings, if it is at least the given threshold. The measure is cheap once
+     * the strings are tokenised, so it is always measured in full.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @param threshold the lowest similarity that must be measured exactly
+     * @return the similarity
+     */
+    public float getSimilarityAtLeast(final PreparedString string1, final PreparedString string2, final float threshold) {
+        return getSimilarity(string1, string2);
+    }
+
+    /**
+     * gets the similarity of two prepared strings using EuclideanDistance, from their precomputed tokens.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @return a value between 0-1 of the similarity
+     */
+    public float getSimilarity(final PreparedString string1, final PreparedString string2) {
+        if (!isPreparedHere(string1, string2, TokenisedString.class)) {
+            return getSimilarity(string1.getString(), string2.getString());
+        }
+        return getSimilarity(((TokenisedString) string1).getProfile(), ((TokenisedString) string2).getProfile());
+    }
+
+    /**
+     * gets the similarity of two token profiles using EuclideanDistance.
+     *
+     * @param profile1 the token profile of string 1
+     * @param profile2 the token profile of string 2
+     * @return a value between 0-1 of the similarity
+     */
+    private static float getSimilarity(final TokenProfile profile1, final TokenProfile profile2) {
+        final int tokenCount1 = profile1.getTokenCount();
+        final int tokenCount2 = profile2.getTokenCount();
+        final float totalPossible = (float) Math.sqrt((tokenCount1 * tokenCount1) + (tokenCount2 * tokenCount2));
+        final float totalDistance = getDistance(profile1, profile2);
         return (totalPossible - totalDistance) / totalPossible;
     }
 
@@ -157,33 +208,18 @@ public final class EuclideanDistance extends AbstractStringMetric implements Ser
      * @return returns the score of the similarity measure (un-normalised)
      */
     public float getUnNormalisedSimilarity(String string1, String string2) {
-        final ArrayList<String> str1Tokens = tokeniser.tokenizeToArrayList(string1);
-        final ArrayList<String> str2Tokens = tokeniser.tokenizeToArrayList(string2);
-
-        final Set<String> allTokens = new HashSet<String>();
-        allTokens.addAll(str1Tokens);
-        allTokens.addAll(str2Tokens);
-
-        float totalDistance = 0.0f;
-        for (final String token : allTokens) {
-            int countInString1 = 0;
-            int countInString2 = 0;
-            for (final String sToken : str1Tokens) {
-                if (sToken.equals(token)) {
-                    countInString1++;
-                }
-            }
-            for (final String sToken : str2Tokens) {
-                if (sToken.equals(token)) {
-                    countInString2++;
-                }
-            }
-
-            totalDistance += ((countInString1 - countInString2) * (countInString1 - countInString2));
-        }
+        return getDistance(new TokenProfile(tokeniser.tokenizeToArrayList(string1)), new TokenProfile(tokeniser.tokenizeToArrayList(string2)));
+    }
 
-        totalDistance = (float) Math.sqrt(totalDistance);
-        return totalDistance;
+    /**
+     * gets the euclidean distance between two token profiles.
+     *
+     * @param profile1 the token profile of string 1
+     * @param profile2 the token profile of string 2
+     * @return the euclidean distance between the token counts
+     */
+    private static float getDistance(final TokenProfile profile1, final TokenProfile profile2) {
+        return (float) Math.sqrt((float) profile1.getSquaredTokenCountDifference(profile2));
     }
 
     /**
@@ -94,6 +94,62 @@ public interface InterfaceStringMetric {
      */
     public float getSimilarity(String string1, String string2);
 
+    /**
+     * returns a similarity measure of the string comparison if it is at least the given threshold.
+     *
+     * Below the threshold, some value below the threshold is returned instead, so the metric can stop as soon as the
+     * threshold is out of reach.
+     *
+     * @param string1
+     * @param string2
+     * @param threshold the lowest similarity that must be measured exactly
+     *
+     * @return the similarity if it is at least threshold, otherwise a value below threshold
+     */
+    public float getSimilarityAtLeast(String string1, String string2, float threshold);
+
+    /**
+     * returns whether the similarity of the strings is greater than the given threshold.
+     *
+     * @param string1
+     * @param string2
+     * @param threshold the similarity to exceed
+     *
+     * @return true if the similarity is greater than threshold
+     */
+    public boolean matches(String string1, String string2, float threshold);
+
+    /**
+     * prepares a string for comparison, doing once whatever work the metric would otherwise repeat on every
+     * comparison of the string.
+     *
+     * @param string the string to prepare
+     *
+     * @return the prepared string
+     */
+    public PreparedString prepare(String string);
+
+    /**
+     * returns a similarity measure of the comparison of two prepared strings.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     *
+     * @return a float between zero to one (zero = no similarity, one = matching strings)
+     */
+    public float getSimilarity(PreparedString string1, PreparedString string2);
+
+    /**
+     * returns a similarity measure of the comparison of two prepared strings if it is at least the given threshold.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @param threshold the lowest similarity that must be measured exactly
+     *
+     * @return the similarity if it is at least threshold, otherwise a value below threshold
+     */
+    public float getSimilarityAtLeast(PreparedString string1, PreparedString string2, float threshold);
+
     /**
      * returns a similarity measure of the string comparison.
      *
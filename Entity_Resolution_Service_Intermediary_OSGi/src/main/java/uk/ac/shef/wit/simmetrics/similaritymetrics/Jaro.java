@@ -59,6 +59,15 @@ public final class Jaro extends AbstractStringMetric implements Serializable {
      */
     private final float ESTIMATEDTIMINGCONST = 4.12e-5f;
 
+    /**
+     * bit sets of matched and used positions, reused by each thread so that comparisons do not allocate.
+     */
+    private static final ThreadLocal<long[]> FLAGS = new ThreadLocal<long[]>() {
+        protected long[] initialValue() {
+            return new long[8];
+        }
+    };
+
     /**
      * constructor - default (empty).
      */
@@ -120,36 +129,85 @@ public final class Jaro extends AbstractStringMetric implements Serializable {
      * @return a value between 0-1 of the similarity
      */
     public float getSimilarity(final String string1, final String string2) {
+        return getSimilarity(string1, string2, 0);
+    }
+
+    /**
+     * gets the similarity of the two strings using Jaro distance, if it is at least the given threshold.
+     *
+     * The score can be no more than it would be if every character of the shorter string were common and none were
+     * transposed, so the threshold sets a minimum number of common characters, and the search for them stops once too
+     * few characters remain to reach it.
+     *
+     * @param string1 the first input string
+     * @param string2 the second input string
+     * @param threshold the lowest similarity that must be measured exactly
+     * @return a value between 0-1 of the similarity if it is at least threshold, otherwise a value below threshold
+     */
+    public float getSimilarityAtLeast(final String string1, final String string2, final float threshold) {
+        final int maxCommon = Math.min(string1.length(), string2.length());
+        if (maxCommon == 0) {
+            return 0.0f;
+        }
+        if (getUpperBound(string1, string2, maxCommon) < threshold) {
+            return getUpperBound(string1, string2, maxCommon);
+        }
+        //the fewest common characters that could still reach the threshold
+        int minCommon = maxCommon;
+        while (minCommon > 0 && getUpperBound(string1, string2, minCommon - 1) >= threshold) {
+            minCommon--;
+        }
+        return getSimilarity(string1, string2, minCommon);
+    }
+
+    /**
+     * gets the similarity of the two strings using Jaro distance, giving up if they have fewer than minCommon common
+     * characters.
+     *
+     * @param string1 the first input string
+     * @param string2 the second input string
+     * @param minCommon the fewest common characters for which the similarity must be measured exactly
+     * @return a value between 0-1 of the similarity, or if there are too few common characters, the most it could be
+     */
+    private float getSimilarity(final String string1, final String string2, final int minCommon) {
 
         //get half the length of the string rounded up - (this is the distance used for acceptable transpositions)
         final int halflen = ((Math.min(string1.length(), string2.length())) / 2) + ((Math.min(string1.length(), string2.length())) % 2);
 
+        //lay out the bit sets of matched and used positions, looking from string1 then from string2
+        final int words1 = (string1.length() + 63) >>> 6;
+        final int words2 = (string2.length() + 63) >>> 6;
+        final int used1 = words1;
+        final int matched2 = used1 + words2;
+        final int used2 = matched2 + words2;
+        final long[] flags = getFlags(used2 + words1);
+
         //get common characters
-        final StringBuffer common1 = getCommonCharacters(string1, string2, halflen);
-        final StringBuffer common2 = getCommonCharacters(string2, string1, halflen);
+        final int common1 = getCommonCharacters(string1, string2, halflen, minCommon, flags, 0, used1);
+        if (common1 < 0) {
+            return getUpperBound(string1, string2, minCommon - 1);
+        }
+        //fewer common characters the other way round would give a zero score anyway
+        final int common2 = getCommonCharacters(string2, string1, halflen, common1, flags, matched2, used2);
 
         //check for zero in common
-        if (common1.length() == 0 || common2.length() == 0) {
+        if (common1 == 0 || common2 <= 0) {
             return 0.0f;
         }
 
         //check for same length common strings returning 0.0f is not the same
-        if (common1.length() != common2.length()) {
+        if (common1 != common2) {
             return 0.0f;
         }
 
         //get the number of transpositions
-        int transpositions = 0;
-        for (int i = 0; i < common1.length(); i++) {
-            if (common1.charAt(i) != common2.charAt(i))
-                transpositions++;
-        }
+        int transpositions = getTranspositions(string1, string2, flags, 0, words1, matched2, words2);
         transpositions /= 2.0f;
 
         //calculate jaro metric
-        return (common1.length() / ((float) string1.length()) +
-                common2.length() / ((float) string2.length()) +
-                (common1.length() - transpositions) / ((float) common1.length())) / 3.0f;
+        return (common1 / ((float) string1.length()) +
+                common2 / ((float) string2.length()) +
+                (common1 - transpositions) / ((float) common1)) / 3.0f;
     }
 
     /**
@@ -165,37 +223,120 @@ public final class Jaro extends AbstractStringMetric implements Serializable {
     }
 
     /**
-     * returns a string buffer of characters from string1 within string2 if they are of a given
-     * distance seperation from the position in string1.
+     * gets the Jaro similarity the two strings would have with the given number of common characters, were none of
+     * them transposed.
+     *
+     * @param string1 the first input string
+     * @param string2 the second input string
+     * @param common the number of common characters
+     * @return an upper bound on the similarity
+     */
+    private static float getUpperBound(final String string1, final String string2, final int common) {
+        return (common / ((float) string1.length()) +
+                common / ((float) string2.length()) +
+                1.0f) / 3.0f;
+    }
+
+    /**
+     * gets a cleared bit set of the given number of words, reused by the calling thread.
+     *
+     * @param words the number of words needed
+     * @return the bit set
+     */
+    private static long[] getFlags(final int words) {
+        long[] flags = FLAGS.get();
+        if (flags.length < words) {
+            flags = new long[Math.max(words, 2 * flags.length)];
+            FLAGS.set(flags);
+        }
+        for (int k = 0; k < words; k++) {
+            flags[k] = 0;
+        }
+        return flags;
+    }
+
+    /**
+     * counts the characters from string1 within string2 if they are of a given distance seperation from the position
+     * in string1, marking them in the bit set at matched, and the characters of string2 they take up in the bit set
+     * at used. A character of string2 already taken up reads as (char) 0.
      *
      * @param string1
      * @param string2
      * @param distanceSep
-     * @return a string buffer of characters from string1 within string2 if they are of a given
-     *         distance seperation from the position in string1
+     * @param minCommon the fewest common characters worth finding
+     * @param flags the bit sets
+     * @param matched the first word of the bit set of matched positions of string1
+     * @param used the first word of the bit set of used positions of string2
+     * @return the number of characters from string1 within string2 if they are of a given distance seperation from
+     *         the position in string1, or -1 if there are fewer than minCommon
      */
-    private static StringBuffer getCommonCharacters(final String string1, final String string2, final int distanceSep) {
-        //create a return buffer of characters
-        final StringBuffer returnCommons = new StringBuffer();
-        //create a copy of string2 for processing
-        final StringBuffer copy = new StringBuffer(string2);
+    private static int getCommonCharacters(final String string1, final String string2, final int distanceSep, final int minCommon,
+                                           final long[] flags, final int matched, final int used) {
+        int common = 0;
         //iterate over string1
         for (int i = 0; i < string1.length(); i++) {
+            //give up once the characters left could not make up minCommon
+            if (common + string1.length() - i < minCommon) {
+                return -1;
+            }
             final char ch = string1.charAt(i);
-            //set boolean for quick loop exit if found
-            boolean foundIt = false;
             //compare char with range of characters to either side
-            for (int j = Math.max(0, i - distanceSep); !foundIt && j < Math.min(i + distanceSep, string2.length() - 1); j++) {
+            final int to = Math.min(i + distanceSep, string2.length() - 1);
+            for (int j = Math.max(0, i - distanceSep); j < to; j++) {
+                final char cj = string2.charAt(j);
+                if (cj != ch && ch != (char) 0) {
+                    continue;
+                }
+                final boolean isUsed = (flags[used + (j >>> 6)] & (1L << j)) != 0;
                 //check if found
-                if (copy.charAt(j) == ch) {
-                    foundIt = true;
-                    //append character found
-                    returnCommons.append(ch);
-                    //alter copied string2 for processing
-                    copy.setCharAt(j, (char)0);
+                if (isUsed ? ch == (char) 0 : cj == ch) {
+                    //mark the character found in both strings
+                    flags[used + (j >>> 6)] |= 1L << j;
+                    flags[matched + (i >>> 6)] |= 1L << i;
+                    common++;
+                    break;
                 }
             }
         }
-        return returnCommons;
+        return common;
+    }
+
+    /**
+     * counts the matched characters of string1 and string2, taken in order, that differ.
+     *
+     * @param string1
+     * @param string2
+     * @param flags the bit sets
+     * @param matched1 the first word of the bit set of matched positions of string1
+     * @param words1 the number of words of that bit set
+     * @param matched2 the first word of the bit set of matched positions of string2
+     * @param words2 the number of words of that bit set
+     * @return the number of differing pairs, twice the number of transpositions
+     */
+    private static int getTranspositions(final String string1, final String string2, final long[] flags,
+                                         final int matched1, final int words1, final int matched2, final int words2) {
+        int transpositions = 0;
+        int k1 = 0;
+        int k2 = 0;
+        long bits1 = words1 > 0 ? flags[matched1] : 0;
+        long bits2 = words2 > 0 ? flags[matched2] : 0;
+        while (true) {
+            while (bits1 == 0 && ++k1 < words1) {
+                bits1 = flags[matched1 + k1];
+            }
+            while (bits2 == 0 && ++k2 < words2) {
+                bits2 = flags[matched2 + k2];
+            }
+            if (bits1 == 0 || bits2 == 0) {
+                return transpositions;
+            }
+            final int i = (k1 << 6) + Long.numberOfTrailingZeros(bits1);
+            final int j = (k2 << 6) + Long.numberOfTrailingZeros(bits2);
+            if (string1.charAt(i) != string2.charAt(j)) {
+                transpositions++;
+            }
+            bits1 &= bits1 - 1;
+            bits2 &= bits2 - 1;
+        }
     }
 }
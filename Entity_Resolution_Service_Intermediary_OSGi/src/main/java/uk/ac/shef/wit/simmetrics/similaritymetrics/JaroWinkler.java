@@ -75,6 +75,11 @@ public final class JaroWinkler extends AbstractStringMetric implements Serializa
      */
     private static final float PREFIXADUSTMENTSCALE = 0.1f;
 
+    /**
+     * how far below the exact Jaro threshold to bound the Jaro score.
+     */
+    private static final float JAROTHRESHOLDMARGIN = 1e-4f;
+
     /**
      * constructor - default (empty).
      */
@@ -145,6 +150,33 @@ public final class JaroWinkler extends AbstractStringMetric implements Serializa
         return dist + ((float) prefixLength * PREFIXADUSTMENTSCALE * (1.0f - dist));
     }
 
+    /**
+     * gets the similarity measure of the JaroWinkler metric for the given strings, if it is at least the given
+     * threshold.
+     *
+     * The prefix adjustment grows with the Jaro score, so the threshold translates into a threshold on the Jaro score,
+     * which is bounded in turn.
+     *
+     * @param string1
+     * @param string2
+     * @param threshold the lowest similarity that must be measured exactly
+     * @return 0-1 similarity measure of the JaroWinkler metric if it is at least threshold, otherwise a value below
+     *         threshold
+     */
+    public float getSimilarityAtLeast(final String string1, final String string2, final float threshold) {
+        final int prefixLength = getPrefixLength(string1, string2);
+        final float prefixScale = (float) prefixLength * PREFIXADUSTMENTSCALE;
+        //a little lower than needed, for rounding
+        final float jaroThreshold = (threshold - prefixScale) / (1.0f - prefixScale) - JAROTHRESHOLDMARGIN;
+        final float dist = internalStringMetric.getSimilarityAtLeast(string1, string2, jaroThreshold);
+        final float similarity = dist + ((float) prefixLength * PREFIXADUSTMENTSCALE * (1.0f - dist));
+        if (dist < jaroThreshold && similarity >= threshold) {
+            //a bounded Jaro score that rounds to the threshold, so measure it in full
+            return getSimilarity(string1, string2);
+        }
+        return similarity;
+    }
+
     /**
      * gets the un-normalised similarity measure of the metric for the given strings.
      *
@@ -146,6 +146,85 @@ public final class Levenshtein extends AbstractStringMetric implements Serializa
 
     }
 
+    /**
+     * gets the similarity of the two strings using levenstein distance, if it is at least the given threshold.
+     *
+     * Uses Ukkonen's cutoff: only cells within a band around the diagonal can hold a small enough distance, and once a
+     * whole row of the matrix is over the largest distance the threshold allows, so is the final distance.
+     *
+     * @param string1
+     * @param string2
+     * @param threshold the lowest similarity that must be measured exactly
+     * @return a value between 0-1 of the similarity if it is at least threshold, otherwise a value below threshold
+     */
+    public float getSimilarityAtLeast(final String string1, final String string2, final float threshold) {
+        final float maxLen = Math.max(string1.length(), string2.length());
+        if (maxLen == 0) {
+            return 1.0f;
+        }
+        //the largest distance with a similarity of at least threshold
+        final float maxDistance = (1.0f - threshold) * maxLen;
+        final float levensteinDistance = getBoundedUnNormalisedSimilarity(string1, string2, maxDistance);
+        final float similarity = 1.0f - (levensteinDistance / maxLen);
+        if (levensteinDistance > maxDistance && similarity >= threshold) {
+            //a cut off distance that rounds to the threshold, so measure it in full
+            return getSimilarity(string1, string2);
+        }
+        return similarity;
+    }
+
+    /**
+     * implements the levenstein distance function, giving up once the distance is known to be over maxDistance.
+     *
+     * @param s
+     * @param t
+     * @param maxDistance the largest distance that must be computed exactly
+     * @return the levenstein distance between given strings if at most maxDistance, otherwise a distance over
+     *         maxDistance that is no more than the actual distance
+     */
+    private float getBoundedUnNormalisedSimilarity(final String s, final String t, final float maxDistance) {
+        final int n = s.length();
+        final int m = t.length();
+        if (n == 0) {
+            return m;
+        }
+        if (m == 0) {
+            return n;
+        }
+        //cell (i, j) is at least |i - j| away, so only cells within the band can matter; one wider for rounding
+        final int band = (int) Math.min(Math.max(n, m), Math.floor(maxDistance) + 1);
+        if (Math.abs(n - m) > band) {
+            return Math.abs(n - m);
+        }
+        float[] previous = new float[m + 1];
+        float[] current = new float[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j <= band ? j : Float.POSITIVE_INFINITY;
+        }
+        for (int i = 1; i <= n; i++) {
+            final int from = Math.max(1, i - band);
+            final int to = Math.min(m, i + band);
+            current[from - 1] = from == 1 && i <= band ? i : Float.POSITIVE_INFINITY;
+            float rowMin = current[from - 1];
+            for (int j = from; j <= to; j++) {
+                final float cost = dCostFunc.getCost(s, i - 1, t, j - 1);
+                current[j] = MathFuncs.min3(previous[j] + 1, current[j - 1] + 1, previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < m) {
+                current[to + 1] = Float.POSITIVE_INFINITY;
+            }
+            if (rowMin > maxDistance) {
+                //distances never shrink from one row to the next
+                return rowMin;
+            }
+            final float[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m];
+    }
+
     /**
      * implements the levenstein distance function
      * <p/>
@@ -184,6 +184,59 @@ public class MongeElkan extends AbstractStringMetric implements Serializable {
         return sumMatches / (float) str1Tokens.size();
     }
 
+    /**
+     * prepares a string for comparison by tokenising it.
+     *
+     * @param string the string to prepare
+     * @return the tokenised string
+     */
+    public PreparedString prepare(final String string) {
+        if (string == null) {
+            return super.prepare(string);
+        }
+        return new TokenisedString(string, this, tokeniser);
+    }
+
+    /**
+     * gets the similarity of two prepared strings, if it is at least the given threshold. The measure is cheap once
+     * the strings are tokenised, so it is always measured in full.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @param threshold the lowest similarity that must be measured exactly
+     * @return the similarity
+     */
+    public float getSimilarityAtLeast(final PreparedString string1, final PreparedString string2, final float threshold) {
+        return getSimilarity(string1, string2);
+    }
+
+    /**
+     * gets the similarity of two prepared strings using MongeElkan, from their precomputed tokens.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @return a value between 0-1 of the similarity
+     */
+    public float getSimilarity(final PreparedString string1, final PreparedString string2) {
+        if (!isPreparedHere(string1, string2, TokenisedString.class)) {
+            return getSimilarity(string1.getString(), string2.getString());
+        }
+        final TokenisedString tokens1 = (TokenisedString) string1;
+        final TokenisedString tokens2 = (TokenisedString) string2;
+        float sumMatches = 0.0f;
+        for (String str1Token : tokens1.getTokens()) {
+            float maxFound = 0.0f;
+            for (String str2Token : tokens2.getTokens()) {
+                final float found = internalStringMetric.getSimilarity(str1Token, str2Token);
+                if (found > maxFound) {
+                    maxFound = found;
+                }
+            }
+            sumMatches += maxFound;
+        }
+        return sumMatches / (float) tokens1.getTokens().size();
+    }
+
     /**
      * gets the un-normalised similarity measure of the metric for the given strings.
      *
@@ -240,6 +240,97 @@ public final class NeedlemanWunch extends AbstractStringMetric implements Serial
 
     }
 
+    /**
+     * gets the similarity of the two strings using Needleman Wunch distance, if it is at least the given threshold.
+     *
+     * When no cost is negative, distances never shrink along an alignment, so only a band of cells around the
+     * diagonal needs computing, and the computation stops once a whole row is over the largest distance the threshold
+     * allows.
+     *
+     * @param string1
+     * @param string2
+     * @param threshold the lowest similarity that must be measured exactly
+     * @return a value between 0-1 of the similarity if it is at least threshold, otherwise a value below threshold
+     */
+    public float getSimilarityAtLeast(final String string1, final String string2, final float threshold) {
+        if (gapCost < 0.0f || dCostFunc.getMinCost() < 0.0f) {
+            return getSimilarity(string1, string2);
+        }
+        //normalise as getSimilarity does, which with no negative cost needs no shift
+        float maxValue = Math.max(string1.length(), string2.length());
+        maxValue *= Math.max(dCostFunc.getMaxCost(), gapCost);
+        if (maxValue == 0) {
+            return 1.0f;
+        }
+        //the largest distance with a similarity of at least threshold
+        final float maxDistance = (1.0f - threshold) * maxValue;
+        final float needlemanWunch = getBoundedUnNormalisedSimilarity(string1, string2, maxDistance);
+        final float similarity = 1.0f - (needlemanWunch / maxValue);
+        if (needlemanWunch > maxDistance && similarity >= threshold) {
+            //a cut off distance that rounds to the threshold, so measure it in full
+            return getSimilarity(string1, string2);
+        }
+        return similarity;
+    }
+
+    /**
+     * implements the NeedlemanWunch distance function, giving up once the distance is known to be over maxDistance.
+     *
+     * @param s
+     * @param t
+     * @param maxDistance the largest distance that must be computed exactly
+     * @return the NeedlemanWunch distance for the given strings if at most maxDistance, otherwise a distance over
+     *         maxDistance that is no more than the actual distance
+     */
+    private float getBoundedUnNormalisedSimilarity(final String s, final String t, final float maxDistance) {
+        final int n = s.length();
+        final int m = t.length();
+        if (n == 0) {
+            return m;
+        }
+        if (m == 0) {
+            return n;
+        }
+        //every step off the diagonal costs at least minStep, along the edges of the matrix or through a gap
+        final float minStep = Math.min(1.0f, gapCost);
+        final int band;
+        if (minStep > 0.0f) {
+            //one wider than needed, for rounding
+            band = (int) Math.min(Math.max(n, m), Math.floor(maxDistance / minStep) + 1);
+        } else {
+            band = Math.max(n, m);
+        }
+        if (Math.abs(n - m) > band) {
+            return Math.abs(n - m) * minStep;
+        }
+        float[] previous = new float[m + 1];
+        float[] current = new float[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j <= band ? j : Float.POSITIVE_INFINITY;
+        }
+        for (int i = 1; i <= n; i++) {
+            final int from = Math.max(1, i - band);
+            final int to = Math.min(m, i + band);
+            current[from - 1] = from == 1 && i <= band ? i : Float.POSITIVE_INFINITY;
+            float rowMin = current[from - 1];
+            for (int j = from; j <= to; j++) {
+                final float cost = dCostFunc.getCost(s, i - 1, t, j - 1);
+                current[j] = MathFuncs.min3(previous[j] + gapCost, current[j - 1] + gapCost, previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < m) {
+                current[to + 1] = Float.POSITIVE_INFINITY;
+            }
+            if (rowMin > maxDistance) {
+                return rowMin;
+            }
+            final float[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m];
+    }
+
     /**
      * implements the NeedlemanWunch distance function.
      *
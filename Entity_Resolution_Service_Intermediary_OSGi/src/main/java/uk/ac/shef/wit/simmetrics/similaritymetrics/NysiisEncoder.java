@@ -0,0 +1,218 @@
+/**
+ * SimMetrics - SimMetrics is a java library of Similarity or Distance
+ * Metrics, e.g. Levenshtein Distance, that provide float based similarity
+ * measures between String Data. All metrics return consistant measures
+ * rather than unbounded similarity scores.
+ *
+ * Copyright (C) 2005 Sam Chapman - Open Source Release v1.1
+ *
+ * Please Feel free to contact me about this library, I would appreciate
+ * knowing quickly what you wish to use it for and any criticisms/comments
+ * upon the SimMetric library.
+ *
+ * email:       s.chapman@dcs.shef.ac.uk
+ * www:         http://www.dcs.shef.ac.uk/~sam/
+ * www:         http://www.dcs.shef.ac.uk/~sam/stringmetrics.html
+ *
+ * address:     Sam Chapman,
+ *              Department of Computer Science,
+ *              University of Sheffield,
+ *              Sheffield,
+ *              S. Yorks,
+ *              S1 4DP
+ *              United Kingdom,
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package uk.ac.shef.wit.simmetrics.similaritymetrics;
+
+/**
+ * Package: uk.ac.shef.wit.simmetrics.similaritymetrics
+ * Description: NysiisEncoder computes codes of the New York State Identification and Intelligence System (NYSIIS),
+ * which keep more of the vowel structure and letter order of a name than soundex codes do. The letters of a name are
+ * rewritten in place in a single pass, each from a fixed rule on its neighbours, and the code is truncated to six
+ * characters. Only the letters A-Z are encoded.
+ */
+public final class NysiisEncoder extends PhoneticEncoder {
+
+    /**
+     * the length codes are truncated to.
+     */
+    private static final int CODELENGTH = 6;
+
+    /**
+     * constructor - default (empty).
+     */
+    public NysiisEncoder() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * constructor.
+     *
+     * @param cacheSize the most codes to cache, zero for none
+     */
+    public NysiisEncoder(final int cacheSize) {
+        super(cacheSize);
+    }
+
+    /**
+     * calculates the NYSIIS code of a string.
+     *
+     * @param string the string to encode
+     * @return the NYSIIS code of the string
+     */
+    protected String calcCode(final String string) {
+        return calcNysiis(string);
+    }
+
+    /**
+     * calculates the NYSIIS code for a given string/name.
+     *
+     * @param wordString the string to encode
+     * @return the NYSIIS code, or the empty string if it has no letters
+     */
+    public static String calcNysiis(final String wordString) {
+        final char[] letters = new char[wordString.length()];
+        int length = 0;
+        for (int i = 0; i < wordString.length(); i++) {
+            final char letter = Character.toUpperCase(wordString.charAt(i));
+            if (letter >= 'A' && letter <= 'Z') {
+                letters[length++] = letter;
+            }
+        }
+        if (length == 0) {
+            return "";
+        }
+
+        //translate the first characters: MAC to MCC, KN to NN, K to C, PH and PF to FF, SCH to SSS
+        if (startsWith(letters, length, 'M', 'A', 'C')) {
+            letters[1] = 'C';
+        } else if (startsWith(letters, length, 'K', 'N')) {
+            letters[0] = 'N';
+        } else if (letters[0] == 'K') {
+            letters[0] = 'C';
+        } else if (startsWith(letters, length, 'P', 'H') || startsWith(letters, length, 'P', 'F')) {
+            letters[0] = 'F';
+            letters[1] = 'F';
+        } else if (startsWith(letters, length, 'S', 'C', 'H')) {
+            letters[1] = 'S';
+            letters[2] = 'S';
+        }
+
+        //translate the last characters: EE and IE to Y, DT, RT, RD, NT and ND to D
+        if (length > 1) {
+            final char last = letters[length - 1];
+            final char secondLast = letters[length - 2];
+            if (last == 'E' && (secondLast == 'E' || secondLast == 'I')) {
+                letters[length - 2] = 'Y';
+                length--;
+            } else if ((last == 'T' && (secondLast == 'D' || secondLast == 'R' || secondLast == 'N'))
+                    || (last == 'D' && (secondLast == 'R' || secondLast == 'N'))) {
+                letters[length - 2] = 'D';
+                length--;
+            }
+        }
+
+        //the first letter is kept, and each later letter translated in place and kept if it differs from the one before
+        final StringBuilder code = new StringBuilder(length);
+        code.append(letters[0]);
+        for (int i = 1; i < length; i++) {
+            final char previous = letters[i - 1];
+            final char current = letters[i];
+            final char next = i + 1 < length ? letters[i + 1] : ' ';
+            final char afterNext = i + 2 < length ? letters[i + 2] : ' ';
+            if (current == 'E' && next == 'V') {
+                letters[i] = 'A';
+                letters[i + 1] = 'F';
+            } else if (isVowel(current)) {
+                letters[i] = 'A';
+            } else if (current == 'Q') {
+                letters[i] = 'G';
+            } else if (current == 'Z') {
+                letters[i] = 'S';
+            } else if (current == 'M') {
+                letters[i] = 'N';
+            } else if (current == 'K') {
+                if (next == 'N') {
+                    letters[i] = 'N';
+                    letters[i + 1] = 'N';
+                } else {
+                    letters[i] = 'C';
+                }
+            } else if (current == 'S' && next == 'C' && afterNext == 'H') {
+                letters[i + 1] = 'S';
+                letters[i + 2] = 'S';
+            } else if (current == 'P' && next == 'H') {
+                letters[i] = 'F';
+                letters[i + 1] = 'F';
+            } else if (current == 'H' && (!isVowel(previous) || !isVowel(next))) {
+                letters[i] = previous;
+            } else if (current == 'W' && isVowel(previous)) {
+                letters[i] = previous;
+            }
+            if (letters[i] != previous) {
+                code.append(letters[i]);
+            }
+        }
+
+        //drop a trailing S, replace a trailing AY with Y, and drop a trailing A
+        if (code.length() > 1) {
+            char last = code.charAt(code.length() - 1);
+            if (last == 'S') {
+                code.setLength(code.length() - 1);
+                last = code.charAt(code.length() - 1);
+            }
+            if (code.length() > 2 && last == 'Y' && code.charAt(code.length() - 2) == 'A') {
+                code.deleteCharAt(code.length() - 2);
+            }
+            if (last == 'A') {
+                code.setLength(code.length() - 1);
+            }
+        }
+        return code.length() > CODELENGTH ? code.substring(0, CODELENGTH) : code.toString();
+    }
+
+    /**
+     * gets whether the letters start with the given prefix.
+     *
+     * @param letters the letters
+     * @param length the number of letters
+     * @param prefix the prefix
+     * @return true if the letters start with the prefix
+     */
+    private static boolean startsWith(final char[] letters, final int length, final char... prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (letters[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * gets whether a letter is a vowel.
+     *
+     * @param letter the letter
+     * @return true if it is one of A, E, I, O and U
+     */
+    private static boolean isVowel(final char letter) {
+        return letter == 'A' || letter == 'E' || letter == 'I' || letter == 'O' || letter == 'U';
+    }
+}
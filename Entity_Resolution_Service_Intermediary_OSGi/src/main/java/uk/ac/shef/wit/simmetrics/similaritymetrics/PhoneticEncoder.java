@@ -0,0 +1,120 @@
+/**
+ * SimMetrics - SimMetrics is a java library of Similarity or Distance
+ * Metrics, e.g. Levenshtein Distance, that provide float based similarity
+ * measures between String Data. All metrics return consistant measures
+ * rather than unbounded similarity scores.
+ *
+ * Copyright (C) 2005 Sam Chapman - Open Source Release v1.1
+ *
+ * Please Feel free to contact me about this library, I would appreciate
+ * knowing quickly what you wish to use it for and any criticisms/comments
+ * upon the SimMetric library.
+ *
+ * email:       s.chapman@dcs.shef.ac.uk
+ * www:         http://www.dcs.shef.ac.uk/~sam/
+ * www:         http://www.dcs.shef.ac.uk/~sam/stringmetrics.html
+ *
+ * address:     Sam Chapman,
+ *              Department of Computer Science,
+ *              University of Sheffield,
+ *              Sheffield,
+ *              S. Yorks,
+ *              S1 4DP
+ *              United Kingdom,
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package uk.ac.shef.wit.simmetrics.similaritymetrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Package: uk.ac.shef.wit.simmetrics.similaritymetrics
+ * Description: PhoneticEncoder is the base of the phonetic encoders, which compute the phonetic code of a string in a
+ * single pass over its characters. The most recently used codes are kept in a bounded cache, as the same names are
+ * encoded over and over, both by the phonetic metrics and when deriving blocking keys. An encoder may be shared
+ * between threads.
+ */
+public abstract class PhoneticEncoder {
+
+    /**
+     * the default number of codes cached.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    /**
+     * the most recently used codes, by the string encoded, in order of use.
+     */
+    private final Map<String, String> cache;
+
+    /**
+     * constructor.
+     *
+     * @param cacheSize the most codes to cache, zero for none
+     */
+    protected PhoneticEncoder(final int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("The cache size must not be negative, not " + cacheSize);
+        }
+        cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(final Map.Entry<String, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * gets the phonetic code of a string, from the cache if it has been encoded recently.
+     *
+     * @param string the string to encode
+     * @return the phonetic code of the string
+     */
+    public final String encode(final String string) {
+        String code;
+        synchronized (cache) {
+            code = cache.get(string);
+        }
+        if (code == null) {
+            code = calcCode(string);
+            synchronized (cache) {
+                cache.put(string, code);
+            }
+        }
+        return code;
+    }
+
+    /**
+     * gets the number of codes currently cached.
+     *
+     * @return the number of codes cached
+     */
+    public final int getCachedCodeCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * calculates the phonetic code of a string.
+     *
+     * @param string the string to encode
+     * @return the phonetic code of the string
+     */
+    protected abstract String calcCode(String string);
+}
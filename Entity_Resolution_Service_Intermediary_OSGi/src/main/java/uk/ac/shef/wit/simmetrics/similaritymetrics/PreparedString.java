@@ -0,0 +1,89 @@
+/**
+ * SimMetrics - SimMetrics is a java library of Similarity or Distance
+ * Metrics, e.g. Levenshtein Distance, that provide float based similarity
+ * measures between String Data. All metrics return consistant measures
+ * rather than unbounded similarity scores.
+ *
+ * Copyright (C) 2005 Sam Chapman - Open Source Release v1.1
+ *
+ * Please Feel free to contact me about this library, I would appreciate
+ * knowing quickly what you wish to use it for and any criticisms/comments
+ * upon the SimMetric library.
+ *
+ * email:       s.chapman@dcs.shef.ac.uk
+ * www:         http://www.dcs.shef.ac.uk/~sam/
+ * www:         http://www.dcs.shef.ac.uk/~sam/stringmetrics.html
+ *
+ * address:     Sam Chapman,
+ *              Department of Computer Science,
+ *              University of Sheffield,
+ *              Sheffield,
+ *              S. Yorks,
+ *              S1 4DP
+ *              United Kingdom,
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package uk.ac.shef.wit.simmetrics.similaritymetrics;
+
+/**
+ * Package: uk.ac.shef.wit.simmetrics.similaritymetrics
+ * Description: PreparedString holds a string together with whatever a metric computed from it ahead of comparison,
+ * so that a string compared many times is only processed once. A prepared string is only meaningful to the metric
+ * that prepared it; other metrics compare the plain string.
+ */
+public class PreparedString {
+
+    /**
+     * the string prepared.
+     */
+    private final String string;
+
+    /**
+     * the metric that prepared the string.
+     */
+    private final InterfaceStringMetric metric;
+
+    /**
+     * constructor.
+     *
+     * @param string the string prepared
+     * @param metric the metric that prepared it
+     */
+    public PreparedString(final String string, final InterfaceStringMetric metric) {
+        this.string = string;
+        this.metric = metric;
+    }
+
+    /**
+     * gets the string prepared.
+     *
+     * @return the string prepared
+     */
+    public final String getString() {
+        return string;
+    }
+
+    /**
+     * returns whether the string was prepared by the given metric.
+     *
+     * @param metric a string metric
+     * @return true if the given metric prepared the string
+     */
+    public final boolean isPreparedBy(final InterfaceStringMetric metric) {
+        return this.metric == metric;
+    }
+}
@@ -43,7 +43,6 @@ import uk.ac.shef.wit.simmetrics.tokenisers.InterfaceTokeniser;
 import uk.ac.shef.wit.simmetrics.tokenisers.TokeniserQGram3Extended;
 
 import java.io.Serializable;
-import java.util.*;
 
 /**
  * Package: uk.ac.shef.wit.simmetrics.similaritymetrics.qgrams
@@ -137,16 +136,64 @@ public final class QGramsDistance extends AbstractStringMetric implements Serial
      * @return a value between 0-1 of the similarity
      */
     public float getSimilarity(final String string1, final String string2) {
-        final ArrayList<String> str1Tokens = tokeniser.tokenizeToArrayList(string1);
-        final ArrayList<String> str2Tokens = tokeniser.tokenizeToArrayList(string2);
+        return getSimilarity(new TokenProfile(tokeniser.tokenizeToArrayList(string1)), new TokenProfile(tokeniser.tokenizeToArrayList(string2)));
+    }
+
+    /**
+     * prepares a string for comparison by tokenising it.
+     *
+     * @param string the string to prepare
+     * @return the tokenised string
+     */
+    public PreparedString prepare(final String string) {
+        if (string == null) {
+            return super.prepare(string);
+        }
+        return new TokenisedString(string, this, tokeniser);
+    }
+
+    /**
+     * gets the similarity of two prepared strings, if it is at least the given threshold. The measure is cheap once
+     * the strings are tokenised, so it is always measured in full.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @param threshold the lowest similarity that must be measured exactly
+     * @return the similarity
+     */
+    public float getSimilarityAtLeast(final PreparedString string1, final PreparedString string2, final float threshold) {
+        return getSimilarity(string1, string2);
+    }
 
-        final int maxQGramsMatching = str1Tokens.size() + str2Tokens.size();
+    /**
+     * gets the similarity of two prepared strings using QGramsDistance, from their precomputed tokens.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @return a value between 0-1 of the similarity
+     */
+    public float getSimilarity(final PreparedString string1, final PreparedString string2) {
+        if (!isPreparedHere(string1, string2, TokenisedString.class)) {
+            return getSimilarity(string1.getString(), string2.getString());
+        }
+        return getSimilarity(((TokenisedString) string1).getProfile(), ((TokenisedString) string2).getProfile());
+    }
+
+    /**
+     * gets the similarity of two token profiles using QGramsDistance.
+     *
+     * @param profile1 the token profile of string 1
+     * @param profile2 the token profile of string 2
+     * @return a value between 0-1 of the similarity
+     */
+    private static float getSimilarity(final TokenProfile profile1, final TokenProfile profile2) {
+        final int maxQGramsMatching = profile1.getTokenCount() + profile2.getTokenCount();
 
         //return
         if (maxQGramsMatching == 0) {
             return 0.0f;
         } else {
-            return (maxQGramsMatching - getUnNormalisedSimilarity(string1, string2)) / (float) maxQGramsMatching;
+            return (maxQGramsMatching - (float) profile1.getTokenCountDifference(profile2)) / (float) maxQGramsMatching;
         }
     }
 
@@ -159,38 +206,11 @@ public final class QGramsDistance extends AbstractStringMetric implements Serial
      * @return returns the score of the similarity measure (un-normalised)
      */
     public float getUnNormalisedSimilarity(String string1, String string2) {
-        final ArrayList<String> str1Tokens = tokeniser.tokenizeToArrayList(string1);
-        final ArrayList<String> str2Tokens = tokeniser.tokenizeToArrayList(string2);
-
-        final Set<String> allTokens = new HashSet<String>();
-        allTokens.addAll(str1Tokens);
-        allTokens.addAll(str2Tokens);
-
-        final Iterator<String> allTokensIt = allTokens.iterator();
-        int difference = 0;
-        while (allTokensIt.hasNext()) {
-            final String token = allTokensIt.next();
-            int matchingQGrams1 = 0;
-            for (String str1Token : str1Tokens) {
-                if (str1Token.equals(token)) {
-                    matchingQGrams1++;
-                }
-            }
-            int matchingQGrams2 = 0;
-            for (String str2Token : str2Tokens) {
-                if (str2Token.equals(token)) {
-                    matchingQGrams2++;
-                }
-            }
-            if (matchingQGrams1 > matchingQGrams2) {
-                difference += (matchingQGrams1 - matchingQGrams2);
-            } else {
-                difference += (matchingQGrams2 - matchingQGrams1);
-            }
-        }
+        final TokenProfile profile1 = new TokenProfile(tokeniser.tokenizeToArrayList(string1));
+        final TokenProfile profile2 = new TokenProfile(tokeniser.tokenizeToArrayList(string2));
 
         //return
-        return difference;
+        return profile1.getTokenCountDifference(profile2);
     }
 }
 
@@ -44,9 +44,13 @@ import uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions.AbstractSubstit
 import uk.ac.shef.wit.simmetrics.similaritymetrics.AbstractStringMetric;
 import uk.ac.shef.wit.simmetrics.math.MathFuncs;
 import uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions.AffineGap5_1;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions.GapCostTable;
 import uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions.SubCost5_3_Minus3;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions.SubstitutionCostTable;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Package: uk.ac.shef.wit.simmetrics.similaritymetrics
@@ -307,7 +311,8 @@ public class SmithWatermanGotohWindowedAffine extends AbstractStringMetric imple
 
     /**
      * implements the Smith-Waterman-Gotoh distance function //see http://www.gen.tcd.ie/molevol/nwswat.html for
-     * details.
+     * details. The matrix is filled a row at a time, keeping only the rows gaps may still open from, and with gap costs
+     * that never fall for longer gaps, only the gaps that could still improve on a cell are tried.
      *
      * @param s
      * @param t
@@ -315,16 +320,10 @@ public class SmithWatermanGotohWindowedAffine extends AbstractStringMetric imple
      * @return the Smith-Waterman-Gotoh distance for the two strings given
      */
     public float getUnNormalisedSimilarity(final String s, final String t) {
-        final float[][] d; // matrix
-        final int n; // length of s
-        final int m; // length of t
-        int i; // iterates through s
-        int j; // iterates through t
-        float cost; // cost
+        final int n = s.length(); // length of s
+        final int m = t.length(); // length of t
 
         // check for zero length input
-        n = s.length();
-        m = t.length();
         if (n == 0) {
             return m;
         }
@@ -332,115 +331,144 @@ public class SmithWatermanGotohWindowedAffine extends AbstractStringMetric imple
             return n;
         }
 
-        //create matrix (n)x(m)
-        d = new float[n][m];
+        //use the compiled cost tables where the cost functions have them, a gap being at most as long as a string
+        final SubstitutionCostTable costTable = dCostFunc.getCostTable();
+        final GapCostTable gapCostTable = gGapFunc.getCostTable();
+        final float[] gapCosts = gapCostTable == null ? null : gapCostTable.getCosts(Math.max(n, m));
+        //when longer gaps never cost less, a gap is only tried while it could still beat the best found for the cell
+        final boolean banded = gapCosts != null && isNonDecreasing(gapCosts, Math.max(n, m));
+
+        //gaps only ever open from the rows 1..windowSize of s and the columns 1..windowSize of t; the rows are kept,
+        //from the first one a gap could still pay off from, with the largest value of each row and of each column
+        final float[][] sourceRows = new float[Math.max(0, Math.min(windowSize, n - 1)) + 1][];
+        final float[] sourceRowMax = new float[sourceRows.length];
+        final float[] sourceColumnMax = new float[m];
+        int firstSourceRow = 1;
+        final List<float[]> spareRows = new ArrayList<float[]>();
 
-        //process first row and column first as no need to consider previous rows/columns
         float maxSoFar = 0.0f;
-        for (i = 0; i < n; i++) {
-            // get the substution cost
-            cost = dCostFunc.getCost(s, i, t, 0);
-
-            if (i == 0) {
-                d[0][0] = Math.max(0,
-                        cost);
-            } else {
-                float maxGapCost = 0.0f;
-                int windowStart = i-windowSize;
-                if (windowStart < 1) {
-                    windowStart = 1;
+        float[] previous = null;
+        boolean previousIsSource = false;
+        for (int i = 0; i < n; i++) {
+            final float[] current = spareRows.isEmpty() ? new float[m] : spareRows.remove(spareRows.size() - 1);
+            final int lastSourceRow = Math.min(i - 1, windowSize);
+            if (banded) {
+                //let go of the rows no gap ending here or further down can recover anything from
+                while (firstSourceRow < i - 1 && firstSourceRow <= lastSourceRow && gapCosts[i - firstSourceRow] >= sourceRowMax[firstSourceRow]) {
+                    spareRows.add(sourceRows[firstSourceRow]);
+                    sourceRows[firstSourceRow] = null;
+                    firstSourceRow++;
                 }
-                for (int k = windowStart; k < i; k++) {
-                    maxGapCost = Math.max(maxGapCost, d[i - k][0] - gGapFunc.getCost(s, i - k, i));
-                }
-                d[i][0] = MathFuncs.max3(0,
-                        maxGapCost,
-                        cost);
-            }
-            //update max possible if available
-            if (d[i][0] > maxSoFar) {
-                maxSoFar = d[i][0];
-            }
-        }
-        for (j = 0; j < m; j++) {
-            // get the substution cost
-            cost = dCostFunc.getCost(s, 0, t, j);
-
-            if (j == 0) {
-                d[0][0] = Math.max(0,
-                        cost);
-            } else {
-                float maxGapCost = 0.0f;
-                int windowStart = j-windowSize;
-                if (windowStart < 1) {
-                    windowStart = 1;
-                }
-                for (int k = windowStart; k < j; k++) {
-                    maxGapCost = Math.max(maxGapCost, d[0][j - k] - gGapFunc.getCost(t, j - k, j));
-                }
-                d[0][j] = MathFuncs.max3(0,
-                        maxGapCost,
-                        cost);
             }
-            //update max possible if available
-            if (d[0][j] > maxSoFar) {
-                maxSoFar = d[0][j];
-            }
-        }
 
-        // cycle through rest of table filling values from the lowest cost value of the three part cost function
-        for (i = 1; i < n; i++) {
-            for (j = 1; j < m; j++) {
+            float rowMax = 0.0f;
+            float sourceColumnsMax = 0.0f;
+            for (int j = 0; j < m; j++) {
                 // get the substution cost
-                cost = dCostFunc.getCost(s, i, t, j);
+                final float cost = substitutionCost(costTable, s, i, t, j);
 
-                // find lowest cost at point from three possible
+                // find the best gaps ending here, shortest first
                 float maxGapCost1 = 0.0f;
-                float maxGapCost2 = 0.0f;
-                int windowStart = i-windowSize;
-                if (windowStart < 1) {
-                    windowStart = 1;
-                }
-                for (int k = windowStart; k < i; k++) {
-                    maxGapCost1 = Math.max(maxGapCost1, d[i - k][j] - gGapFunc.getCost(s, i - k, i));
+                for (int r = lastSourceRow; r >= firstSourceRow; r--) {
+                    final float gapCost = gapCost(gapCosts, s, r, i);
+                    if (banded && sourceColumnMax[j] - gapCost <= maxGapCost1) {
+                        break;
+                    }
+                    maxGapCost1 = Math.max(maxGapCost1, sourceRows[r][j] - gapCost);
                 }
-                windowStart = j-windowSize;
-                if (windowStart < 1) {
-                    windowStart = 1;
+                float maxGapCost2 = 0.0f;
+                for (int c = Math.min(j - 1, windowSize); c >= 1; c--) {
+                    final float gapCost = gapCost(gapCosts, t, c, j);
+                    if (banded && sourceColumnsMax - gapCost <= maxGapCost2) {
+                        break;
+                    }
+                    maxGapCost2 = Math.max(maxGapCost2, current[c] - gapCost);
                 }
-                for (int k = windowStart; k < j; k++) {
-                    maxGapCost2 = Math.max(maxGapCost2, d[i][j - k] - gGapFunc.getCost(t, j - k, j));
+
+                // the first row and column have no diagonal predecessor
+                final float diagonal = i == 0 || j == 0 ? cost : previous[j - 1] + cost;
+                final float value = MathFuncs.max4(0, maxGapCost1, maxGapCost2, diagonal);
+                current[j] = value;
+                if (value > rowMax) {
+                    rowMax = value;
                 }
-                d[i][j] = MathFuncs.max4(0,
-                        maxGapCost1,
-                        maxGapCost2,
-                        d[i - 1][j - 1] + cost);
-                //update max possible if available
-                if (d[i][j] > maxSoFar) {
-                    maxSoFar = d[i][j];
+                if (j >= 1 && j <= windowSize && value > sourceColumnsMax) {
+                    sourceColumnsMax = value;
                 }
             }
-        }
+            //update max possible if available
+            if (rowMax > maxSoFar) {
+                maxSoFar = rowMax;
+            }
 
-        //debug output
-/*        System.out.print(" \t");
-        for (j = 0; j < m; j++) {
-            System.out.print(t.charAt(j) + "     ");
-        }
-        System.out.print("\n");
-        for (i = 0; i < n; i++) {
-            //print characteer of string s
-            System.out.print(s.charAt(i) + "\t");
-            for (j = 0; j < m; j++) {
-                System.out.print(d[i][j] + "  ");
+            if (previous != null && !previousIsSource) {
+                spareRows.add(previous);
+            }
+            previous = current;
+            previousIsSource = i >= 1 && i <= windowSize && i < n - 1;
+            if (previousIsSource) {
+                sourceRows[i] = current;
+                sourceRowMax[i] = rowMax;
+                for (int j = 0; j < m; j++) {
+                    if (current[j] > sourceColumnMax[j]) {
+                        sourceColumnMax[j] = current[j];
+                    }
+                }
             }
-            System.out.print("\n");
         }
-*/        //end debug output
 
         // return max value within matrix as holds the maximum edit score
         return maxSoFar;
     }
+
+    /**
+     * gets whether the gap costs never fall as the gaps get longer.
+     *
+     * @param gapCosts the gap costs by gap length
+     * @param maxGapLength the longest gap to check
+     * @return true if no gap up to the given length costs less than a shorter one
+     */
+    private static boolean isNonDecreasing(final float[] gapCosts, final int maxGapLength) {
+        for (int gapLength = 1; gapLength <= maxGapLength; gapLength++) {
+            if (gapCosts[gapLength] < gapCosts[gapLength - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * gets the cost of substituting t[j] for s[i], from the compiled cost table if there is one.
+     *
+     * @param costTable the compiled substitution costs, or null
+     * @param s string 1
+     * @param i the index within string 1
+     * @param t string 2
+     * @param j the index within string 2
+     * @return the cost of the substitution d(i,j)
+     */
+    private float substitutionCost(final SubstitutionCostTable costTable, final String s, final int i, final String t, final int j) {
+        if (costTable != null) {
+            return costTable.getCost(s.charAt(i), t.charAt(j));
+        }
+        return dCostFunc.getCost(s, i, t, j);
+    }
+
+    /**
+     * gets the cost of a gap from start to end, from the compiled gap costs if there are some.
+     *
+     * @param gapCosts the compiled gap costs by gap length, or null
+     * @param string the string gapped
+     * @param start the index the gap starts from
+     * @param end the index the gap ends at
+     * @return the cost of the gap
+     */
+    private float gapCost(final float[] gapCosts, final String string, final int start, final int end) {
+        if (gapCosts != null) {
+            return gapCosts[end - start];
+        }
+        return gGapFunc.getCost(string, start, end);
+    }
 }
 
 
@@ -69,6 +69,11 @@ public final class Soundex extends AbstractStringMetric implements Serializable
      */
     private final static int SOUNDEXLENGTH = 6;
 
+    /**
+     * the encoder of the soundex codes, shared by all instances so that they share its cache of codes.
+     */
+    private final static PhoneticEncoder ENCODER = new SoundexEncoder(SOUNDEXLENGTH);
+
     /**
      * constructor - default (empty).
      */
@@ -141,12 +146,67 @@ public final class Soundex extends AbstractStringMetric implements Serializable
      * @return a value between 0-1 of the similarity
      */
     public float getSimilarity(final String string1, final String string2) {
-        final String soundex1 = calcSoundEx(string1, SOUNDEXLENGTH);
-        final String soundex2 = calcSoundEx(string2, SOUNDEXLENGTH);
+        final String soundex1 = ENCODER.encode(string1);
+        final String soundex2 = ENCODER.encode(string2);
         //convert into zero to one return using attached string metric to score comparison
         return internalStringMetric.getSimilarity(soundex1, soundex2);
     }
 
+    /**
+     * gets the similarity of the two soundex strings if it is at least the given threshold, leaving the attached
+     * string metric to give up early on the codes.
+     *
+     * @param string1
+     * @param string2
+     * @param threshold the lowest similarity that must be measured exactly
+     * @return a value between 0-1 of the similarity if it is at least threshold, otherwise a value below threshold
+     */
+    public float getSimilarityAtLeast(final String string1, final String string2, final float threshold) {
+        return internalStringMetric.getSimilarityAtLeast(ENCODER.encode(string1), ENCODER.encode(string2), threshold);
+    }
+
+    /**
+     * prepares a string for comparison by computing its soundex code.
+     *
+     * @param string the string to prepare
+     * @return the encoded string
+     */
+    public PreparedString prepare(final String string) {
+        if (string == null) {
+            return super.prepare(string);
+        }
+        return new PhoneticString(string, this, ENCODER.encode(string));
+    }
+
+    /**
+     * gets the similarity of two prepared strings from their soundex codes.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @return a value between 0-1 of the similarity
+     */
+    public float getSimilarity(final PreparedString string1, final PreparedString string2) {
+        if (!isPreparedHere(string1, string2, PhoneticString.class)) {
+            return getSimilarity(string1.getString(), string2.getString());
+        }
+        return internalStringMetric.getSimilarity(((PhoneticString) string1).getCode(), ((PhoneticString) string2).getCode());
+    }
+
+    /**
+     * gets the similarity of two prepared strings from their soundex codes, if it is at least the given threshold.
+     *
+     * @param string1 a string prepared by this metric
+     * @param string2 a string prepared by this metric
+     * @param threshold the lowest similarity that must be measured exactly
+     * @return a value between 0-1 of the similarity if it is at least threshold, otherwise a value below threshold
+     */
+    public float getSimilarityAtLeast(final PreparedString string1, final PreparedString string2, final float threshold) {
+        if (!isPreparedHere(string1, string2, PhoneticString.class)) {
+            return getSimilarityAtLeast(string1.getString(), string2.getString(), threshold);
+        }
+        return internalStringMetric.getSimilarityAtLeast(((PhoneticString) string1).getCode(), ((PhoneticString) string2).getCode(), threshold);
+    }
+
     /**
      * gets the un-normalised similarity measure of the metric for the given strings.
      *
@@ -166,86 +226,7 @@ public final class Soundex extends AbstractStringMetric implements Serializable
      * @param soundExLen - the length of the soundex code to create
      * @return a soundex code for a given string/name
      */
-    private static String calcSoundEx(String wordString, int soundExLen) {
-        String tmpStr;
-        String wordStr;
-        char curChar;
-        char lastChar;
-        final int wsLen;
-        final char firstLetter;
-
-        //ensure soundexLen is in a valid range
-        if (soundExLen > 10) {
-            soundExLen = 10;
-        }
-        if (soundExLen < 4) {
-            soundExLen = 4;
-        }
-
-        //check for empty input
-        if (wordString.length() == 0) {
-            return ("");
-        }
-
-        //remove case
-        wordString = wordString.toUpperCase();
-
-        /* Clean and tidy
-        */
-        wordStr = wordString;
-        wordStr = wordStr.replaceAll("[^A-Z]", " "); // rpl non-chars w space
-        wordStr = wordStr.replaceAll("\\s+", "");   // remove spaces
-
-        //check for empty input again the previous clean and tidy could of shrunk it to zero.
-        if (wordStr.length() == 0) {
-            return ("");
-        }
-
-        /* The above improvements
-         * may change this first letter
-        */
-        firstLetter = wordStr.charAt(0);
-
-        // uses the assumption that enough valid characters are in the first 4 times the soundex required length
-        if(wordStr.length() > (SOUNDEXLENGTH*4)+1) {
-            wordStr = "-" + wordStr.substring(1,SOUNDEXLENGTH*4);
-        } else {
-            wordStr = "-" + wordStr.substring(1);
-        }
-        // Begin Classic SoundEx
-        /*
-        1) B,P,F,V
-        2) C,S,K,G,J,Q,X,Z
-        3) D,T
-        4) L
-        5) M,N
-        6) R
-        */
-        wordStr = wordStr.replaceAll("[AEIOUWH]", "0");
-        wordStr = wordStr.replaceAll("[BPFV]", "1");
-        wordStr = wordStr.replaceAll("[CSKGJQXZ]", "2");
-        wordStr = wordStr.replaceAll("[DT]", "3");
-        wordStr = wordStr.replaceAll("[L]", "4");
-        wordStr = wordStr.replaceAll("[MN]", "5");
-        wordStr = wordStr.replaceAll("[R]", "6");
-
-        // Remove extra equal adjacent digits
-        wsLen = wordStr.length();
-        lastChar = '-';
-        tmpStr = "-";     /* replacing skipped first character */
-        for (int i = 1; i < wsLen; i++) {
-            curChar = wordStr.charAt(i);
-            if (curChar != lastChar) {
-                tmpStr += curChar;
-                lastChar = curChar;
-            }
-        }
-        wordStr = tmpStr;
-        wordStr = wordStr.substring(1);          /* Drop first letter code   */
-        wordStr = wordStr.replaceAll("0", "");  /* remove zeros             */
-        wordStr += "000000000000000000";              /* pad with zeros on right  */
-        wordStr = firstLetter + "-" + wordStr;      /* Add first letter of word */
-        wordStr = wordStr.substring(0, soundExLen); /* size to taste     */
-        return (wordStr);
+    public static String calcSoundEx(String wordString, int soundExLen) {
+        return SoundexEncoder.calcSoundEx(wordString, soundExLen);
     }
 }
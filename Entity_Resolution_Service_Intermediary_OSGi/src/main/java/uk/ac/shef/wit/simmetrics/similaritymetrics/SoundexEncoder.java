@@ -0,0 +1,182 @@
+/**
+ * SimMetrics - SimMetrics is a java library of Similarity or Distance
+ * Metrics, e.g. Levenshtein Distance, that provide float based similarity
+ * measures between String Data. All metrics return consistant measures
+ * rather than unbounded similarity scores.
+ *
+ * Copyright (C) 2005 Sam Chapman - Open Source Release v1.1
+ *
+ * Please Feel free to contact me about this library, I would appreciate
+ * knowing quickly what you wish to use it for and any criticisms/comments
+ * upon the SimMetric library.
+ *
+ * email:       s.chapman@dcs.shef.ac.uk
+ * www:         http://www.dcs.shef.ac.uk/~sam/
+ * www:         http://www.dcs.shef.ac.uk/~sam/stringmetrics.html
+ *
+ * address:     Sam Chapman,
+ *              Department of Computer Science,
+ *              University of Sheffield,
+ *              Sheffield,
+ *              S. Yorks,
+ *              S1 4DP
+ *              United Kingdom,
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package uk.ac.shef.wit.simmetrics.similaritymetrics;
+
+/**
+ * Package: uk.ac.shef.wit.simmetrics.similaritymetrics
+ * Description: SoundexEncoder computes soundex codes such as S-2433: the first letter of the word, a dash, then the
+ * codes of the letters that follow with adjacent repeats and vowels dropped, padded with zeros. The letters are coded
+ * from a table in a single pass, giving exactly the codes of the classic replace-and-strip formulation.
+ */
+public final class SoundexEncoder extends PhoneticEncoder {
+
+    /**
+     * the code of each letter A-Z.
+     * 1) B,P,F,V
+     * 2) C,S,K,G,J,Q,X,Z
+     * 3) D,T
+     * 4) L
+     * 5) M,N
+     * 6) R
+     * 0) the vowels and H and W, which separate repeats but are not coded. Y is in no group and so is kept as a letter.
+     */
+    private static final char[] LETTERCODES = "012301200224550126230102Y2".toCharArray();
+
+    /**
+     * the letters considered after the first, when there are more than one beyond this limit.
+     */
+    private static final int CODEDLETTERS = 23;
+
+    /**
+     * the length of the codes produced.
+     */
+    private final int codeLength;
+
+    /**
+     * constructor.
+     *
+     * @param codeLength the length of the codes, clamped to 4-10
+     */
+    public SoundexEncoder(final int codeLength) {
+        this(codeLength, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * constructor.
+     *
+     * @param codeLength the length of the codes, clamped to 4-10
+     * @param cacheSize the most codes to cache, zero for none
+     */
+    public SoundexEncoder(final int codeLength, final int cacheSize) {
+        super(cacheSize);
+        this.codeLength = codeLength;
+    }
+
+    /**
+     * calculates the soundex code of a string.
+     *
+     * @param string the string to encode
+     * @return the soundex code of the string
+     */
+    protected String calcCode(final String string) {
+        return calcSoundEx(string, codeLength);
+    }
+
+    /**
+     * calculates a soundex code for a given string/name.
+     *
+     * @param wordString the string to encode
+     * @param soundExLen the length of the soundex code to create, clamped to 4-10
+     * @return a soundex code for a given string/name, or the empty string if it has no letters
+     */
+    public static String calcSoundEx(final String wordString, final int soundExLen) {
+        return calcSoundEx(wordString, Math.max(4, Math.min(10, soundExLen)), false);
+    }
+
+    /**
+     * calculates a soundex code for a given string/name.
+     *
+     * @param wordString the string to encode
+     * @param soundExLen the length of the soundex code to create
+     * @param upperCased whether the string has already been upper cased as a whole
+     * @return a soundex code for a given string/name
+     */
+    private static String calcSoundEx(final String wordString, final int soundExLen, final boolean upperCased) {
+        final int length = wordString.length();
+        final char[] code = new char[soundExLen];
+        int codeCount = 2;
+        int letterCount = 0;
+        char lastCode = '-';
+        for (int i = 0; i < length && codeCount < soundExLen; i++) {
+            char letter = wordString.charAt(i);
+            if (letter >= 'a' && letter <= 'z') {
+                letter -= 'a' - 'A';
+            } else if (letter > '\u007f' && !upperCased) {
+                //a few other characters upper case to letters, so leave them to the full upper casing
+                return calcSoundEx(wordString.toUpperCase(), soundExLen, true);
+            } else if (letter < 'A' || letter > 'Z') {
+                continue;
+            }
+            if (letterCount == 0) {
+                code[0] = letter;
+                code[1] = '-';
+            } else {
+                if (letterCount > CODEDLETTERS && hasLetterAfter(wordString, i + 1, upperCased)) {
+                    break;
+                }
+                final char letterCode = LETTERCODES[letter - 'A'];
+                if (letterCode != lastCode) {
+                    lastCode = letterCode;
+                    if (letterCode != '0') {
+                        code[codeCount++] = letterCode;
+                    }
+                }
+            }
+            letterCount++;
+        }
+        if (letterCount == 0) {
+            return "";
+        }
+        //pad with zeros on right
+        for (; codeCount < soundExLen; codeCount++) {
+            code[codeCount] = '0';
+        }
+        return new String(code);
+    }
+
+    /**
+     * gets whether a letter follows the given position of a string. Characters that might upper case to letters are
+     * not looked at, as reaching one restarts the encoding on the upper cased string.
+     *
+     * @param wordString the string
+     * @param start the position to look from
+     * @param upperCased whether the string has been upper cased as a whole
+     * @return true if there is a letter at or after start
+     */
+    private static boolean hasLetterAfter(final String wordString, final int start, final boolean upperCased) {
+        for (int i = start; i < wordString.length(); i++) {
+            final char letter = wordString.charAt(i);
+            if ((letter >= 'A' && letter <= 'Z') || (!upperCased && letter >= 'a' && letter <= 'z')) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,310 @@
+/**
+ * SimMetrics - SimMetrics is a java library of Similarity or Distance
+ * Metrics, e.g. Levenshtein Distance, that provide float based similarity
+ * measures between String Data. All metrics return consistant measures
+ * rather than unbounded similarity scores.
+ *
+ * Copyright (C) 2005 Sam Chapman - Open Source Release v1.1
+ *
+ * Please Feel free to contact me about this library, I would appreciate
+ * knowing quickly what you wish to use it for and any criticisms/comments
+ * upon the SimMetric library.
+ *
+ * email:       s.chapman@dcs.shef.ac.uk
+ * www:         http://www.dcs.shef.ac.uk/~sam/
+ * www:         http://www.dcs.shef.ac.uk/~sam/stringmetrics.html
+ *
+ * address:     Sam Chapman,
+ *              Department of Computer Science,
+ *              University of Sheffield,
+ *              Sheffield,
+ *              S. Yorks,
+ *              S1 4DP
+ *              United Kingdom,
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package uk.ac.shef.wit.simmetrics.similaritymetrics;
+
+import java.util.List;
+
+/**
+ * Package: uk.ac.shef.wit.simmetrics.similaritymetrics
+ * Description: TokenProfile holds the distinct tokens of a string with the number of times each occurs, sorted by a
+ * packed key, so that two profiles are compared by a single linear merge. Tokens of up to three characters, which
+ * covers the q-grams, are packed into their key exactly; longer tokens are keyed by their length and hash, with the
+ * tokens themselves settling any tie.
+ */
+public final class TokenProfile {
+
+    /**
+     * the longest token packed into its key exactly.
+     */
+    private static final int MAXPACKEDLENGTH = 3;
+
+    /**
+     * the key of each distinct token, ascending.
+     */
+    private final long[] keys;
+
+    /**
+     * the distinct tokens, in key order.
+     */
+    private final String[] tokens;
+
+    /**
+     * the number of occurrences of each distinct token, in key order.
+     */
+    private final int[] counts;
+
+    /**
+     * the number of tokens, counting repeats.
+     */
+    private final int tokenCount;
+
+    /**
+     * constructor.
+     *
+     * @param tokenList the tokens of a string
+     */
+    public TokenProfile(final List<String> tokenList) {
+        tokenCount = tokenList.size();
+        final String[] sorted = tokenList.toArray(new String[tokenCount]);
+        final long[] sortedKeys = new long[tokenCount];
+        for (int i = 0; i < tokenCount; i++) {
+            sortedKeys[i] = getKey(sorted[i]);
+        }
+        sort(sortedKeys, sorted, 0, tokenCount, new long[tokenCount], new String[tokenCount]);
+        //collapse repeats into counts
+        int distinct = 0;
+        final int[] sortedCounts = new int[tokenCount];
+        for (int i = 0; i < tokenCount; i++) {
+            if (distinct > 0 && compare(sortedKeys[distinct - 1], sorted[distinct - 1], sortedKeys[i], sorted[i]) == 0) {
+                sortedCounts[distinct - 1]++;
+            } else {
+                sortedKeys[distinct] = sortedKeys[i];
+                sorted[distinct] = sorted[i];
+                sortedCounts[distinct] = 1;
+                distinct++;
+            }
+        }
+        keys = new long[distinct];
+        tokens = new String[distinct];
+        counts = new int[distinct];
+        System.arraycopy(sortedKeys, 0, keys, 0, distinct);
+        System.arraycopy(sorted, 0, tokens, 0, distinct);
+        System.arraycopy(sortedCounts, 0, counts, 0, distinct);
+    }
+
+    /**
+     * gets the number of tokens, counting repeats.
+     *
+     * @return the number of tokens
+     */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * gets the number of distinct tokens.
+     *
+     * @return the number of distinct tokens
+     */
+    public int getDistinctTokenCount() {
+        return keys.length;
+    }
+
+    /**
+     * gets the distinct token at the given position in key order.
+     *
+     * @param index the position of the token
+     * @return the token
+     */
+    public String getDistinctToken(final int index) {
+        return tokens[index];
+    }
+
+    /**
+     * gets the number of times a token occurs.
+     *
+     * @param token a token
+     * @return the number of occurrences of the token
+     */
+    public int getTokenCount(final String token) {
+        final long key = getKey(token);
+        int low = 0;
+        int high = keys.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int comparison = compare(keys[mid], tokens[mid], key, token);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return counts[mid];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * gets the number of distinct tokens this profile has in common with another.
+     *
+     * @param other the other profile
+     * @return the number of distinct tokens in both
+     */
+    public int getCommonTokenCount(final TokenProfile other) {
+        int common = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            final int comparison = compare(keys[i], tokens[i], other.keys[j], other.tokens[j]);
+            if (comparison < 0) {
+                i++;
+            } else if (comparison > 0) {
+                j++;
+            } else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return common;
+    }
+
+    /**
+     * gets the sum over all tokens of the difference between the number of times they occur in this profile and in
+     * another.
+     *
+     * @param other the other profile
+     * @return the total difference in token counts
+     */
+    public int getTokenCountDifference(final TokenProfile other) {
+        return getTokenCountDifference(other, false);
+    }
+
+    /**
+     * gets the sum over all tokens of the square of the difference between the number of times they occur in this
+     * profile and in another.
+     *
+     * @param other the other profile
+     * @return the total squared difference in token counts
+     */
+    public int getSquaredTokenCountDifference(final TokenProfile other) {
+        return getTokenCountDifference(other, true);
+    }
+
+    /**
+     * merges this profile with another, summing the differences in token counts.
+     *
+     * @param other the other profile
+     * @param squared whether to sum the squares of the differences
+     * @return the total difference
+     */
+    private int getTokenCountDifference(final TokenProfile other, final boolean squared) {
+        int difference = 0;
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            final int comparison;
+            if (i == keys.length) {
+                comparison = 1;
+            } else if (j == other.keys.length) {
+                comparison = -1;
+            } else {
+                comparison = compare(keys[i], tokens[i], other.keys[j], other.tokens[j]);
+            }
+            final int delta;
+            if (comparison < 0) {
+                delta = counts[i++];
+            } else if (comparison > 0) {
+                delta = other.counts[j++];
+            } else {
+                delta = Math.abs(counts[i++] - other.counts[j++]);
+            }
+            difference += squared ? delta * delta : delta;
+        }
+        return difference;
+    }
+
+    /**
+     * gets the key of a token: the token itself, packed, if it is short enough, otherwise its length and hash, with
+     * the top bit set.
+     *
+     * @param token a token
+     * @return the key of the token
+     */
+    private static long getKey(final String token) {
+        final int length = token.length();
+        if (length <= MAXPACKEDLENGTH) {
+            long key = length;
+            for (int i = 0; i < length; i++) {
+                key = (key << 16) | token.charAt(i);
+            }
+            return key;
+        }
+        return Long.MIN_VALUE | ((long) length << 32) | (token.hashCode() & 0xffffffffL);
+    }
+
+    /**
+     * orders two tokens by key, then, for hashed keys, by the tokens themselves.
+     *
+     * @param key1 the key of token 1
+     * @param token1 token 1
+     * @param key2 the key of token 2
+     * @param token2 token 2
+     * @return a negative number, zero or a positive number as token 1 comes before, with or after token 2
+     */
+    private static int compare(final long key1, final String token1, final long key2, final String token2) {
+        if (key1 != key2) {
+            return key1 < key2 ? -1 : 1;
+        }
+        return key1 >= 0 ? 0 : token1.compareTo(token2);
+    }
+
+    /**
+     * sorts tokens and their keys together, by merge sort.
+     *
+     * @param keys the keys
+     * @param tokens the tokens
+     * @param from the first position to sort
+     * @param to one past the last position to sort
+     * @param keyBuffer scratch space for keys
+     * @param tokenBuffer scratch space for tokens
+     */
+    private static void sort(final long[] keys, final String[] tokens, final int from, final int to, final long[] keyBuffer, final String[] tokenBuffer) {
+        if (to - from < 2) {
+            return;
+        }
+        final int middle = (from + to) >>> 1;
+        sort(keys, tokens, from, middle, keyBuffer, tokenBuffer);
+        sort(keys, tokens, middle, to, keyBuffer, tokenBuffer);
+        System.arraycopy(keys, from, keyBuffer, from, to - from);
+        System.arraycopy(tokens, from, tokenBuffer, from, to - from);
+        int i = from;
+        int j = middle;
+        for (int k = from; k < to; k++) {
+            if (j == to || (i < middle && compare(keyBuffer[i], tokenBuffer[i], keyBuffer[j], tokenBuffer[j]) <= 0)) {
+                keys[k] = keyBuffer[i];
+                tokens[k] = tokenBuffer[i++];
+            } else {
+                keys[k] = keyBuffer[j];
+                tokens[k] = tokenBuffer[j++];
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * SimMetrics - SimMetrics is a java library of Similarity or Distance
+ * Metrics, e.g. Levenshtein Distance, that provide float based similarity
+ * measures between String Data. All metrics return consistant measures
+ * rather than unbounded similarity scores.
+ *
+ * Copyright (C) 2005 Sam Chapman - Open Source Release v1.1
+ *
+ * Please Feel free to contact me about this library, I would appreciate
+ * knowing quickly what you wish to use it for and any criticisms/comments
+ * upon the SimMetric library.
+ *
+ * email:       s.chapman@dcs.shef.ac.uk
+ * www:         http://www.dcs.shef.ac.uk/~sam/
+ * www:         http://www.dcs.shef.ac.uk/~sam/stringmetrics.html
+ *
+ * address:     Sam Chapman,
+ *              Department of Computer Science,
+ *              University of Sheffield,
+ *              Sheffield,
+ *              S. Yorks,
+ *              S1 4DP
+ *              United Kingdom,
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package uk.ac.shef.wit.simmetrics.similaritymetrics;
+
+import uk.ac.shef.wit.simmetrics.tokenisers.InterfaceTokeniser;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Package: uk.ac.shef.wit.simmetrics.similaritymetrics
+ * Description: TokenisedString is a string prepared for the token and q-gram metrics, holding its tokens in order
+ * and their profile, the number of times each distinct token occurs.
+ */
+public final class TokenisedString extends PreparedString {
+
+    /**
+     * the tokens of the string, in order.
+     */
+    private final List<String> tokens;
+
+    /**
+     * the number of occurrences of each distinct token.
+     */
+    private final TokenProfile profile;
+
+    /**
+     * constructor.
+     *
+     * @param string the string to tokenise
+     * @param metric the metric preparing the string
+     * @param tokeniser the tokeniser the metric uses
+     */
+    public TokenisedString(final String string, final InterfaceStringMetric metric, final InterfaceTokeniser tokeniser) {
+        super(string, metric);
+        final List<String> tokenList = tokeniser.tokenizeToArrayList(string);
+        tokens = Collections.unmodifiableList(tokenList);
+        profile = new TokenProfile(tokenList);
+    }
+
+    /**
+     * gets the tokens of the string, in order.
+     *
+     * @return the tokens of the string
+     */
+    public List<String> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * gets the profile of the tokens of the string.
+     *
+     * @return the token profile
+     */
+    public TokenProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * gets the distinct tokens of the string.
+     *
+     * @return the distinct tokens of the string
+     */
+    public Set<String> getDistinctTokens() {
+        final Set<String> distinctTokens = new HashSet<String>();
+        for (int i = 0; i < profile.getDistinctTokenCount(); i++) {
+            distinctTokens.add(profile.getDistinctToken(i));
+        }
+        return Collections.unmodifiableSet(distinctTokens);
+    }
+
+    /**
+     * gets the number of distinct tokens of the string.
+     *
+     * @return the number of distinct tokens
+     */
+    public int getDistinctTokenCount() {
+        return profile.getDistinctTokenCount();
+    }
+
+    /**
+     * gets the number of times a token occurs in the string.
+     *
+     * @param token a token
+     * @return the number of occurrences of the token
+     */
+    public int getTokenCount(final String token) {
+        return profile.getTokenCount(token);
+    }
+
+    /**
+     * gets the number of distinct tokens this string has in common with another.
+     *
+     * @param other the other tokenised string
+     * @return the number of distinct tokens in both strings
+     */
+    public int getCommonTokenCount(final TokenisedString other) {
+        return profile.getCommonTokenCount(other.profile);
+    }
+
+    /**
+     * gets the number of distinct tokens in this string or another.
+     *
+     * @param other the other tokenised string
+     * @return the number of distinct tokens in either string
+     */
+    public int getUnionTokenCount(final TokenisedString other) {
+        return profile.getDistinctTokenCount() + other.profile.getDistinctTokenCount() - getCommonTokenCount(other);
+    }
+
+    /**
+     * gets the sum over all tokens of the difference between the number of times they occur in this string and in
+     * another.
+     *
+     * @param other the other tokenised string
+     * @return the total difference in token counts
+     */
+    public int getTokenCountDifference(final TokenisedString other) {
+        return profile.getTokenCountDifference(other.profile);
+    }
+}
@@ -81,5 +81,15 @@ public abstract class AbstractAffineGapCost implements InterfaceAffineGapCost {
      * @return the minimum possible cost
      */
     public abstract float getMinCost();
+
+    /**
+     * gets the cost function compiled into a table, for cost functions where the cost of a gap depends only on its
+     * length.
+     *
+     * @return the compiled costs, or null if the costs depend on more than the gap length
+     */
+    public GapCostTable getCostTable() {
+        return null;
+    }
 }
 
@@ -80,4 +80,14 @@ public abstract class AbstractSubstitutionCost implements InterfaceSubstitutionC
      * @return the minimum possible cost
      */
     public abstract float getMinCost();
+
+    /**
+     * gets the cost function compiled into a table, for cost functions where d(i,j) depends only on the two
+     * characters compared.
+     *
+     * @return the compiled costs, or null if the costs depend on more than the two characters
+     */
+    public SubstitutionCostTable getCostTable() {
+        return null;
+    }
 }
@@ -54,6 +54,11 @@ import java.io.Serializable;
  */
 final public class AffineGap1_1Over3 extends AbstractAffineGapCost implements Serializable {
 
+    /**
+     * the costs compiled into a table.
+     */
+    private static final GapCostTable COSTTABLE = new GapCostTable(new AffineGap1_1Over3());
+
     /**
      * returns the name of the cost function.
      *
@@ -96,5 +101,14 @@ final public class AffineGap1_1Over3 extends AbstractAffineGapCost implements Se
     public final float getMinCost() {
         return 0.0f;
     }
+
+    /**
+     * gets the cost function compiled into a table.
+     *
+     * @return the compiled costs
+     */
+    public final GapCostTable getCostTable() {
+        return COSTTABLE;
+    }
 }
 
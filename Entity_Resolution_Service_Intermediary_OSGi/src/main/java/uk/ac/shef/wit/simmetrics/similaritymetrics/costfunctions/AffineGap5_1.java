@@ -51,6 +51,11 @@ import java.io.Serializable;
  */
 public final class AffineGap5_1 extends AbstractAffineGapCost implements Serializable {
 
+    /**
+     * the costs compiled into a table.
+     */
+    private static final GapCostTable COSTTABLE = new GapCostTable(new AffineGap5_1());
+
     /**
      * returns the name of the cost function.
      *
@@ -93,6 +98,15 @@ public final class AffineGap5_1 extends AbstractAffineGapCost implements Seriali
     public final float getMinCost() {
         return 0.0f;
     }
+
+    /**
+     * gets the cost function compiled into a table.
+     *
+     * @return the compiled costs
+     */
+    public final GapCostTable getCostTable() {
+        return COSTTABLE;
+    }
 }
 
 
@@ -0,0 +1,120 @@
+/**
+ * SimMetrics - SimMetrics is a java library of Similarity or Distance
+ * Metrics, e.g. Levenshtein Distance, that provide float based similarity
+ * measures between String Data. All metrics return consistant measures
+ * rather than unbounded similarity scores.
+ *
+ * Copyright (C) 2005 Sam Chapman - Open Source Release v1.1
+ *
+ * Please Feel free to contact me about this library, I would appreciate
+ * knowing quickly what you wish to use it for and any criticisms/comments
+ * upon the SimMetric library.
+ *
+ * email:       s.chapman@dcs.shef.ac.uk
+ * www:         http://www.dcs.shef.ac.uk/~sam/
+ * www:         http://www.dcs.shef.ac.uk/~sam/stringmetrics.html
+ *
+ * address:     Sam Chapman,
+ *              Department of Computer Science,
+ *              University of Sheffield,
+ *              Sheffield,
+ *              S. Yorks,
+ *              S1 4DP
+ *              United Kingdom,
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions;
+
+import java.util.Arrays;
+
+/**
+ * Package: costfunctions
+ * Description: GapCostTable is an affine gap cost function compiled into an array of the cost of each gap length, for
+ * cost functions where the cost of a gap depends only on its length. The array grows as longer gaps are asked for;
+ * an array once handed out is never changed, so a table may be shared between threads.
+ */
+public final class GapCostTable {
+
+    /**
+     * the number of gap lengths costed up front.
+     */
+    private static final int INITIALLENGTH = 64;
+
+    /**
+     * the gap cost function compiled.
+     */
+    private final AbstractAffineGapCost gapCostFunc;
+
+    /**
+     * the cost of each gap length.
+     */
+    private volatile float[] costs;
+
+    /**
+     * constructor.
+     *
+     * @param gapCostFunc a gap cost function whose costs depend only on the gap length
+     */
+    public GapCostTable(final AbstractAffineGapCost gapCostFunc) {
+        this.gapCostFunc = gapCostFunc;
+        costs = fill(new float[0], INITIALLENGTH);
+    }
+
+    /**
+     * gets the costs of the gap lengths up to at least the given length. The array returned must not be changed.
+     *
+     * @param maxGapLength the longest gap to be costed
+     * @return the cost of each gap length, indexed by the length
+     */
+    public float[] getCosts(final int maxGapLength) {
+        final float[] ret = costs;
+        if (maxGapLength < ret.length) {
+            return ret;
+        }
+        return grow(maxGapLength);
+    }
+
+    /**
+     * grows the costs to cover at least the given gap length.
+     *
+     * @param maxGapLength the longest gap to be costed
+     * @return the cost of each gap length
+     */
+    private synchronized float[] grow(final int maxGapLength) {
+        float[] ret = costs;
+        if (maxGapLength >= ret.length) {
+            ret = fill(ret, Math.max(maxGapLength + 1, 2 * ret.length));
+            costs = ret;
+        }
+        return ret;
+    }
+
+    /**
+     * copies the costs into a longer array, costing the gap lengths added.
+     *
+     * @param costs the costs so far
+     * @param length the number of gap lengths to cost
+     * @return the costs of the gap lengths below length
+     */
+    private float[] fill(final float[] costs, final int length) {
+        final float[] ret = Arrays.copyOf(costs, length);
+        for (int gapLength = costs.length; gapLength < length; gapLength++) {
+            ret[gapLength] = gapCostFunc.getCost("", 0, gapLength);
+        }
+        return ret;
+    }
+}
@@ -51,6 +51,11 @@ import java.io.Serializable;
  */
 final public class SubCost01 extends AbstractSubstitutionCost implements Serializable {
 
+    /**
+     * the costs compiled into a table.
+     */
+    private static final SubstitutionCostTable COSTTABLE = new SubstitutionCostTable(0.0f, 1.0f, 1.0f, new String[0]);
+
     /**
      * returns the name of the cost function.
      *
@@ -94,4 +99,13 @@ final public class SubCost01 extends AbstractSubstitutionCost implements Seriali
     public final float getMinCost() {
         return 0.0f;
     }
+
+    /**
+     * gets the cost function compiled into a table.
+     *
+     * @return the compiled costs
+     */
+    public final SubstitutionCostTable getCostTable() {
+        return COSTTABLE;
+    }
 }
@@ -52,6 +52,11 @@ import java.io.Serializable;
  */
 public final class SubCost1_Minus2 extends AbstractSubstitutionCost implements Serializable {
 
+    /**
+     * the costs compiled into a table.
+     */
+    private static final SubstitutionCostTable COSTTABLE = new SubstitutionCostTable(1.0f, -2.0f, -2.0f, new String[0]);
+
     /**
      * returns the name of the cost function.
      *
@@ -103,5 +108,14 @@ public final class SubCost1_Minus2 extends AbstractSubstitutionCost implements S
     public final float getMinCost() {
         return -2.0f;
     }
+
+    /**
+     * gets the cost function compiled into a table.
+     *
+     * @return the compiled costs
+     */
+    public final SubstitutionCostTable getCostTable() {
+        return COSTTABLE;
+    }
 }
 
@@ -40,8 +40,6 @@
 package uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions;
 
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Package: costfunctions
@@ -72,42 +70,11 @@ public final class SubCost5_3_Minus3 extends AbstractSubstitutionCost implements
     private static final int CHAR_MISMATCH_MATCH_SCORE = -3;
 
     /**
-     * approximate charcater set.
-     */
-    static private final Set[] approx;
-
-    /**
-     * approximate match = +3,
+     * the costs compiled into a table, with an approximate match = +3,
      * for pairings in {dt} {gj} {lr} {mn} {bpv} {aeiou} {,.}.
      */
-    static {
-        approx = new Set[7];
-        approx[0] = new HashSet();
-        approx[0].add('d');
-        approx[0].add('t');
-        approx[1] = new HashSet();
-        approx[1].add('g');
-        approx[1].add('j');
-        approx[2] = new HashSet();
-        approx[2].add('l');
-        approx[2].add('r');
-        approx[3] = new HashSet();
-        approx[3].add('m');
-        approx[3].add('n');
-        approx[4] = new HashSet();
-        approx[4].add('b');
-        approx[4].add('p');
-        approx[4].add('v');
-        approx[5] = new HashSet();
-        approx[5].add('a');
-        approx[5].add('e');
-        approx[5].add('i');
-        approx[5].add('o');
-        approx[5].add('u');
-        approx[6] = new HashSet();
-        approx[6].add(',');
-        approx[6].add('.');
-    }
+    private static final SubstitutionCostTable COSTTABLE = new SubstitutionCostTable(CHAR_EXACT_MATCH_SCORE, CHAR_APPROX_MATCH_SCORE,
+            CHAR_MISMATCH_MATCH_SCORE, new String[] {"dt", "gj", "lr", "mn", "bpv", "aeiou", ",."});
 
     /**
      * returns the name of the cost function.
@@ -139,18 +106,7 @@ public final class SubCost5_3_Minus3 extends AbstractSubstitutionCost implements
             return CHAR_MISMATCH_MATCH_SCORE;
         }
 
-        if (str1.charAt(string1Index) == str2.charAt(string2Index)) {
-            return CHAR_EXACT_MATCH_SCORE;
-        } else {
-            //check for approximate match
-            final Character si = Character.toLowerCase(str1.charAt(string1Index));
-            final Character ti = Character.toLowerCase(str2.charAt(string2Index));
-            for (Set aApprox : approx) {
-                if (aApprox.contains(si) && aApprox.contains(ti))
-                    return CHAR_APPROX_MATCH_SCORE;
-            }
-            return CHAR_MISMATCH_MATCH_SCORE;
-        }
+        return COSTTABLE.getCost(str1.charAt(string1Index), str2.charAt(string2Index));
     }
 
     /**
@@ -170,6 +126,15 @@ public final class SubCost5_3_Minus3 extends AbstractSubstitutionCost implements
     public final float getMinCost() {
         return CHAR_MISMATCH_MATCH_SCORE;
     }
+
+    /**
+     * gets the cost function compiled into a table.
+     *
+     * @return the compiled costs
+     */
+    public final SubstitutionCostTable getCostTable() {
+        return COSTTABLE;
+    }
 }
 
 
@@ -0,0 +1,123 @@
+/**
+ * SimMetrics - SimMetrics is a java library of Similarity or Distance
+ * Metrics, e.g. Levenshtein Distance, that provide float based similarity
+ * measures between String Data. All metrics return consistant measures
+ * rather than unbounded similarity scores.
+ *
+ * Copyright (C) 2005 Sam Chapman - Open Source Release v1.1
+ *
+ * Please Feel free to contact me about this library, I would appreciate
+ * knowing quickly what you wish to use it for and any criticisms/comments
+ * upon the SimMetric library.
+ *
+ * email:       s.chapman@dcs.shef.ac.uk
+ * www:         http://www.dcs.shef.ac.uk/~sam/
+ * www:         http://www.dcs.shef.ac.uk/~sam/stringmetrics.html
+ *
+ * address:     Sam Chapman,
+ *              Department of Computer Science,
+ *              University of Sheffield,
+ *              Sheffield,
+ *              S. Yorks,
+ *              S1 4DP
+ *              United Kingdom,
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the
+ * Free Software Foundation; either version 2 of the License, or (at your
+ * option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+ */
+
+package uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions;
+
+/**
+ * Package: costfunctions
+ * Description: SubstitutionCostTable is a substitution cost function compiled into dense tables, for cost functions
+ * where d(i,j) depends only on the two characters compared. Equal characters cost the exact match cost; otherwise
+ * each character falls into a class, by its lower case, and the cost is looked up by the two classes. Looking a cost
+ * up neither boxes the characters nor calls through the cost function, so the alignment kernels use the table in
+ * their inner loops.
+ */
+public final class SubstitutionCostTable {
+
+    /**
+     * the class of the characters in no approximate group.
+     */
+    private static final int NOCLASS = 0;
+
+    /**
+     * the cost of two equal characters.
+     */
+    private final float exactMatchCost;
+
+    /**
+     * the class of every character.
+     */
+    private final byte[] charClasses;
+
+    /**
+     * the number of character classes.
+     */
+    private final int classCount;
+
+    /**
+     * the cost of two different characters by their classes, row by row.
+     */
+    private final float[] classCosts;
+
+    /**
+     * constructor.
+     *
+     * @param exactMatchCost the cost of two equal characters
+     * @param approximateMatchCost the cost of two different characters in the same approximate group
+     * @param mismatchCost the cost of any other two characters
+     * @param approximateGroups the groups of approximately equal characters, compared in lower case
+     */
+    public SubstitutionCostTable(final float exactMatchCost, final float approximateMatchCost, final float mismatchCost,
+                                 final String[] approximateGroups) {
+        if (approximateGroups.length >= Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("At most " + (Byte.MAX_VALUE - 1) + " approximate groups are supported, not " + approximateGroups.length);
+        }
+        this.exactMatchCost = exactMatchCost;
+        classCount = approximateGroups.length + 1;
+        charClasses = new byte[Character.MAX_VALUE + 1];
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            final char lowerCase = Character.toLowerCase((char) c);
+            for (int group = 0; group < approximateGroups.length; group++) {
+                if (approximateGroups[group].indexOf(lowerCase) >= 0) {
+                    charClasses[c] = (byte) (group + 1);
+                    break;
+                }
+            }
+        }
+        classCosts = new float[classCount * classCount];
+        for (int class1 = 0; class1 < classCount; class1++) {
+            for (int class2 = 0; class2 < classCount; class2++) {
+                classCosts[class1 * classCount + class2] = class1 == class2 && class1 != NOCLASS ? approximateMatchCost : mismatchCost;
+            }
+        }
+    }
+
+    /**
+     * gets the cost of substituting one character for another.
+     *
+     * @param char1 the character of string 1
+     * @param char2 the character of string 2
+     * @return the cost of the substitution d(i,j)
+     */
+    public float getCost(final char char1, final char char2) {
+        if (char1 == char2) {
+            return exactMatchCost;
+        }
+        return classCosts[charClasses[char1] * classCount + charClasses[char2]];
+    }
+}
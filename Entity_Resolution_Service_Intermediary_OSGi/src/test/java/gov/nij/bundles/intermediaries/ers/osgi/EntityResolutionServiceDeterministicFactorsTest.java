@@ -18,9 +18,11 @@
 package gov.nij.bundles.intermediaries.ers.osgi;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -34,6 +36,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import serf.data.Attribute;
+import serf.data.ScoreMemo;
 
 /**
  * This test class will test the Deterministic Factors algorithm. It will test the DF functions in isolation and then as part of a larger ER service call.
@@ -652,6 +655,63 @@ public class EntityResolutionServiceDeterministicFactorsTest {
 
     }
 
+    @Test
+    public void testMatchPlan() throws Exception {
+
+        MatchPlan plan = new MatchPlan(realisticAttributeParameterSet, new ScoreMemo());
+        assertEquals(5, plan.size());
+        assertEquals(new HashSet<String>(Arrays.asList("SID", "FBI")), plan.getDeterminativeAttributes());
+        assertEquals(2, plan.getDeterminativeOrdinals().length);
+        assertEquals(3, plan.getNonDeterminativeOrdinals().length);
+        for (int i : plan.getDeterminativeOrdinals()) {
+            assertTrue(plan.isDeterminative(i));
+            assertTrue(plan.getDeterminativeAttributes().contains(plan.getAttributeName(i)));
+        }
+
+        ExternallyIdentifiableRecord r1 = makeNewRealWorldScenariosRecord("1", null, "Smith", "John", null, "record1");
+        ExternallyIdentifiableRecord r2 = makeNewRealWorldScenariosRecord(null, "2", "Smyth", "Jon", "1970", "record2");
+        assertTrue(plan.haveSameAttributes(r1, r2));
+        // the signature is cached on the record, and gives the same answer
+        assertTrue(plan.haveSameAttributes(r1, r2));
+
+        Map<String, Attribute> attributes = new HashMap<String, Attribute>(r2.getAttributes());
+        attributes.remove("DOB");
+        ExternallyIdentifiableRecord r3 = new ExternallyIdentifiableRecord(attributes, "record3");
+        assertFalse(plan.haveSameAttributes(r1, r3));
+
+        // attributes the plan does not know are compared by name
+        attributes = new HashMap<String, Attribute>(r1.getAttributes());
+        attributes.put("Alias", new Attribute("Alias", "Johnny"));
+        ExternallyIdentifiableRecord r4 = new ExternallyIdentifiableRecord(attributes, "record4");
+        attributes = new HashMap<String, Attribute>(r2.getAttributes());
+        attributes.put("Alias", new Attribute("Alias", "Jack"));
+        ExternallyIdentifiableRecord r5 = new ExternallyIdentifiableRecord(attributes, "record5");
+        assertFalse(plan.haveSameAttributes(r1, r4));
+        assertTrue(plan.haveSameAttributes(r4, r5));
+        attributes.remove("Alias");
+        attributes.put("Nickname", new Attribute("Nickname", "Jack"));
+        assertFalse(plan.haveSameAttributes(r4, new ExternallyIdentifiableRecord(attributes, "record6")));
+
+    }
+
+    @Test
+    public void testAttributeEvaluationOrder() throws Exception {
+
+        // attribute 0 is expensive and never rejects, attribute 1 is cheap and always rejects
+        AttributeEvaluationOrder order = new AttributeEvaluationOrder(new int[] { 0, 1 }, 2);
+        assertEquals(0, order.getOrder()[0]);
+        for (int pair = 0; pair < AttributeEvaluationOrder.REORDER_INTERVAL; pair++) {
+            boolean timed = order.isSampling();
+            order.observe(0, false, timed ? 1000 : -1);
+            order.observe(1, true, timed ? 10 : -1);
+            order.pairDone();
+        }
+        assertTrue(order.costPerRejection(1) < order.costPerRejection(0));
+        assertEquals(1, order.getOrder()[0]);
+        assertEquals(0, order.getOrder()[1]);
+
+    }
+
     private ExternallyIdentifiableRecord makeNewRealWorldScenariosRecord(String sid, String fbi, String lastName, String firstName, String DOB, String recordId) {
         return new ExternallyIdentifiableRecord(makeAttributes(new Attribute("SID", sid), new Attribute("FBI", fbi), new Attribute("LastName", lastName), new Attribute("FirstName", firstName), new Attribute("DOB", DOB)), recordId);
     }
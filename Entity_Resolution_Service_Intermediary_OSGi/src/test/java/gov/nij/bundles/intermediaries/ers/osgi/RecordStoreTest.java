@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013 SEARCH Group, Incorporated. 
+ * 
+ * See the NOTICE file distributed with  this work for additional information 
+ * regarding copyright ownership.  SEARCH Group Inc. licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not use this 
+ * file except in compliance with the License.  You may obtain a copy of the 
+ * License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nij.bundles.intermediaries.ers.osgi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the conversion of records to and from the columnar record store, and blocking on the store's value ids.
+ * 
+ */
+public class RecordStoreTest {
+
+    private RecordStore store;
+    private List<RecordWrapper> recordWrappers;
+
+    @Before
+    public void setUp() throws Exception {
+        recordWrappers = new ArrayList<RecordWrapper>();
+        recordWrappers.add(makeRecord("1", "Andrew", "Owen"));
+        recordWrappers.add(makeRecord("2", "Andy", "Owens"));
+        recordWrappers.add(makeRecord("3", "Andrew", null));
+        recordWrappers.add(makeRecord("4", "Scott", "Owen"));
+        recordWrappers.add(makeRecord("5", "Samuel", "Morris"));
+        recordWrappers.get(1).setRelatedIds(new HashSet<String>(Arrays.asList("6", "7")));
+        store = new RecordStore();
+        store.addAll(recordWrappers);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        assertEquals(recordWrappers.size(), store.size());
+        assertEquals(2, store.getAttributeCount());
+        for (int i = 0; i < store.size(); i++) {
+            assertEquals(describeRecord(recordWrappers.get(i)), describeRecord(store.toRecordWrapper(i)));
+            assertEquals(recordWrappers.get(i).getRelatedIds(), store.toRecordWrapper(i).getRelatedIds());
+            assertEquals(recordWrappers.get(i).getRelatedIds(), store.toRecord(i).getRelatedIds());
+        }
+        RecordStore copy = new RecordStore();
+        for (int i = 0; i < store.size(); i++) {
+            copy.add(store.toRecord(i));
+        }
+        for (int i = 0; i < store.size(); i++) {
+            assertEquals(store.toRecord(i), copy.toRecord(i));
+        }
+    }
+
+    @Test
+    public void testDictionaryEncoding() {
+        int givenName = store.getAttributeOrdinal("givenName");
+        int surName = store.getAttributeOrdinal("surName");
+        assertEquals(-1, store.getAttributeOrdinal("dob"));
+        // repeated values share one id
+        assertValueIds(store.getValueIds(0, givenName), store.getValueIds(2, givenName));
+        assertValueIds(store.getValueIds(0, surName), store.getValueIds(3, surName));
+        assertEquals(4, store.getDictionary(givenName).size());
+        assertNull(store.getValueIds(2, surName));
+        // a large store grows its columns
+        for (int i = 0; i < 100; i++) {
+            store.add(makeRecord("x" + i, "Given" + (i % 7), "Sur" + i));
+        }
+        assertEquals(recordWrappers.size() + 100, store.size());
+        assertEquals(11, store.getDictionary(givenName).size());
+        assertEquals("Sur99", store.getDictionary(surName).getValue(store.getValueIds(store.size() - 1, surName)[0]));
+    }
+
+    @Test
+    public void testPartition() {
+        AttributeParameters givenNameParameters = new AttributeParameters("givenName");
+        givenNameParameters.setBlockingKey(new BlockingKeySpecification(BlockingKeySpecification.BLOCKING_KEY_PREFIX, 2));
+        AttributeParameters surNameParameters = new AttributeParameters("surName");
+        Set<AttributeParameters> attributeParameters = new HashSet<AttributeParameters>();
+        attributeParameters.add(givenNameParameters);
+        attributeParameters.add(surNameParameters);
+
+        List<int[]> blocks = store.partition(new AttributeBlockingKeyFunction(attributeParameters));
+        assertEquals(3, blocks.size());
+        assertValueIds(new int[] { 0, 1, 2 }, blocks.get(0));
+        assertValueIds(new int[] { 3 }, blocks.get(1));
+        assertValueIds(new int[] { 4 }, blocks.get(2));
+
+        // blocking on surname as well joins Scott Owen to Andrew Owen's block
+        surNameParameters.setBlockingKey(new BlockingKeySpecification(BlockingKeySpecification.BLOCKING_KEY_EXACT));
+        blocks = store.partition(new AttributeBlockingKeyFunction(attributeParameters));
+        assertEquals(2, blocks.size());
+        assertValueIds(new int[] { 0, 1, 2, 3 }, blocks.get(0));
+        assertValueIds(new int[] { 4 }, blocks.get(1));
+    }
+
+    private static void assertValueIds(int[] expected, int[] actual) {
+        assertEquals(Arrays.toString(expected), Arrays.toString(actual));
+    }
+
+    private static String describeRecord(RecordWrapper rw) {
+        Map<String, Set<String>> values = new TreeMap<String, Set<String>>();
+        for (Map.Entry<String, AttributeWrapper> entry : rw.getAttributes().entrySet()) {
+            values.put(entry.getKey(), entry.getValue().getValues());
+        }
+        return rw.getExternalId() + values;
+    }
+
+    private static RecordWrapper makeRecord(String externalId, String givenName, String surName) {
+        Map<String, AttributeWrapper> attributes = new HashMap<String, AttributeWrapper>();
+        attributes.put("givenName", new AttributeWrapper("givenName", givenName));
+        if (surName != null) {
+            attributes.put("surName", new AttributeWrapper("surName", surName));
+        }
+        return new RecordWrapper(attributes, externalId);
+    }
+
+}
@@ -23,6 +23,43 @@ import junit.framework.*;
 import org.junit.*;
 import org.junit.Test;
 
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import serf.data.ScoreMemo;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.BitParallelLevenshtein;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.BlockDistance;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.EuclideanDistance;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.InterfaceStringMetric;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.JaccardSimilarity;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.Levenshtein;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.NysiisEncoder;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.PhoneticString;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.PreparedString;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.QGramsDistance;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.SmithWatermanGotoh;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.SmithWatermanGotohWindowedAffine;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.Soundex;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.SoundexEncoder;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.TokenProfile;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions.AbstractAffineGapCost;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions.AbstractSubstitutionCost;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions.AffineGap1_1Over3;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions.AffineGap5_1;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions.GapCostTable;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions.SubCost01;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions.SubCost1_Minus2;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions.SubCost5_3_Minus3;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.TokenisedString;
+
+import com.wcohen.ss.api.StringDistance;
+
 public class AlgorithmScoreTest extends TestCase
 {
     
@@ -148,4 +185,525 @@ public class AlgorithmScoreTest extends TestCase
         assertEquals(0.0, score);
 	}
 
+    @Test
+    public void testScoreAtLeast() throws Exception
+    {
+        StringDistance[] distances = new StringDistance[] {
+            new StringMetricStringDistance(new uk.ac.shef.wit.simmetrics.similaritymetrics.Levenshtein()),
+            new StringMetricStringDistance(new uk.ac.shef.wit.simmetrics.similaritymetrics.Jaro()),
+            new StringMetricStringDistance(new uk.ac.shef.wit.simmetrics.similaritymetrics.JaroWinkler()),
+            new StringMetricStringDistance(new uk.ac.shef.wit.simmetrics.similaritymetrics.NeedlemanWunch()),
+            new com.wcohen.ss.NeedlemanWunsch(),
+            new com.wcohen.ss.Levenstein(),
+            new com.wcohen.ss.ScaledLevenstein(),
+            new com.wcohen.ss.Jaro(),
+        };
+        String[] values = new String[] { "", "Jones", "Johnson", "Jonson", "Martha", "Marhta", "Saturday", "Sunday", "ABCVWXYZ", "CABVWXYZ", "Clinton", "Bush" };
+        double[] thresholds = new double[] { -8, -3, -1, -0.5, 0, 0.1, 0.5, 0.75, 0.8, 0.9, 0.95, 1, 1.5 };
+        for (StringDistance distance : distances)
+        {
+            for (String s : values)
+            {
+                for (String t : values)
+                {
+                    double score = distance.score(s, t);
+                    for (double threshold : thresholds)
+                    {
+                        double bounded = distance.scoreAtLeast(s, t, threshold);
+                        String message = distance + " [" + s + "] [" + t + "] threshold=" + threshold;
+                        if (Double.isNaN(score))
+                        {
+                            // ScaledLevenstein's score of two empty strings
+                            assertTrue(message, Double.isNaN(bounded));
+                        }
+                        else if (score >= threshold)
+                        {
+                            assertEquals(message, score, bounded);
+                        }
+                        else
+                        {
+                            assertTrue(message, bounded < threshold);
+                        }
+                        assertEquals(message, score > threshold, distance.matches(s, t, threshold));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testScoreMemoBounds() throws Exception
+    {
+        ScoreMemo memo = new ScoreMemo();
+        StringDistanceScoreMatcher memoizedLevenstein = new StringDistanceScoreMatcher(LEVENSTEIN_DISTANCE_IMPL);
+        memoizedLevenstein.init();
+        memoizedLevenstein.setScoreMemo(memo);
+        assertFalse(memoizedLevenstein.valuesMatch("Clinton", "Bush"));
+        assertTrue(memoizedLevenstein.valuesMatch("Saturday", "Saturday"));
+        // the pair that fell short is only known to be below the threshold, the one that matched has its score
+        long key = memo.getKey("Clinton", "Bush");
+        assertTrue(Double.isNaN(memo.get(memo.getScorerIndex(LEVENSTEIN_DISTANCE_IMPL), key)));
+        assertEquals(StringDistanceScoreMatcher.DEFAULT_THRESHOLD, memo.get(memo.getBoundIndex(LEVENSTEIN_DISTANCE_IMPL), key));
+        assertEquals(1.0, memo.get(memo.getScorerIndex(LEVENSTEIN_DISTANCE_IMPL), memo.getKey("Saturday", "Saturday")));
+        // a lower threshold needs the score after all
+        memoizedLevenstein.setThreshold(0.5);
+        assertTrue(memoizedLevenstein.valuesMatch("Saturday", "Sunday"));
+        assertFalse(memoizedLevenstein.valuesMatch("Clinton", "Bush"));
+        for (String[] pair : new String[][] { { "kitten", "sitting" }, { "Jones", "Johnson" }, { "Clinton", "Bush" } })
+        {
+            levensteinStringDistanceScoreMatcher.setThreshold(0.5);
+            assertEquals(levensteinStringDistanceScoreMatcher.valuesMatch(pair[0], pair[1]), memoizedLevenstein.valuesMatch(pair[0], pair[1]));
+        }
+    }
+
+    @Test
+    public void testPreparedValues() throws Exception
+    {
+        ScoreMemo memo = new ScoreMemo();
+        for (String algorithm : new String[] { "com.wcohen.ss.Level2Jaro", "com.wcohen.ss.TFIDF", JARO_DISTANCE_IMPL })
+        {
+            StringDistanceScoreMatcher plain = new StringDistanceScoreMatcher(algorithm);
+            plain.init();
+            StringDistanceScoreMatcher memoized = new StringDistanceScoreMatcher(algorithm);
+            memoized.init();
+            memoized.setScoreMemo(memo);
+            String[] values = new String[] { "John Smith", "Smith John", "Jon Smyth", "Mary Jones" };
+            for (String s : values)
+            {
+                for (String t : values)
+                {
+                    assertEquals(plain.score(s, t), memoized.score(s, t));
+                    assertEquals(plain.valuesMatch(s, t), memoized.valuesMatch(s, t));
+                }
+            }
+            // each value was prepared once, and kept for the algorithm
+            int scorerIndex = memo.getScorerIndex(algorithm);
+            Object prepared = memo.getPrepared(scorerIndex, memo.getValueId("John Smith"));
+            assertNotNull(prepared);
+            memoized.score("John Smith", "Johnny Smith");
+            assertSame(prepared, memo.getPrepared(scorerIndex, memo.getValueId("John Smith")));
+        }
+    }
+
+    @Test
+    public void testPreparedStrings() throws Exception
+    {
+        String[] values = new String[] { "John Smith", "Smith John", "Jon Smyth", "Mary Jones", "Robert", "Rupert", "aaa aaa b" };
+        for (Algorithm algorithm : Algorithm.SUPPORTED_ALGORITHMS)
+        {
+            Class<?> algorithmClass;
+            try
+            {
+                algorithmClass = Class.forName(algorithm.getClassName());
+            }
+            catch (ClassNotFoundException e)
+            {
+                // not every supported algorithm ships in this bundle
+                continue;
+            }
+            if (!InterfaceStringMetric.class.isAssignableFrom(algorithmClass) || algorithmClass.isInterface() || Modifier.isAbstract(algorithmClass.getModifiers()))
+            {
+                continue;
+            }
+            InterfaceStringMetric metric = (InterfaceStringMetric) algorithmClass.newInstance();
+            for (String s : values)
+            {
+                PreparedString preparedS = metric.prepare(s);
+                for (String t : values)
+                {
+                    PreparedString preparedT = metric.prepare(t);
+                    float similarity = metric.getSimilarity(s, t);
+                    String message = algorithm + " [" + s + "] [" + t + "]";
+                    assertEquals(message, similarity, metric.getSimilarity(preparedS, preparedT));
+                    assertEquals(message, similarity > 0.5f, metric.getSimilarityAtLeast(preparedS, preparedT, 0.5f) > 0.5f);
+                }
+            }
+        }
+        // strings prepared by another metric are compared as plain strings
+        QGramsDistance qGrams = new QGramsDistance();
+        assertEquals(qGrams.getSimilarity("Robert", "Rupert"), qGrams.getSimilarity(new QGramsDistance().prepare("Robert"), qGrams.prepare("Rupert")));
+        assertTrue(qGrams.prepare("Robert") instanceof TokenisedString);
+        assertTrue(new Soundex().prepare("Robert") instanceof PhoneticString);
+    }
+
+    @Test
+    public void testBitParallelLevenshtein() throws Exception
+    {
+        StringDistance levenstein = new com.wcohen.ss.Levenstein();
+        StringDistance bitParallelLevenstein = new com.wcohen.ss.BitParallelLevenstein();
+        InterfaceStringMetric levenshtein = new Levenshtein();
+        InterfaceStringMetric bitParallelLevenshtein = new BitParallelLevenshtein();
+        Random random = new Random(42);
+        // lengths either side of one and two 64-bit words
+        int[] lengths = new int[] { 0, 1, 2, 7, 31, 63, 64, 65, 100, 127, 128, 129, 200 };
+        String alphabet = "abcAB c\u00e9";
+        for (int i = 0; i < 400; i++)
+        {
+            String s = randomString(random, lengths[random.nextInt(lengths.length)], alphabet);
+            // mostly similar strings, as record values being matched are
+            String t = random.nextBoolean() ? mutate(random, s, alphabet) : randomString(random, lengths[random.nextInt(lengths.length)], alphabet);
+            String message = "[" + s + "] [" + t + "]";
+            double score = levenstein.score(s, t);
+            assertEquals(message, score, bitParallelLevenstein.score(s, t));
+            assertEquals(message, score, bitParallelLevenstein.score(bitParallelLevenstein.prepare(s), bitParallelLevenstein.prepare(t)));
+            float similarity = levenshtein.getSimilarity(s, t);
+            assertEquals(message, similarity, bitParallelLevenshtein.getSimilarity(s, t));
+            assertEquals(message, similarity, bitParallelLevenshtein.getSimilarity(bitParallelLevenshtein.prepare(s), bitParallelLevenshtein.prepare(t)));
+        }
+        assertNotNull(Algorithm.forClassName("com.wcohen.ss.BitParallelLevenstein"));
+        assertNotNull(Algorithm.forClassName("uk.ac.shef.wit.simmetrics.similaritymetrics.BitParallelLevenshtein"));
+    }
+
+    @Test
+    public void testLinearSpaceAlignments() throws Exception
+    {
+        com.wcohen.ss.ApproxNeedlemanWunsch narrowApproxNeedlemanWunsch = new com.wcohen.ss.ApproxNeedlemanWunsch();
+        narrowApproxNeedlemanWunsch.setWidth(3);
+        StringDistance[] distances = new StringDistance[] {
+            new com.wcohen.ss.NeedlemanWunsch(),
+            new com.wcohen.ss.NeedlemanWunsch(com.wcohen.ss.CharMatchScore.DIST_21, 2.0),
+            new com.wcohen.ss.SmithWaterman(),
+            new com.wcohen.ss.AffineGap(),
+            new com.wcohen.ss.AffineGap(com.wcohen.ss.CharMatchScore.DIST_21, -5, -1, 0),
+            new com.wcohen.ss.ApproxNeedlemanWunsch(),
+            narrowApproxNeedlemanWunsch,
+        };
+        Random random = new Random(7);
+        int[] lengths = new int[] { 0, 1, 2, 5, 12, 30, 45, 90 };
+        String alphabet = "abcAB c";
+        for (int i = 0; i < 100; i++)
+        {
+            String s = randomString(random, lengths[random.nextInt(lengths.length)], alphabet);
+            String t = random.nextBoolean() ? mutate(random, s, alphabet) : randomString(random, lengths[random.nextInt(lengths.length)], alphabet);
+            for (StringDistance distance : distances)
+            {
+                // the explanation still fills the memoized matrix
+                String explanation = distance.explainScore(s, t);
+                double matrixScore = Double.parseDouble(explanation.substring(explanation.lastIndexOf("Score = ") + "Score = ".length()).trim());
+                assertEquals(distance + " [" + s + "] [" + t + "]", matrixScore, distance.score(s, t));
+            }
+        }
+    }
+
+    @Test
+    public void testJaroKernels() throws Exception
+    {
+        StringDistance jaro = new com.wcohen.ss.Jaro();
+        InterfaceStringMetric simMetricsJaro = new uk.ac.shef.wit.simmetrics.similaritymetrics.Jaro();
+        Random random = new Random(11);
+        // lengths either side of one and two 64-bit words
+        int[] lengths = new int[] { 0, 1, 2, 3, 6, 11, 63, 64, 65, 130 };
+        // the characters the old implementations marked used characters with
+        String alphabet = "abcAB*\u0000";
+        for (int i = 0; i < 1000; i++)
+        {
+            String s = randomString(random, lengths[random.nextInt(lengths.length)], alphabet);
+            String t = random.nextBoolean() ? mutate(random, s, alphabet) : randomString(random, lengths[random.nextInt(lengths.length)], alphabet);
+            String message = "[" + s + "] [" + t + "]";
+            assertEquals(message, ReferenceJaro.secondStringScore(s.toLowerCase(), t.toLowerCase()), jaro.score(s, t));
+            float similarity = ReferenceJaro.simMetricsSimilarity(s, t);
+            assertEquals(message, similarity, simMetricsJaro.getSimilarity(s, t));
+            float threshold = random.nextFloat();
+            float bounded = simMetricsJaro.getSimilarityAtLeast(s, t, threshold);
+            if (similarity >= threshold)
+            {
+                assertEquals(message, similarity, bounded);
+            }
+            else
+            {
+                assertTrue(message, bounded < threshold);
+            }
+        }
+    }
+
+    @Test
+    public void testTokenProfiles() throws Exception
+    {
+        Random random = new Random(13);
+        // tokens of up to three characters are packed into their keys, longer ones hashed: "AaAa" and "BBBB" collide
+        String[] vocabulary = new String[] { "a", "Aa", "BB", "abc", "abcd", "AaAa", "BBBB", "AaBB", "smith", "jonathan" };
+        for (int i = 0; i < 500; i++)
+        {
+            List<String> tokens1 = randomTokens(random, vocabulary);
+            List<String> tokens2 = randomTokens(random, vocabulary);
+            Map<String, Integer> counts1 = countTokens(tokens1);
+            Map<String, Integer> counts2 = countTokens(tokens2);
+            TokenProfile profile1 = new TokenProfile(tokens1);
+            TokenProfile profile2 = new TokenProfile(tokens2);
+            String message = tokens1 + " " + tokens2;
+            assertEquals(message, tokens1.size(), profile1.getTokenCount());
+            assertEquals(message, counts1.size(), profile1.getDistinctTokenCount());
+            Set<String> distinctTokens = new HashSet<String>();
+            for (int j = 0; j < profile1.getDistinctTokenCount(); j++)
+            {
+                distinctTokens.add(profile1.getDistinctToken(j));
+            }
+            assertEquals(message, counts1.keySet(), distinctTokens);
+
+            int commonTokens = 0;
+            int difference = 0;
+            int squaredDifference = 0;
+            for (String token : vocabulary)
+            {
+                int count1 = counts1.containsKey(token) ? counts1.get(token) : 0;
+                int count2 = counts2.containsKey(token) ? counts2.get(token) : 0;
+                assertEquals(message + " " + token, count1, profile1.getTokenCount(token));
+                if (count1 > 0 && count2 > 0)
+                {
+                    commonTokens++;
+                }
+                difference += Math.abs(count1 - count2);
+                squaredDifference += (count1 - count2) * (count1 - count2);
+            }
+            assertEquals(message, commonTokens, profile1.getCommonTokenCount(profile2));
+            assertEquals(message, difference, profile1.getTokenCountDifference(profile2));
+            assertEquals(message, squaredDifference, profile1.getSquaredTokenCountDifference(profile2));
+            assertEquals(message, difference, profile2.getTokenCountDifference(profile1));
+
+            // the token metrics score prepared strings the same as plain ones
+            String s = join(tokens1);
+            String t = join(tokens2);
+            InterfaceStringMetric[] metrics = new InterfaceStringMetric[] { new BlockDistance(), new EuclideanDistance(), new JaccardSimilarity(), new QGramsDistance() };
+            for (InterfaceStringMetric metric : metrics)
+            {
+                assertEquals(message, metric.getSimilarity(s, t), metric.getSimilarity(metric.prepare(s), metric.prepare(t)));
+            }
+        }
+    }
+
+    @Test
+    public void testPhoneticEncoders() throws Exception
+    {
+        Random random = new Random(17);
+        // letters of every soundex group, Y, characters that are not letters, and characters that upper case to letters
+        String alphabet = "abcdeghlmnrsyBHPWY -'1\u00df\u00e9";
+        int[] lengths = new int[] { 0, 1, 2, 5, 10, 24, 25, 26, 27, 40 };
+        SoundexEncoder encoder = new SoundexEncoder(6, 16);
+        for (int i = 0; i < 2000; i++)
+        {
+            String s = randomString(random, lengths[random.nextInt(lengths.length)], alphabet);
+            int soundExLen = 2 + random.nextInt(11);
+            assertEquals("[" + s + "] " + soundExLen, ReferenceSoundex.calcSoundEx(s, soundExLen), Soundex.calcSoundEx(s, soundExLen));
+            assertEquals("[" + s + "]", ReferenceSoundex.calcSoundEx(s, 6), encoder.encode(s));
+        }
+        // a twenty-fifth letter only counts if it is the last, even when the last is a character upper casing to letters
+        String[] edgeCases = new String[] { "Baeiouaeiouaeiouaeiouaeik", "Baeiouaeiouaeiouaeiouaeikk", "Baeiouaeiouaeiouaeiouaeik\u00df" };
+        for (String s : edgeCases)
+        {
+            assertEquals("[" + s + "]", ReferenceSoundex.calcSoundEx(s, 10), Soundex.calcSoundEx(s, 10));
+        }
+        assertEquals(16, encoder.getCachedCodeCount());
+        assertEquals("R-1630", encoder.encode("Robert"));
+
+        String[][] nysiisCodes = new String[][] {
+            { "Knuth", "NAT" }, { "MacIntosh", "MCANT" }, { "Koehn", "CAN" }, { "Pfeister", "FASTAR" },
+            { "McKee", "MCY" }, { "Andrew", "ANDR" }, { "Andruw", "ANDR" }, { "Schmidt", "SNAD" }, { "", "" }, { "123", "" } };
+        NysiisEncoder nysiis = new NysiisEncoder();
+        for (String[] nysiisCode : nysiisCodes)
+        {
+            assertEquals(nysiisCode[0], nysiisCode[1], NysiisEncoder.calcNysiis(nysiisCode[0]));
+            assertEquals(nysiisCode[0], nysiisCode[1], nysiis.encode(nysiisCode[0]));
+        }
+    }
+
+    @Test
+    public void testCostTables() throws Exception
+    {
+        // upper case letters, and non-ASCII characters lower casing into the approximate groups
+        String alphabet = "abdegjlmnoprtvDGT,.1 \u0130\u00c9";
+        String[] groups = new String[] { "dt", "gj", "lr", "mn", "bpv", "aeiou", ",." };
+        final AbstractSubstitutionCost subCost = new SubCost5_3_Minus3();
+        for (int i = 0; i < alphabet.length(); i++)
+        {
+            for (int j = 0; j < alphabet.length(); j++)
+            {
+                char c1 = alphabet.charAt(i);
+                char c2 = alphabet.charAt(j);
+                float expected = -3.0f;
+                if (c1 == c2)
+                {
+                    expected = 5.0f;
+                }
+                for (String group : groups)
+                {
+                    if (c1 != c2 && group.indexOf(Character.toLowerCase(c1)) >= 0 && group.indexOf(Character.toLowerCase(c2)) >= 0)
+                    {
+                        expected = 3.0f;
+                    }
+                }
+                String message = c1 + " " + c2;
+                assertEquals(message, expected, subCost.getCostTable().getCost(c1, c2));
+                assertEquals(message, expected, subCost.getCost(alphabet, i, alphabet, j));
+                assertEquals(message, new SubCost1_Minus2().getCost(alphabet, i, alphabet, j), new SubCost1_Minus2().getCostTable().getCost(c1, c2));
+                assertEquals(message, new SubCost01().getCost(alphabet, i, alphabet, j), new SubCost01().getCostTable().getCost(c1, c2));
+            }
+        }
+        final AbstractAffineGapCost[] gapCostFuncs = new AbstractAffineGapCost[] { new AffineGap5_1(), new AffineGap1_1Over3() };
+        for (AbstractAffineGapCost gapCostFunc : gapCostFuncs)
+        {
+            float[] gapCosts = gapCostFunc.getCostTable().getCosts(300);
+            for (int length = 0; length <= 300; length++)
+            {
+                assertEquals(gapCostFunc.getCost("", 3, 3 + length), gapCosts[length]);
+            }
+        }
+
+        // the alignment kernel scores the same through the tables as through the cost functions themselves
+        final AbstractAffineGapCost gapCostFunc = new AffineGap1_1Over3();
+        AbstractSubstitutionCost plainSubCost = new AbstractSubstitutionCost()
+        {
+            public String getShortDescriptionString() { return subCost.getShortDescriptionString(); }
+            public float getCost(String str1, int string1Index, String str2, int string2Index) { return subCost.getCost(str1, string1Index, str2, string2Index); }
+            public float getMaxCost() { return subCost.getMaxCost(); }
+            public float getMinCost() { return subCost.getMinCost(); }
+        };
+        AbstractAffineGapCost plainGapCostFunc = new AbstractAffineGapCost()
+        {
+            public String getShortDescriptionString() { return gapCostFunc.getShortDescriptionString(); }
+            public float getCost(String stringToGap, int stringIndexStartGap, int stringIndexEndGap) { return gapCostFunc.getCost(stringToGap, stringIndexStartGap, stringIndexEndGap); }
+            public float getMaxCost() { return gapCostFunc.getMaxCost(); }
+            public float getMinCost() { return gapCostFunc.getMinCost(); }
+        };
+        Random random = new Random(19);
+        int[] lengths = new int[] { 0, 1, 2, 5, 9, 20, 70 };
+        int[] windowSizes = new int[] { 1, 2, 3, 8, 100, Integer.MAX_VALUE };
+        for (int i = 0; i < 300; i++)
+        {
+            String s = randomString(random, lengths[random.nextInt(lengths.length)], alphabet);
+            String t = random.nextBoolean() ? mutate(random, s, alphabet) : randomString(random, lengths[random.nextInt(lengths.length)], alphabet);
+            int windowSize = windowSizes[random.nextInt(windowSizes.length)];
+            SmithWatermanGotohWindowedAffine compiled = new SmithWatermanGotohWindowedAffine(gapCostFunc, subCost, windowSize);
+            SmithWatermanGotohWindowedAffine plain = new SmithWatermanGotohWindowedAffine(plainGapCostFunc, plainSubCost, windowSize);
+            assertEquals("[" + s + "] [" + t + "] " + windowSize, plain.getUnNormalisedSimilarity(s, t), compiled.getUnNormalisedSimilarity(s, t));
+        }
+    }
+
+    @Test
+    public void testBandedSmithWatermanGotoh() throws Exception
+    {
+        AbstractSubstitutionCost[] subCosts = new AbstractSubstitutionCost[] { new SubCost5_3_Minus3(), new SubCost1_Minus2(), new SubCost01() };
+        // a gap cost falling with length, which must not be banded
+        AbstractAffineGapCost fallingGapCost = new AbstractAffineGapCost()
+        {
+            public String getShortDescriptionString() { return "falling"; }
+            public float getCost(String stringToGap, int stringIndexStartGap, int stringIndexEndGap) { return 10.0f / (stringIndexEndGap - stringIndexStartGap); }
+            public float getMaxCost() { return 10.0f; }
+            public float getMinCost() { return 0.0f; }
+            public GapCostTable getCostTable() { return new GapCostTable(this); }
+        };
+        AbstractAffineGapCost[] gapCosts = new AbstractAffineGapCost[] { new AffineGap5_1(), new AffineGap1_1Over3(), fallingGapCost };
+        String alphabet = "abdeDTlr.";
+        Random random = new Random(23);
+        int[] lengths = new int[] { 0, 1, 2, 3, 7, 15, 40, 90 };
+        int[] windowSizes = new int[] { 0, 1, 2, 5, 30, 100, Integer.MAX_VALUE };
+        for (int i = 0; i < 600; i++)
+        {
+            String s = randomString(random, lengths[random.nextInt(lengths.length)], alphabet);
+            String t = random.nextBoolean() ? mutate(random, mutate(random, s, alphabet), alphabet) : randomString(random, lengths[random.nextInt(lengths.length)], alphabet);
+            AbstractSubstitutionCost subCost = subCosts[random.nextInt(subCosts.length)];
+            AbstractAffineGapCost gapCost = gapCosts[random.nextInt(gapCosts.length)];
+            int windowSize = windowSizes[random.nextInt(windowSizes.length)];
+            SmithWatermanGotohWindowedAffine metric = new SmithWatermanGotohWindowedAffine(gapCost, subCost, windowSize);
+            String message = "[" + s + "] [" + t + "] " + subCost.getShortDescriptionString() + " " + gapCost.getShortDescriptionString() + " " + windowSize;
+            assertEquals(message, ReferenceSmithWatermanGotoh.getUnNormalisedSimilarity(subCost, gapCost, windowSize, s, t), metric.getUnNormalisedSimilarity(s, t));
+        }
+        String s = "12 Main Street, Springfield";
+        String t = "12 Main St., Springfeld";
+        assertEquals(ReferenceSmithWatermanGotoh.getUnNormalisedSimilarity(new SubCost5_3_Minus3(), new AffineGap5_1(), Integer.MAX_VALUE, s, t), new SmithWatermanGotoh().getUnNormalisedSimilarity(s, t));
+    }
+
+    private static List<String> randomTokens(Random random, String[] vocabulary)
+    {
+        List<String> ret = new ArrayList<String>();
+        int length = random.nextInt(8);
+        for (int i = 0; i < length; i++)
+        {
+            ret.add(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return ret;
+    }
+
+    private static Map<String, Integer> countTokens(List<String> tokens)
+    {
+        Map<String, Integer> ret = new HashMap<String, Integer>();
+        for (String token : tokens)
+        {
+            Integer count = ret.get(token);
+            ret.put(token, count == null ? 1 : count + 1);
+        }
+        return ret;
+    }
+
+    private static String join(List<String> tokens)
+    {
+        StringBuilder ret = new StringBuilder();
+        for (String token : tokens)
+        {
+            if (ret.length() > 0)
+            {
+                ret.append(' ');
+            }
+            ret.append(token);
+        }
+        return ret.toString();
+    }
+
+    private static String randomString(Random random, int length, String alphabet)
+    {
+        StringBuilder ret = new StringBuilder();
+        for (int i = 0; i < length; i++)
+        {
+            ret.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return ret.toString();
+    }
+
+    private static String mutate(Random random, String s, String alphabet)
+    {
+        StringBuilder ret = new StringBuilder(s);
+        int edits = random.nextInt(5);
+        for (int i = 0; i < edits; i++)
+        {
+            int at = random.nextInt(ret.length() + 1);
+            char c = alphabet.charAt(random.nextInt(alphabet.length()));
+            int edit = ret.length() == 0 ? 0 : random.nextInt(3);
+            if (edit == 0)
+            {
+                ret.insert(at, c);
+            }
+            else if (edit == 1 || at == ret.length())
+            {
+                ret.deleteCharAt(Math.min(at, ret.length() - 1));
+            }
+            else
+            {
+                ret.setCharAt(at, c);
+            }
+        }
+        return ret.toString();
+    }
+
+    @Test
+    public void testScoreMemo() throws Exception
+    {
+        ScoreMemo memo = new ScoreMemo();
+        StringDistanceScoreMatcher memoizedJaro = new StringDistanceScoreMatcher(JARO_DISTANCE_IMPL);
+        memoizedJaro.init();
+        memoizedJaro.setScoreMemo(memo);
+        StringDistanceScoreMatcher memoizedLevenstein = new StringDistanceScoreMatcher(LEVENSTEIN_DISTANCE_IMPL);
+        memoizedLevenstein.init();
+        memoizedLevenstein.setScoreMemo(memo);
+        for (int i = 0; i < 2; i++)
+        {
+            assertEquals(jaroStringDistanceScoreMatcher.score("Jones", "Johnson"), memoizedJaro.score("Jones", "Johnson"));
+            assertEquals(jaroStringDistanceScoreMatcher.score("Johnson", "Jones"), memoizedJaro.score("Johnson", "Jones"));
+            assertEquals(levensteinStringDistanceScoreMatcher.score("Jones", "Johnson"), memoizedLevenstein.score("Jones", "Johnson"));
+        }
+        // the two algorithms keep their scores apart, but share the value dictionary
+        assertEquals(2, memo.getDictionary().size());
+        assertEquals(memoizedJaro.score("Jones", "Johnson"), memo.get(memo.getScorerIndex(JARO_DISTANCE_IMPL), memo.getKey("Jones", "Johnson")));
+        assertEquals(memoizedLevenstein.score("Jones", "Johnson"), memo.get(memo.getScorerIndex(LEVENSTEIN_DISTANCE_IMPL), memo.getKey("Jones", "Johnson")));
+        assertTrue(Double.isNaN(memo.get(memo.getScorerIndex(LEVENSTEIN_DISTANCE_IMPL), memo.getKey("Johnson", "Jones"))));
+    }
+
 }
@@ -29,6 +29,7 @@ import org.junit.Test;
 
 import serf.data.*;
 import serf.deduplication.*;
+import serf.utils.RunningStatistics;
 
 public class BasicERTest extends TestCase
 {
@@ -132,6 +133,201 @@ public class BasicERTest extends TestCase
         assertEquals(2, merged.size());
     }
     
+    @Test
+    public void testMatchGraph()
+    {
+        Attribute a1 = new Attribute("givenName", "Andrew");
+        Attribute a2 = new Attribute("surName", "Owen");
+        Record r1 = new ExternallyIdentifiableRecord(makeAttributeMap(a1, a2), "r1");
+        a1 = new Attribute("givenName", "Andruw");
+        Record r2 = new ExternallyIdentifiableRecord(makeAttributeMap(a1, a2), "r2");
+        a2 = new Attribute("surName", "Owens");
+        Record r3 = new ExternallyIdentifiableRecord(makeAttributeMap(a1, a2), "r3");
+        a2 = new Attribute("surName", "Jackson");
+        Record r4 = new ExternallyIdentifiableRecord(makeAttributeMap(a1, a2), "r4");
+        configurableMatcherMerger.init(.85);
+        Set<Record> merged = MatchGraph.execute(configurableMatcherMerger, makeRecords(r1, r2, r3, r4));
+        assertEquals(2, merged.size());
+        assertEquals(RSwoosh.execute(configurableMatcherMerger, makeRecords(r1, r2, r3, r4)).size(), merged.size());
+        assertEquals(0, MatchGraph.execute(configurableMatcherMerger, new HashSet<Record>()).size());
+    }
+    
+    @Test
+    public void testBudgetedMatchGraph()
+    {
+        Attribute a1 = new Attribute("givenName", "Andrew");
+        Attribute a2 = new Attribute("surName", "Owen");
+        Record r1 = new ExternallyIdentifiableRecord(makeAttributeMap(a1, a2), "r1");
+        a1 = new Attribute("givenName", "Andruw");
+        Record r2 = new ExternallyIdentifiableRecord(makeAttributeMap(a1, a2), "r2");
+        a2 = new Attribute("surName", "Owens");
+        Record r3 = new ExternallyIdentifiableRecord(makeAttributeMap(a1, a2), "r3");
+        a2 = new Attribute("surName", "Jackson");
+        Record r4 = new ExternallyIdentifiableRecord(makeAttributeMap(a1, a2), "r4");
+        configurableMatcherMerger.init(.85);
+        
+        // with time to spare, every pair is evaluated and the result is the same as without a budget
+        PairBudget budget = new PairBudget(60000);
+        Set<Record> merged = MatchGraph.execute(configurableMatcherMerger, new HashSet<Record>(), makeRecords(r1, r2, r3, r4), budget);
+        assertEquals(MatchGraph.execute(configurableMatcherMerger, makeRecords(r1, r2, r3, r4)), merged);
+        assertEquals(1.0, budget.getFractionEvaluated());
+        
+        // with no time at all, nothing is evaluated and the records come back unmerged
+        budget = new PairBudget(0);
+        merged = MatchGraph.execute(configurableMatcherMerger, new HashSet<Record>(), makeRecords(r1, r2, r3, r4), budget);
+        assertEquals(makeRecords(r1, r2, r3, r4), merged);
+        assertEquals(0.0, budget.getFractionEvaluated());
+        
+        // a value every record holds is too common to prioritize pairs on, but the pairs sharing it are still evaluated
+        Set<Record> records = new HashSet<Record>();
+        for (char c = 'a'; c < 'a' + 40; c++)
+        {
+            String givenName = String.valueOf(new char[] {c, c, c, c, c, c, c, c});
+            records.add(new ExternallyIdentifiableRecord(makeAttributeMap(new Attribute("givenName", givenName), new Attribute("surName", "Owen")), givenName));
+        }
+        records.add(new ExternallyIdentifiableRecord(makeAttributeMap(new Attribute("givenName", "aaaaaaab"), new Attribute("surName", "Owen")), "aaaaaaab"));
+        budget = new PairBudget(60000);
+        merged = MatchGraph.execute(configurableMatcherMerger, new HashSet<Record>(), records, budget);
+        assertEquals(40, merged.size());
+        assertEquals(MatchGraph.execute(configurableMatcherMerger, records), merged);
+        assertEquals(1.0, budget.getFractionEvaluated());
+    }
+    
+    @Test
+    public void testBudgetedRSwoosh()
+    {
+        Attribute a1 = new Attribute("givenName", "Andrew");
+        Attribute a2 = new Attribute("surName", "Owen");
+        Record r1 = new ExternallyIdentifiableRecord(makeAttributeMap(a1, a2), "r1");
+        a1 = new Attribute("givenName", "Andruw");
+        Record r2 = new ExternallyIdentifiableRecord(makeAttributeMap(a1, a2), "r2");
+        a2 = new Attribute("surName", "Jackson");
+        Record r3 = new ExternallyIdentifiableRecord(makeAttributeMap(a1, a2), "r3");
+        configurableMatcherMerger.init(.85);
+        
+        // with time to spare, the result is the same as without a budget
+        PairBudget budget = new PairBudget(60000);
+        Set<Record> merged = RSwoosh.execute(configurableMatcherMerger, new HashSet<Record>(), makeRecords(r1, r2, r3), budget);
+        assertEquals(RSwoosh.execute(configurableMatcherMerger, makeRecords(r1, r2, r3)).size(), merged.size());
+        assertEquals(2, merged.size());
+        assertEquals(1.0, budget.getFractionEvaluated());
+        
+        // with no time at all, no record is compared and the records come back unmerged
+        budget = new PairBudget(0);
+        merged = RSwoosh.execute(configurableMatcherMerger, new HashSet<Record>(), makeRecords(r1, r2, r3), budget);
+        assertEquals(makeRecords(r1, r2, r3), merged);
+        assertEquals(0.0, budget.getFractionEvaluated());
+    }
+    
+    @Test
+    public void testDominationIndex()
+    {
+        Attribute given = new Attribute("givenName", "Andrew");
+        Attribute surnames = new Attribute("surName", "Owen", "Owens");
+        Record full = new Record(0.9, makeAttributes(given, surnames));
+        Record partial = new Record(0.8, makeAttributes(given, new Attribute("surName", "Owen")));
+        Record confident = new Record(0.95, makeAttributes(new Attribute("givenName", "Andrew")));
+        Record other = new Record(0.9, makeAttributes(new Attribute("givenName", "Andruw")));
+
+        DominationIndex index = new DominationIndex();
+        index.add(full);
+        index.add(partial);
+        index.add(other);
+
+        assertTrue(index.isDominated(partial, false));
+        assertFalse(index.isDominated(full, false));
+        assertTrue(index.isDominated(full, true));
+        assertFalse(index.isDominated(other, false));
+        // the only record holding all of its values has lower confidence
+        assertFalse(index.isDominated(confident, false));
+        // a record with no values at all is dominated
+        assertTrue(index.isDominated(new Record(1.0, makeAttributes(new Attribute("givenName"))), false));
+
+        index.remove(full);
+        assertFalse(index.isDominated(partial, false));
+        index.add(confident);
+        index.add(full);
+        assertTrue(index.isDominated(partial, false));
+
+        Set<Record> pruned = DominationIndex.prune(makeRecords(full, partial, other), 0.0, new DominationIndex());
+        assertEquals(makeRecords(full, other), pruned);
+        
+        // an equal record added again does not replace the first one's confidence until that is removed
+        Record weak = new AttributeEqualRecord(0.5, makeAttributes(given, surnames));
+        Record strong = new AttributeEqualRecord(0.95, makeAttributes(given, surnames));
+        index = new DominationIndex();
+        index.add(weak);
+        index.add(strong);
+        assertFalse(index.isDominated(partial));
+        index.remove(weak);
+        index.add(strong);
+        assertTrue(index.isDominated(partial));
+    }
+    
+    @Test
+    public void testBfa()
+    {
+        Attribute a1 = new Attribute("givenName", "Andrew");
+        Attribute a2 = new Attribute("surName", "Owen");
+        Record r1 = new Record(1.0, makeAttributes(a1, a2));
+        a1 = new Attribute("givenName", "Andruw");
+        Record r2 = new Record(1.0, makeAttributes(a1, a2));
+        a2 = new Attribute("surName", "Jackson");
+        Record r3 = new Record(1.0, makeAttributes(a1, a2));
+        configurableMatcherMerger.init(.85);
+        
+        Bfa bfa = new Bfa();
+        Set<Record> results = bfa.execute(configurableMatcherMerger, makeRecords(r1, r2, r3));
+        
+        // the originals, plus the merge of the two Owens
+        assertEquals(4, results.size());
+        assertTrue(results.containsAll(makeRecords(r1, r2, r3)));
+        
+        // the first round compares each ordered pair of distinct records once, later rounds only involve new records
+        List<Integer> comparisonCounts = bfa.getComparisonCounts();
+        assertEquals(6, comparisonCounts.get(0).intValue());
+        assertEquals(2, bfa.getMatchCounts().get(0).intValue());
+        assertEquals(1, bfa.getMergeCounts().get(0).intValue());
+        assertEquals(2 * 3, comparisonCounts.get(1).intValue());
+        assertEquals(0, bfa.getMergeCounts().get(bfa.getMergeCounts().size() - 1).intValue());
+    }
+    
+    @Test
+    public void testRunningStatistics()
+    {
+        double[] observations = {0.91, 0.87, 1.0, 0.95, 0.88, 0.93, 0.9};
+        RunningStatistics all = new RunningStatistics();
+        RunningStatistics left = new RunningStatistics();
+        RunningStatistics right = new RunningStatistics();
+        double sum = 0;
+        for (int i = 0; i < observations.length; i++)
+        {
+            all.add(observations[i]);
+            (i < 3 ? left : right).add(observations[i]);
+            sum += observations[i];
+        }
+        double mean = sum / observations.length;
+        double squares = 0;
+        for (double observation : observations)
+        {
+            squares += (observation - mean) * (observation - mean);
+        }
+        assertEquals(observations.length, all.getCount());
+        assertEquals(mean, all.getMean(), 1e-12);
+        assertEquals(squares / observations.length, all.getVariance(), 1e-12);
+        
+        // combining two partial accumulators gives the same result as one pass
+        left.add(right);
+        assertEquals(all.getCount(), left.getCount());
+        assertEquals(all.getMean(), left.getMean(), 1e-12);
+        assertEquals(all.getVariance(), left.getVariance(), 1e-12);
+        
+        RunningStatistics restored = new RunningStatistics(all.getCount(), all.getMean(), all.getStandardDeviation());
+        restored.add(new RunningStatistics());
+        assertEquals(all.getVariance(), restored.getVariance(), 1e-12);
+        assertEquals(0.0, new RunningStatistics().getStandardDeviation());
+    }
+    
     private static Set<Attribute> makeAttributes(Attribute ... attributes)
     {
         Set<Attribute> ret = new HashSet<Attribute>();
@@ -146,10 +342,34 @@ public class BasicERTest extends TestCase
         return ret;
     }
     
-    private static Map<String, Attribute> makeAttributeMap(Attribute a1)
+    /**
+     * A record that equals any other record with the same attributes, whatever its confidence.
+     */
+    private static final class AttributeEqualRecord extends Record
+    {
+        public AttributeEqualRecord(double confidence, Set<Attribute> attributes)
+        {
+            super(confidence, attributes);
+        }
+        
+        public boolean equals(Object o)
+        {
+            return o instanceof Record && getAttributes().equals(((Record) o).getAttributes());
+        }
+        
+        public int hashCode()
+        {
+            return getAttributes().hashCode();
+        }
+    }
+    
+    private static Map<String, Attribute> makeAttributeMap(Attribute ... attributes)
     {
     	Map<String, Attribute> ret = new HashMap<String, Attribute>();
-    	ret.put(a1.getType(), a1);
+    	for (Attribute a : attributes)
+    	{
+    		ret.put(a.getType(), a);
+    	}
     	return ret;
     }
     
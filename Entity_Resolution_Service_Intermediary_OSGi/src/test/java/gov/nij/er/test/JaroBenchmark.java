@@ -0,0 +1,150 @@
+/*
+ * Copyright 2013 SEARCH Group, Incorporated. 
+ * 
+ * See the NOTICE file distributed with  this work for additional information 
+ * regarding copyright ownership.  SEARCH Group Inc. licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not use this 
+ * file except in compliance with the License.  You may obtain a copy of the 
+ * License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nij.er.test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import uk.ac.shef.wit.simmetrics.similaritymetrics.InterfaceStringMetric;
+
+import com.wcohen.ss.api.StringDistance;
+import com.wcohen.ss.api.StringWrapper;
+
+/**
+ * Times the Jaro kernels of the SecondString and SimMetrics packages against the implementations they replaced, in
+ * ReferenceJaro, on pairs of similar names.  Not a unit test; run it with the test classpath, for instance
+ * 
+ * <pre>
+ * java -cp target/classes:target/test-classes gov.nij.er.test.JaroBenchmark [pairs] [rounds]
+ * </pre>
+ * 
+ * Each row gives the mean time per comparison and, where the JVM can measure it, the bytes allocated per comparison.
+ */
+public class JaroBenchmark
+{
+
+    private static final String[] NAMES = new String[] { "john", "jon", "jonathan", "smith", "smyth", "schmidt", "mary", "marie", "maria", "robert",
+        "rupert", "roberta", "katherine", "catherine", "kathryn", "martha", "marhta", "dwayne", "duane", "dixon", "dicksonx", "abigail", "abbie",
+        "christopher", "kristofer" };
+
+    private static volatile double sink;
+
+    public static void main(String[] args)
+    {
+        int pairCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        Random random = new Random(1);
+        final String[] s = new String[pairCount];
+        final String[] t = new String[pairCount];
+        for (int i = 0; i < pairCount; i++)
+        {
+            s[i] = NAMES[random.nextInt(NAMES.length)];
+            t[i] = NAMES[random.nextInt(NAMES.length)];
+        }
+
+        final StringDistance jaro = new com.wcohen.ss.Jaro();
+        final StringWrapper[] preparedS = new StringWrapper[pairCount];
+        final StringWrapper[] preparedT = new StringWrapper[pairCount];
+        for (int i = 0; i < pairCount; i++)
+        {
+            preparedS[i] = jaro.prepare(s[i]);
+            preparedT[i] = jaro.prepare(t[i]);
+        }
+        final InterfaceStringMetric simMetricsJaro = new uk.ac.shef.wit.simmetrics.similaritymetrics.Jaro();
+
+        Case[] cases = new Case[] { new Case("SecondString Jaro, reference") {
+            double run(int i)
+            {
+                return ReferenceJaro.secondStringScore(preparedS[i].unwrap(), preparedT[i].unwrap());
+            }
+        }, new Case("SecondString Jaro, bit sets") {
+            double run(int i)
+            {
+                return jaro.score(preparedS[i], preparedT[i]);
+            }
+        }, new Case("SimMetrics Jaro, reference") {
+            double run(int i)
+            {
+                return ReferenceJaro.simMetricsSimilarity(s[i], t[i]);
+            }
+        }, new Case("SimMetrics Jaro, bit sets") {
+            double run(int i)
+            {
+                return simMetricsJaro.getSimilarity(s[i], t[i]);
+            }
+        } };
+
+        for (Case c : cases)
+        {
+            // warm up, then keep the best round
+            c.time(pairCount, rounds);
+            long[] best = c.time(pairCount, rounds);
+            System.out.println(String.format("%-30s %8.1f ns/comparison %8s bytes/comparison", c.name, best[0] / (double) pairCount, best[1] < 0 ? "?"
+                : String.format("%.1f", best[1] / (double) pairCount)));
+        }
+    }
+
+    private abstract static class Case
+    {
+        final String name;
+
+        Case(String name)
+        {
+            this.name = name;
+        }
+
+        abstract double run(int i);
+
+        /**
+         * @return the fewest nanoseconds and bytes allocated, or -1 if unknown, for one round of all pairs
+         */
+        long[] time(int pairCount, int rounds)
+        {
+            long[] best = new long[] { Long.MAX_VALUE, Long.MAX_VALUE };
+            for (int r = 0; r < rounds; r++)
+            {
+                long bytes = allocatedBytes();
+                long start = System.nanoTime();
+                double sum = 0;
+                for (int i = 0; i < pairCount; i++)
+                {
+                    sum += run(i);
+                }
+                long elapsed = System.nanoTime() - start;
+                long allocated = bytes < 0 ? -1 : allocatedBytes() - bytes;
+                sink = sum;
+                best[0] = Math.min(best[0], elapsed);
+                best[1] = Math.min(best[1], allocated);
+            }
+            return best;
+        }
+    }
+
+    private static long allocatedBytes()
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean)
+        {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013 SEARCH Group, Incorporated. 
+ * 
+ * See the NOTICE file distributed with  this work for additional information 
+ * regarding copyright ownership.  SEARCH Group Inc. licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not use this 
+ * file except in compliance with the License.  You may obtain a copy of the 
+ * License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nij.er.test;
+
+/**
+ * The Jaro similarity as the SecondString and SimMetrics packages computed it before their bit-set kernels, building
+ * the common characters of each string and a copy of the other.  Kept to check and benchmark the kernels against.
+ */
+class ReferenceJaro
+{
+
+    /**
+     * The SecondString Jaro score, com.wcohen.ss.Jaro, of two strings already prepared (lower cased).
+     */
+    static double secondStringScore(String str1, String str2)
+    {
+        int halflen = (str1.length() > str2.length()) ? str2.length() / 2 + 1 : str1.length() / 2 + 1;
+        String common1 = secondStringCommonChars(str1, str2, halflen);
+        String common2 = secondStringCommonChars(str2, str1, halflen);
+        if (common1.length() != common2.length())
+            return 0;
+        if (common1.length() == 0 || common2.length() == 0)
+            return 0;
+        int transpositions = 0;
+        for (int i = 0; i < common1.length(); i++)
+        {
+            if (common1.charAt(i) != common2.charAt(i))
+                transpositions++;
+        }
+        transpositions /= 2;
+        return (common1.length() / ((double) str1.length()) + common2.length() / ((double) str2.length()) + (common1.length() - transpositions)
+                / ((double) common1.length())) / 3.0;
+    }
+
+    private static String secondStringCommonChars(String s, String t, int halflen)
+    {
+        StringBuilder common = new StringBuilder();
+        StringBuilder copy = new StringBuilder(t);
+        for (int i = 0; i < s.length(); i++)
+        {
+            char ch = s.charAt(i);
+            boolean foundIt = false;
+            for (int j = Math.max(0, i - halflen); !foundIt && j < Math.min(i + halflen, t.length()); j++)
+            {
+                if (copy.charAt(j) == ch)
+                {
+                    foundIt = true;
+                    common.append(ch);
+                    copy.setCharAt(j, '*');
+                }
+            }
+        }
+        return common.toString();
+    }
+
+    /**
+     * The SimMetrics Jaro similarity, uk.ac.shef.wit.simmetrics.similaritymetrics.Jaro.
+     */
+    static float simMetricsSimilarity(String string1, String string2)
+    {
+        int halflen = ((Math.min(string1.length(), string2.length())) / 2) + ((Math.min(string1.length(), string2.length())) % 2);
+        StringBuffer common1 = simMetricsCommonCharacters(string1, string2, halflen);
+        StringBuffer common2 = simMetricsCommonCharacters(string2, string1, halflen);
+        if (common1.length() == 0 || common2.length() == 0)
+            return 0.0f;
+        if (common1.length() != common2.length())
+            return 0.0f;
+        int transpositions = 0;
+        for (int i = 0; i < common1.length(); i++)
+        {
+            if (common1.charAt(i) != common2.charAt(i))
+                transpositions++;
+        }
+        transpositions /= 2.0f;
+        return (common1.length() / ((float) string1.length()) + common2.length() / ((float) string2.length()) + (common1.length() - transpositions)
+                / ((float) common1.length())) / 3.0f;
+    }
+
+    private static StringBuffer simMetricsCommonCharacters(String string1, String string2, int distanceSep)
+    {
+        StringBuffer returnCommons = new StringBuffer();
+        StringBuffer copy = new StringBuffer(string2);
+        for (int i = 0; i < string1.length(); i++)
+        {
+            char ch = string1.charAt(i);
+            boolean foundIt = false;
+            for (int j = Math.max(0, i - distanceSep); !foundIt && j < Math.min(i + distanceSep, string2.length() - 1); j++)
+            {
+                if (copy.charAt(j) == ch)
+                {
+                    foundIt = true;
+                    returnCommons.append(ch);
+                    copy.setCharAt(j, (char) 0);
+                }
+            }
+        }
+        return returnCommons;
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013 SEARCH Group, Incorporated. 
+ * 
+ * See the NOTICE file distributed with  this work for additional information 
+ * regarding copyright ownership.  SEARCH Group Inc. licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not use this 
+ * file except in compliance with the License.  You may obtain a copy of the 
+ * License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nij.er.test;
+
+import uk.ac.shef.wit.simmetrics.math.MathFuncs;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions.AbstractAffineGapCost;
+import uk.ac.shef.wit.simmetrics.similaritymetrics.costfunctions.AbstractSubstitutionCost;
+
+/**
+ * The windowed affine Smith-Waterman-Gotoh score as SimMetrics computed it before its banded kernel, filling the full
+ * matrix and scanning the whole window for every cell.  Kept to check the kernel against.
+ */
+class ReferenceSmithWatermanGotoh
+{
+
+    static float getUnNormalisedSimilarity(AbstractSubstitutionCost dCostFunc, AbstractAffineGapCost gGapFunc, int windowSize, String s, String t) {
+        final float[][] d; // matrix
+        final int n; // length of s
+        final int m; // length of t
+        int i; // iterates through s
+        int j; // iterates through t
+        float cost; // cost
+
+        // check for zero length input
+        n = s.length();
+        m = t.length();
+        if (n == 0) {
+            return m;
+        }
+        if (m == 0) {
+            return n;
+        }
+
+        //create matrix (n)x(m)
+        d = new float[n][m];
+
+        //process first row and column first as no need to consider previous rows/columns
+        float maxSoFar = 0.0f;
+        for (i = 0; i < n; i++) {
+            // get the substution cost
+            cost = dCostFunc.getCost(s, i, t, 0);
+
+            if (i == 0) {
+                d[0][0] = Math.max(0,
+                        cost);
+            } else {
+                float maxGapCost = 0.0f;
+                int windowStart = i-windowSize;
+                if (windowStart < 1) {
+                    windowStart = 1;
+                }
+                for (int k = windowStart; k < i; k++) {
+                    maxGapCost = Math.max(maxGapCost, d[i - k][0] - gGapFunc.getCost(s, i - k, i));
+                }
+                d[i][0] = MathFuncs.max3(0,
+                        maxGapCost,
+                        cost);
+            }
+            //update max possible if available
+            if (d[i][0] > maxSoFar) {
+                maxSoFar = d[i][0];
+            }
+        }
+        for (j = 0; j < m; j++) {
+            // get the substution cost
+            cost = dCostFunc.getCost(s, 0, t, j);
+
+            if (j == 0) {
+                d[0][0] = Math.max(0,
+                        cost);
+            } else {
+                float maxGapCost = 0.0f;
+                int windowStart = j-windowSize;
+                if (windowStart < 1) {
+                    windowStart = 1;
+                }
+                for (int k = windowStart; k < j; k++) {
+                    maxGapCost = Math.max(maxGapCost, d[0][j - k] - gGapFunc.getCost(t, j - k, j));
+                }
+                d[0][j] = MathFuncs.max3(0,
+                        maxGapCost,
+                        cost);
+            }
+            //update max possible if available
+            if (d[0][j] > maxSoFar) {
+                maxSoFar = d[0][j];
+            }
+        }
+
+        // cycle through rest of table filling values from the lowest cost value of the three part cost function
+        for (i = 1; i < n; i++) {
+            for (j = 1; j < m; j++) {
+                // get the substution cost
+                cost = dCostFunc.getCost(s, i, t, j);
+
+                // find lowest cost at point from three possible
+                float maxGapCost1 = 0.0f;
+                float maxGapCost2 = 0.0f;
+                int windowStart = i-windowSize;
+                if (windowStart < 1) {
+                    windowStart = 1;
+                }
+                for (int k = windowStart; k < i; k++) {
+                    maxGapCost1 = Math.max(maxGapCost1, d[i - k][j] - gGapFunc.getCost(s, i - k, i));
+                }
+                windowStart = j-windowSize;
+                if (windowStart < 1) {
+                    windowStart = 1;
+                }
+                for (int k = windowStart; k < j; k++) {
+                    maxGapCost2 = Math.max(maxGapCost2, d[i][j - k] - gGapFunc.getCost(t, j - k, j));
+                }
+                d[i][j] = MathFuncs.max4(0,
+                        maxGapCost1,
+                        maxGapCost2,
+                        d[i - 1][j - 1] + cost);
+                //update max possible if available
+                if (d[i][j] > maxSoFar) {
+                    maxSoFar = d[i][j];
+                }
+            }
+        }
+
+        // return max value within matrix as holds the maximum edit score
+        return maxSoFar;
+    }
+}
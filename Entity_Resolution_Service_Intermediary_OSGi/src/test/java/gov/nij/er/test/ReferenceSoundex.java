@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013 SEARCH Group, Incorporated. 
+ * 
+ * See the NOTICE file distributed with  this work for additional information 
+ * regarding copyright ownership.  SEARCH Group Inc. licenses this file to You
+ * under the Apache License, Version 2.0 (the "License"); you may not use this 
+ * file except in compliance with the License.  You may obtain a copy of the 
+ * License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, 
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package gov.nij.er.test;
+
+/**
+ * The soundex code as SimMetrics computed it before its table-driven encoder, with a regular expression pass for each
+ * step.  Kept to check the encoder against.
+ */
+class ReferenceSoundex
+{
+
+    private static final int SOUNDEXLENGTH = 6;
+
+    static String calcSoundEx(String wordString, int soundExLen) {
+        String tmpStr;
+        String wordStr;
+        char curChar;
+        char lastChar;
+        final int wsLen;
+        final char firstLetter;
+
+        //ensure soundexLen is in a valid range
+        if (soundExLen > 10) {
+            soundExLen = 10;
+        }
+        if (soundExLen < 4) {
+            soundExLen = 4;
+        }
+
+        //check for empty input
+        if (wordString.length() == 0) {
+            return ("");
+        }
+
+        //remove case
+        wordString = wordString.toUpperCase();
+
+        /* Clean and tidy
+        */
+        wordStr = wordString;
+        wordStr = wordStr.replaceAll("[^A-Z]", " "); // rpl non-chars w space
+        wordStr = wordStr.replaceAll("\\s+", "");   // remove spaces
+
+        //check for empty input again the previous clean and tidy could of shrunk it to zero.
+        if (wordStr.length() == 0) {
+            return ("");
+        }
+
+        /* The above improvements
+         * may change this first letter
+        */
+        firstLetter = wordStr.charAt(0);
+
+        // uses the assumption that enough valid characters are in the first 4 times the soundex required length
+        if(wordStr.length() > (SOUNDEXLENGTH*4)+1) {
+            wordStr = "-" + wordStr.substring(1,SOUNDEXLENGTH*4);
+        } else {
+            wordStr = "-" + wordStr.substring(1);
+        }
+        // Begin Classic SoundEx
+        /*
+        1) B,P,F,V
+        2) C,S,K,G,J,Q,X,Z
+        3) D,T
+        4) L
+        5) M,N
+        6) R
+        */
+        wordStr = wordStr.replaceAll("[AEIOUWH]", "0");
+        wordStr = wordStr.replaceAll("[BPFV]", "1");
+        wordStr = wordStr.replaceAll("[CSKGJQXZ]", "2");
+        wordStr = wordStr.replaceAll("[DT]", "3");
+        wordStr = wordStr.replaceAll("[L]", "4");
+        wordStr = wordStr.replaceAll("[MN]", "5");
+        wordStr = wordStr.replaceAll("[R]", "6");
+
+        // Remove extra equal adjacent digits
+        wsLen = wordStr.length();
+        lastChar = '-';
+        tmpStr = "-";     /* replacing skipped first character */
+        for (int i = 1; i < wsLen; i++) {
+            curChar = wordStr.charAt(i);
+            if (curChar != lastChar) {
+                tmpStr += curChar;
+                lastChar = curChar;
+            }
+        }
+        wordStr = tmpStr;
+        wordStr = wordStr.substring(1);          /* Drop first letter code   */
+        wordStr = wordStr.replaceAll("0", "");  /* remove zeros             */
+        wordStr += "000000000000000000";              /* pad with zeros on right  */
+        wordStr = firstLetter + "-" + wordStr;      /* Add first letter of word */
+        wordStr = wordStr.substring(0, soundExLen); /* size to taste     */
+        return (wordStr);
+    }
+}
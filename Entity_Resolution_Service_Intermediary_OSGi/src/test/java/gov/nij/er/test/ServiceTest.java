@@ -20,20 +20,28 @@ package gov.nij.er.test;
 import static org.junit.Assert.*;
 
 import gov.nij.bundles.intermediaries.ers.osgi.AttributeParameters;
+import gov.nij.bundles.intermediaries.ers.osgi.AttributeStatistics;
+import gov.nij.bundles.intermediaries.ers.osgi.BlockingKeySpecification;
+import gov.nij.bundles.intermediaries.ers.osgi.EntityResolutionCallback;
+import gov.nij.bundles.intermediaries.ers.osgi.EntityResolutionConfiguration;
 import gov.nij.bundles.intermediaries.ers.osgi.EntityResolutionConversionUtils;
 import gov.nij.bundles.intermediaries.ers.osgi.EntityResolutionResults;
 import gov.nij.bundles.intermediaries.ers.osgi.EntityResolutionService;
 import gov.nij.bundles.intermediaries.ers.osgi.ExternallyIdentifiableRecord;
+import gov.nij.bundles.intermediaries.ers.osgi.RecordWrapper;
 import gov.nij.bundles.intermediaries.ers.osgi.SortOrderSpecification;
 import gov.nij.er.StringDistanceScoreMatcher;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -205,6 +213,111 @@ public class ServiceTest
 		
 	}
 	
+	@Test
+	public void testDeterminativeIndexedMerge() throws Exception
+	{
+
+		List<ExternallyIdentifiableRecord> records = new ArrayList<ExternallyIdentifiableRecord>();
+
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andrew"), new Attribute("sid", "123")), "record1"));
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Gerry"), new Attribute("sid", "123")), "record2"));
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Zachary"), new Attribute("sid", "456")), "record3"));
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andrew"), new Attribute("sid", "456")), "record4"));
+		// no sid, so this can only merge through the fuzzy comparison of the given name
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Gerry"), new Attribute("sid")), "record5"));
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Michael"), new Attribute("sid")), "record6"));
+
+		Set<AttributeParameters> attributeParametersSet = new HashSet<AttributeParameters>();
+		AttributeParameters ap = new AttributeParameters("givenName");
+		ap.setAlgorithmClassName(JARO_DISTANCE_IMPL);
+		ap.setThreshold(0.9);
+		attributeParametersSet.add(ap);
+		ap = new AttributeParameters("sid");
+		ap.setAlgorithmClassName(JARO_DISTANCE_IMPL);
+		ap.setThreshold(0.9);
+		ap.setDeterminative(true);
+		attributeParametersSet.add(ap);
+
+		EntityResolutionResults results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet);
+		List<ExternallyIdentifiableRecord> returnRecords = EntityResolutionConversionUtils.convertRecordWrappers(results.getRecords());
+		assertEquals(3, returnRecords.size());
+
+		for (ExternallyIdentifiableRecord r : returnRecords)
+		{
+			Set<String> ids = new HashSet<String>(r.getRelatedIds());
+			ids.add(r.getExternalId());
+			if (ids.contains("record1"))
+			{
+				// the same given name does not overcome a conflicting sid, but the sid-less Gerry joins the 123 entity
+				assertEquals(new HashSet<String>(Arrays.asList("record1", "record2", "record5")), ids);
+			} else if (ids.contains("record3"))
+			{
+				assertEquals(new HashSet<String>(Arrays.asList("record3", "record4")), ids);
+			} else
+			{
+				assertEquals(new HashSet<String>(Arrays.asList("record6")), ids);
+			}
+		}
+
+		// a sid whose only value is null is no sid at all, so the given name decides
+		records = new ArrayList<ExternallyIdentifiableRecord>();
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andrew"), new Attribute("sid", "123")), "record1"));
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andrew"), new Attribute("sid")), "record2"));
+		List<RecordWrapper> recordWrappers = EntityResolutionConversionUtils.convertRecords(records);
+		recordWrappers.get(1).getAttributes().get("sid").getValues().add(null);
+		results = service.resolveEntities(recordWrappers, attributeParametersSet);
+		assertEquals(1, results.getRecords().size());
+
+	}
+
+	@Test
+	public void testDeterminativeChain() throws Exception
+	{
+
+		// record2 matches both of the others, but they have different sids and must never be one entity
+		List<ExternallyIdentifiableRecord> records = new ArrayList<ExternallyIdentifiableRecord>();
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andrew"), new Attribute("sid", "A")), "record1"));
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andrew"), new Attribute("sid")), "record2"));
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andrew"), new Attribute("sid", "B")), "record3"));
+
+		Set<AttributeParameters> attributeParametersSet = new HashSet<AttributeParameters>();
+		AttributeParameters ap = new AttributeParameters("givenName");
+		ap.setAlgorithmClassName(JARO_DISTANCE_IMPL);
+		ap.setThreshold(0.9);
+		attributeParametersSet.add(ap);
+		ap = new AttributeParameters("sid");
+		ap.setAlgorithmClassName(JARO_DISTANCE_IMPL);
+		ap.setThreshold(0.9);
+		ap.setDeterminative(true);
+		attributeParametersSet.add(ap);
+
+		EntityResolutionConfiguration configuration = new EntityResolutionConfiguration();
+		for (long timeBudgetMillis : new long[] {0, 60000})
+		{
+			// a time budget limits the work done, not what counts as a match
+			configuration.setTimeBudgetMillis(timeBudgetMillis);
+			for (String engine : new String[] {EntityResolutionConfiguration.ENGINE_RSWOOSH, EntityResolutionConfiguration.ENGINE_MATCH_GRAPH,
+					EntityResolutionConfiguration.ENGINE_SORTED_NEIGHBORHOOD})
+			{
+				configuration.setEngine(engine);
+				EntityResolutionResults results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet, configuration);
+				assertEquals(engine, 2, results.getRecords().size());
+				for (RecordWrapper r : results.getRecords())
+				{
+					assertTrue(engine, r.getAttributes().get("sid").getValues().size() <= 1);
+				}
+			}
+		}
+
+		// sorted on sid, a null sid is an empty key rather than failing the sort
+		List<RecordWrapper> recordWrappers = EntityResolutionConversionUtils.convertRecords(records);
+		recordWrappers.get(1).getAttributes().get("sid").getValues().add(null);
+		configuration.setSortKeyAttributeNames(Arrays.asList("sid"));
+		EntityResolutionResults results = service.resolveEntities(recordWrappers, attributeParametersSet, configuration);
+		assertEquals(2, results.getRecords().size());
+
+	}
+
 	@Test
 	public void test2DeterminativeAttributesNonMerge() throws Exception
 	{
@@ -647,6 +760,407 @@ public class ServiceTest
 	    
 	}
 
+	@Test
+	public void testBlocking() throws Exception
+	{
+
+		List<ExternallyIdentifiableRecord> records = new ArrayList<ExternallyIdentifiableRecord>();
+
+		Attribute a1 = new Attribute("givenName", "Andrew");
+		Attribute a2 = new Attribute("surName", "Owen");
+		ExternallyIdentifiableRecord r1 = new ExternallyIdentifiableRecord(makeAttributes(a1, a2), "record1");
+
+		a1 = new Attribute("givenName", "Andruw");
+		ExternallyIdentifiableRecord r2 = new ExternallyIdentifiableRecord(makeAttributes(a1, a2), "record2");
+
+		records.add(r1);
+		records.add(r2);
+
+		Set<AttributeParameters> attributeParametersSet = makeNameParameters();
+		AttributeParameters givenNameParameters = getParameters(attributeParametersSet, "givenName");
+		givenNameParameters.setBlockingKey(new BlockingKeySpecification(BlockingKeySpecification.BLOCKING_KEY_EXACT));
+		AttributeParameters surNameParameters = getParameters(attributeParametersSet, "surName");
+
+		// the given names differ, so the records land in different blocks and are never compared
+		EntityResolutionResults results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet);
+		assertEquals(2, results.getRecords().size());
+
+		givenNameParameters.setBlockingKey(new BlockingKeySpecification(BlockingKeySpecification.BLOCKING_KEY_PREFIX, 3));
+		results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet);
+		assertEquals(1, results.getRecords().size());
+
+		givenNameParameters.setBlockingKey(new BlockingKeySpecification(BlockingKeySpecification.BLOCKING_KEY_SOUNDEX));
+		results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet);
+		assertEquals(1, results.getRecords().size());
+
+		givenNameParameters.setBlockingKey(new BlockingKeySpecification(BlockingKeySpecification.BLOCKING_KEY_NYSIIS));
+		results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet);
+		assertEquals(1, results.getRecords().size());
+
+		// a third record shares no given name key with the others...
+		a1 = new Attribute("givenName", "Andriw");
+		a2 = new Attribute("surName", "Owens");
+		ExternallyIdentifiableRecord r3 = new ExternallyIdentifiableRecord(makeAttributes(a1, a2), "record3");
+		records.add(r3);
+		givenNameParameters.setBlockingKey(new BlockingKeySpecification(BlockingKeySpecification.BLOCKING_KEY_EXACT));
+		surNameParameters.setBlockingKey(new BlockingKeySpecification(BlockingKeySpecification.BLOCKING_KEY_PREFIX, 4));
+		results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet);
+		// ...and the surname prefix "OWEN" links all three records into a single block
+		assertEquals(1, results.getRecords().size());
+
+		surNameParameters.setBlockingKey(new BlockingKeySpecification(BlockingKeySpecification.BLOCKING_KEY_EXACT));
+		results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet);
+		// record1 and record2 still share the "OWEN" surname block, record3 is on its own
+		assertEquals(2, results.getRecords().size());
+
+	}
+
+	@Test
+	public void testParallelBlockResolution() throws Exception
+	{
+
+		String[] givenNames = new String[] {"Andrew", "Andruw", "Andriw", "Michael", "Micheal"};
+		String[] surNames = new String[] {"Owen", "Jones", "Smith", "Brown", "Young", "Adams", "Baker", "Clark"};
+
+		List<ExternallyIdentifiableRecord> records = makeNameGrid(givenNames, surNames);
+
+		Set<AttributeParameters> attributeParametersSet = makeNameParameters();
+		AttributeParameters surNameParameters = getParameters(attributeParametersSet, "surName");
+		surNameParameters.setBlockingKey(new BlockingKeySpecification(BlockingKeySpecification.BLOCKING_KEY_EXACT));
+
+		EntityResolutionResults sequentialResults = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			service.setForkJoinPool(pool);
+			EntityResolutionResults parallelResults = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet);
+			assertEquals(sequentialResults.getRecords().size(), parallelResults.getRecords().size());
+			assertEquals(describeRecords(sequentialResults), describeRecords(parallelResults));
+		} finally
+		{
+			service.setForkJoinPool(null);
+			pool.shutdown();
+		}
+
+		// within each surname block the Andrew variants merge, as do the Michael variants
+		assertEquals(surNames.length * 2, sequentialResults.getRecords().size());
+
+	}
+
+	@Test
+	public void testSortedNeighborhood() throws Exception
+	{
+
+		String[] givenNames = new String[] {"Andrew", "Andruw", "Andriw", "Michael", "Micheal"};
+		String[] surNames = new String[] {"Owen", "Jones", "Smith", "Brown", "Young", "Adams", "Baker", "Clark"};
+
+		List<ExternallyIdentifiableRecord> records = makeNameGrid(givenNames, surNames);
+
+		Set<AttributeParameters> attributeParametersSet = makeNameParameters();
+		AttributeParameters surNameParameters = getParameters(attributeParametersSet, "surName");
+		surNameParameters.setSortOrder(new SortOrderSpecification(1, SortOrderSpecification.SORT_ORDER_ASCENDING));
+
+		EntityResolutionConfiguration configuration = new EntityResolutionConfiguration();
+		EntityResolutionResults rSwooshResults = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet, configuration);
+
+		// sorted by surname, each surname's five records fall within a single window
+		configuration.setEngine(EntityResolutionConfiguration.ENGINE_SORTED_NEIGHBORHOOD);
+		configuration.setWindowSize(5);
+		EntityResolutionResults results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet, configuration);
+		assertEquals(surNames.length * 2, results.getRecords().size());
+		assertEquals(describeEntities(rSwooshResults), describeEntities(results));
+
+		// sorted by given name, the eight records with each given name separate the variants of that name, so a small window misses matches;
+		// only the records either side of the boundary between two similar given names can still meet
+		configuration.setSortKeyAttributeNames(Arrays.asList("givenName"));
+		configuration.setWindowSize(2);
+		results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet, configuration);
+		assertTrue(results.getRecords().size() >= records.size() - 3);
+
+		// a second pass by surname finds them again
+		configuration.setSortKeyAttributeNames(Arrays.asList("givenName", "surName"));
+		configuration.setWindowSize(5);
+		results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet, configuration);
+		assertEquals(describeEntities(rSwooshResults), describeEntities(results));
+
+	}
+
+	@Test
+	public void testIncrementalResolution() throws Exception
+	{
+
+		List<ExternallyIdentifiableRecord> records = new ArrayList<ExternallyIdentifiableRecord>();
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andrew"), new Attribute("surName", "Owen")), "record1"));
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andruw"), new Attribute("surName", "Owen")), "record2"));
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Michael"), new Attribute("surName", "Jones")), "record3"));
+
+		List<ExternallyIdentifiableRecord> newRecords = new ArrayList<ExternallyIdentifiableRecord>();
+		newRecords.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andriw"), new Attribute("surName", "Owen")), "record4"));
+		newRecords.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Zachary"), new Attribute("surName", "Smith")), "record5"));
+
+		Set<AttributeParameters> attributeParametersSet = makeNameParameters();
+		AttributeParameters surNameParameters = getParameters(attributeParametersSet, "surName");
+
+		EntityResolutionConfiguration configuration = new EntityResolutionConfiguration();
+		EntityResolutionResults results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet, configuration);
+		assertEquals(2, results.getRecords().size());
+
+		List<ExternallyIdentifiableRecord> allRecords = new ArrayList<ExternallyIdentifiableRecord>(records);
+		allRecords.addAll(newRecords);
+		EntityResolutionResults fullResults = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(allRecords), attributeParametersSet, configuration);
+
+		for (String engine : new String[] {EntityResolutionConfiguration.ENGINE_RSWOOSH, EntityResolutionConfiguration.ENGINE_MATCH_GRAPH})
+		{
+			configuration.setEngine(engine);
+			for (boolean blocking : new boolean[] {false, true})
+			{
+				surNameParameters.setBlockingKey(blocking ? new BlockingKeySpecification(BlockingKeySpecification.BLOCKING_KEY_EXACT) : null);
+				EntityResolutionResults incrementalResults = service.resolveEntities(results, EntityResolutionConversionUtils.convertRecords(newRecords),
+						attributeParametersSet, configuration);
+				assertEquals(describeEntities(fullResults), describeEntities(incrementalResults));
+			}
+		}
+
+		// an earlier run that exceeded its record limit was never resolved, so everything is resolved from scratch
+		configuration = new EntityResolutionConfiguration(2);
+		results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet, configuration);
+		assertTrue(results.isRecordLimitExceeded());
+		assertEquals(3, results.getRecords().size());
+		results = service.resolveEntities(results, EntityResolutionConversionUtils.convertRecords(newRecords), attributeParametersSet, new EntityResolutionConfiguration());
+		assertFalse(results.isRecordLimitExceeded());
+		assertEquals(describeEntities(fullResults), describeEntities(results));
+
+	}
+
+	@Test
+	public void testStreamingResolution() throws Exception
+	{
+
+		String[] givenNames = new String[] {"Andrew", "Andruw", "Andriw", "Michael", "Micheal"};
+		String[] surNames = new String[] {"Owen", "Jones", "Smith", "Brown"};
+
+		// the records arrive grouped by surname, the blocking key
+		List<ExternallyIdentifiableRecord> records = makeNameGrid(givenNames, surNames);
+
+		Set<AttributeParameters> attributeParametersSet = makeNameParameters();
+		AttributeParameters surNameParameters = getParameters(attributeParametersSet, "surName");
+
+		final List<RecordWrapper> streamedRecords = new ArrayList<RecordWrapper>();
+		final List<Integer> blockSizes = new ArrayList<Integer>();
+		EntityResolutionCallback callback = new EntityResolutionCallback()
+		{
+			public void entitiesResolved(EntityResolutionResults blockResults)
+			{
+				streamedRecords.addAll(blockResults.getRecords());
+				blockSizes.add(blockResults.getRecords().size());
+			}
+		};
+
+		try
+		{
+			service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records).iterator(), attributeParametersSet, new EntityResolutionConfiguration(), callback);
+			fail("Streaming without a blocking key should be rejected");
+		} catch (IllegalArgumentException e)
+		{
+			// expected
+		}
+
+		surNameParameters.setBlockingKey(new BlockingKeySpecification(BlockingKeySpecification.BLOCKING_KEY_EXACT));
+		EntityResolutionResults batchResults = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet);
+		int blockCount = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records).iterator(), attributeParametersSet,
+				new EntityResolutionConfiguration(), callback);
+
+		assertEquals(surNames.length, blockCount);
+		assertEquals(Arrays.asList(2, 2, 2, 2), blockSizes);
+		assertEquals(describeEntities(batchResults), describeEntities(new EntityResolutionResults(streamedRecords, null, false)));
+
+	}
+
+	@Test
+	public void testTimeBudget() throws Exception
+	{
+
+		List<ExternallyIdentifiableRecord> records = new ArrayList<ExternallyIdentifiableRecord>();
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andrew"), new Attribute("surName", "Owen")), "record1"));
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andruw"), new Attribute("surName", "Owen")), "record2"));
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Michael"), new Attribute("surName", "Jones")), "record3"));
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andriw"), new Attribute("surName", "Owen")), "record4"));
+
+		Set<AttributeParameters> attributeParametersSet = makeNameParameters();
+
+		EntityResolutionResults unbudgetedResults = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet);
+		assertEquals(1.0, unbudgetedResults.getFractionOfPairsEvaluated(), 0.0);
+
+		// the budget takes the place of the record limit
+		EntityResolutionConfiguration configuration = new EntityResolutionConfiguration(2);
+		configuration.setTimeBudgetMillis(60000);
+		EntityResolutionResults results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet, configuration);
+		assertFalse(results.isRecordLimitExceeded());
+		assertEquals(1.0, results.getFractionOfPairsEvaluated(), 0.0);
+		assertEquals(describeEntities(unbudgetedResults), describeEntities(results));
+
+		// each engine keeps to its own matches under a budget
+		for (String engine : new String[] {EntityResolutionConfiguration.ENGINE_RSWOOSH, EntityResolutionConfiguration.ENGINE_MATCH_GRAPH,
+				EntityResolutionConfiguration.ENGINE_SORTED_NEIGHBORHOOD})
+		{
+			configuration.setEngine(engine);
+			results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet, configuration);
+			assertEquals(engine, 1.0, results.getFractionOfPairsEvaluated(), 0.0);
+			assertEquals(engine, describeEntities(unbudgetedResults), describeEntities(results));
+		}
+
+		try
+		{
+			configuration.setTimeBudgetMillis(-1);
+			fail("A negative time budget should be rejected");
+		} catch (IllegalArgumentException e)
+		{
+			// expected
+		}
+
+	}
+
+	@Test
+	public void testMergeStatistics() throws Exception
+	{
+
+		List<ExternallyIdentifiableRecord> records = new ArrayList<ExternallyIdentifiableRecord>();
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andrew"), new Attribute("surName", "Owen")), "record1"));
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andruw"), new Attribute("surName", "Owen")), "record2"));
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Michael"), new Attribute("surName", "Jones")), "record3"));
+		List<ExternallyIdentifiableRecord> newRecords = new ArrayList<ExternallyIdentifiableRecord>();
+		newRecords.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andriw"), new Attribute("surName", "Owen")), "record4"));
+
+		Set<AttributeParameters> attributeParametersSet = makeNameParameters();
+
+		EntityResolutionConfiguration configuration = new EntityResolutionConfiguration();
+		List<ExternallyIdentifiableRecord> allRecords = new ArrayList<ExternallyIdentifiableRecord>(records);
+		allRecords.addAll(newRecords);
+		EntityResolutionResults results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(allRecords), attributeParametersSet, configuration);
+		assertEquals(2, results.getRecords().size());
+		assertMergeStatistics(results);
+
+		// statistics carry over from earlier results, so an incremental run ends up with the same observations
+		results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet, configuration);
+		results = service.resolveEntities(results, EntityResolutionConversionUtils.convertRecords(newRecords), attributeParametersSet, configuration);
+		assertEquals(2, results.getRecords().size());
+		assertMergeStatistics(results);
+
+		// records merged on a determinative attribute add no observation for an attribute on which they do not match
+		AttributeParameters idParameters = makeNameParameter("id");
+		idParameters.setDeterminative(true);
+		attributeParametersSet.add(idParameters);
+		records = new ArrayList<ExternallyIdentifiableRecord>();
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Andrew"), new Attribute("surName", "Owen"), new Attribute("id", "123")), "record1"));
+		records.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", "Zebulon"), new Attribute("surName", "Owen"), new Attribute("id", "123")), "record2"));
+		results = service.resolveEntities(EntityResolutionConversionUtils.convertRecords(records), attributeParametersSet, configuration);
+		assertEquals(1, results.getRecords().size());
+		for (AttributeStatistics stats : results.getStatisticsForRecord(results.getRecords().get(0).getExternalId()))
+		{
+			boolean givenName = "givenName".equals(stats.getAttributeName());
+			assertEquals(givenName ? 0L : 1L, stats.getObservationCount());
+			assertEquals(givenName ? 0.0 : 1.0, stats.getAverageStringDistance(), 1e-9);
+		}
+
+	}
+
+	private void assertMergeStatistics(EntityResolutionResults results)
+	{
+		for (RecordWrapper record : results.getRecords())
+		{
+			boolean merged = record.getAttributes().get("surName").getValues().contains("Owen");
+			Set<AttributeStatistics> statSet = results.getStatisticsForRecord(record.getExternalId());
+			assertEquals(2, statSet.size());
+			for (AttributeStatistics stats : statSet)
+			{
+				// three records merged into one entity make two observations per attribute; the Andrew variants all score the same against each other
+				double expectedMean = "surName".equals(stats.getAttributeName()) ? 1.0 : andrewThresholdValue;
+				assertEquals(merged ? 2L : 0L, stats.getObservationCount());
+				assertEquals(merged ? expectedMean : 0, stats.getAverageStringDistance(), 1e-9);
+				assertEquals(0, stats.getStandardDeviationStringDistance(), 1e-9);
+			}
+		}
+	}
+
+	/**
+	 * Make parameters for givenName and surName, scored by Jaro distance with a threshold just below the score of the Andrew variants against each other
+	 */
+	private Set<AttributeParameters> makeNameParameters()
+	{
+		Set<AttributeParameters> ret = new HashSet<AttributeParameters>();
+		ret.add(makeNameParameter("givenName"));
+		ret.add(makeNameParameter("surName"));
+		return ret;
+	}
+
+	private AttributeParameters makeNameParameter(String attributeName)
+	{
+		AttributeParameters ret = new AttributeParameters(attributeName);
+		ret.setAlgorithmClassName(JARO_DISTANCE_IMPL);
+		ret.setThreshold(andrewThresholdValue - .01);
+		return ret;
+	}
+
+	private static AttributeParameters getParameters(Set<AttributeParameters> attributeParametersSet, String attributeName)
+	{
+		for (AttributeParameters ap : attributeParametersSet)
+		{
+			if (ap.getAttributeName().equals(attributeName))
+			{
+				return ap;
+			}
+		}
+		throw new IllegalArgumentException("No parameters for " + attributeName);
+	}
+
+	/**
+	 * Make one record for each combination of given name and surname, grouped by surname
+	 */
+	private static List<ExternallyIdentifiableRecord> makeNameGrid(String[] givenNames, String[] surNames)
+	{
+		List<ExternallyIdentifiableRecord> ret = new ArrayList<ExternallyIdentifiableRecord>();
+		int id = 0;
+		for (String surName : surNames)
+		{
+			for (String givenName : givenNames)
+			{
+				ret.add(new ExternallyIdentifiableRecord(makeAttributes(new Attribute("givenName", givenName), new Attribute("surName", surName)), "record" + id++));
+			}
+		}
+		return ret;
+	}
+
+	private static Set<String> describeRecords(EntityResolutionResults results)
+	{
+		Set<String> ret = new HashSet<String>();
+		for (ExternallyIdentifiableRecord r : EntityResolutionConversionUtils.convertRecordWrappers(results.getRecords()))
+		{
+			Set<String> givenNames = new TreeSet<String>();
+			for (Iterator<String> it = r.getAttribute("givenName").iterator(); it.hasNext();)
+			{
+				givenNames.add(it.next());
+			}
+			ret.add(r.getExternalId() + " " + new TreeSet<String>(r.getRelatedIds()) + " " + givenNames + " " + r.getAttribute("surName").iterator().next());
+		}
+		return ret;
+	}
+
+	/**
+	 * Describe the entities by the ids of the records that make them up, since which record's id a merged record keeps depends on the order of merging
+	 */
+	private static Set<String> describeEntities(EntityResolutionResults results)
+	{
+		Set<String> ret = new HashSet<String>();
+		for (RecordWrapper r : results.getRecords())
+		{
+			Set<String> ids = new TreeSet<String>(r.getRelatedIds());
+			ids.add(r.getExternalId());
+			ret.add(ids.toString());
+		}
+		return ret;
+	}
+
 	private static Map<String, Attribute> makeAttributes(Attribute... attributes)
 	{
 		Map<String, Attribute> ret = new HashMap<String, Attribute>();